@@ -20,6 +20,7 @@ package org.bedework.calsvci;
 
 import org.bedework.calfacade.BwCalendar;
 import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.CollectionSize;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.synch.wsmessages.SubscriptionStatusResponseType;
 
@@ -332,4 +333,17 @@ public interface CalendarsI extends Serializable {
    * @throws CalFacadeException
    */
   String getSyncToken(String path) throws CalFacadeException;
+
+  /** Return the number of entities in the collection and an estimate
+   * of their total size. Child collections are not included.
+   *
+   * <p>These are not used for quota enforcement. The size is the sum of
+   * the stored event byte sizes so events not saved since the size
+   * estimate changed still carry the old value.
+   *
+   * @param path to collection
+   * @return sizes or null for no access
+   * @throws CalFacadeException
+   */
+  CollectionSize getCollectionSize(String path) throws CalFacadeException;
 }
@@ -28,6 +28,7 @@ import org.bedework.calfacade.ical.BwIcalPropertyInfo.BwIcalPropertyInfoEntry;
 import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calfacade.svc.EventInfo.UpdateResult;
 
+import java.io.Reader;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
@@ -181,6 +182,20 @@ public interface EventsI extends Serializable {
                           boolean autoCreateCollection,
                           boolean rollbackOnError) throws CalFacadeException;
 
+  /** Import icalendar data into the given collection. The data is
+   * converted and stored in batches as it is read so the whole calendar
+   * is never held in memory. Events whose uid already exists in the
+   * collection are updated, all others are added. No invitations are
+   * sent.
+   *
+   * @param col          collection to import into
+   * @param rdr          icalendar data
+   * @return int         number of events added or updated
+   * @throws CalFacadeException
+   */
+  public int importIcal(BwCalendar col,
+                        Reader rdr) throws CalFacadeException;
+
   /** Update an event. Any changeset should be embedded in the event info object.
    *
    * @param ei           EventInfo object to be added
@@ -122,6 +122,29 @@ public interface NotificationsI extends Serializable {
    */
   List<NotificationType> getMatching(QName type) throws CalFacadeException;
 
+  /** Only the notifications which may match are fetched and parsed.
+   *
+   * @param type of notification (null for all)
+   * @param href of the entity the notification refers to
+   * @return matching notifications for this user which refer to the
+   *         given entity - never null
+   * @throws CalFacadeException
+   */
+  List<NotificationType> getMatchingHref(QName type,
+                                         String href) throws CalFacadeException;
+
+  /** Only the notifications with the given encoding are fetched and
+   * parsed.
+   *
+   * @param type of notification (null for all)
+   * @param encoding of the notification
+   * @return matching notifications for this user with the given
+   *         encoding - never null
+   * @throws CalFacadeException
+   */
+  List<NotificationType> getMatchingEncoding(QName type,
+                                             String encoding) throws CalFacadeException;
+
   /**
    * @param pr principal
    * @param type of notification (null for all)
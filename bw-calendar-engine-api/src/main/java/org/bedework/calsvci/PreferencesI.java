@@ -37,7 +37,9 @@ public interface PreferencesI extends Serializable {
    */
   BwPreferences get() throws CalFacadeException;
 
-  /** Returns the given user preferences.
+  /** Returns the given user preferences. The result is a copy of a
+   * snapshot shared by all sessions and must not be saved - use get()
+   * for the current user to make changes.
    *
    * @param principal - representing a principal
    * @return BwPreferences   prefs for the given user
@@ -22,6 +22,7 @@ import org.bedework.calfacade.BwResource;
 import org.bedework.calfacade.exc.CalFacadeException;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 /** Interface for handling bedework stored resources.
@@ -66,6 +67,14 @@ public interface ResourcesI extends Serializable {
    */
   void getContent(BwResource val) throws CalFacadeException;
 
+  /** Retrieve the content for each of the resources in one go. It will
+   * be set in each resource object.
+   *
+   * @param  vals resources
+   * @throws CalFacadeException
+   */
+  void getContents(Collection<BwResource> vals) throws CalFacadeException;
+
   /** Get resources to which this user has access - content is not fetched.
    *
    * @param  path           String path to containing collection
@@ -93,6 +93,12 @@ public interface BwIndexCtlMBean extends ConfBaseMBean, IndexProperties {
    */
   boolean isStarted();
 
+  /** Lifecycle
+   *
+   * @return true if started and the index client is up and warmed up
+   */
+  boolean isReady();
+
   /** (Re)load the configuration
    *
    * @return status
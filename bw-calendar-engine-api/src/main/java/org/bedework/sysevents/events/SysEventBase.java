@@ -156,6 +156,10 @@ public interface SysEventBase extends Serializable {
     /** A collection was updated */
     COLLECTION_UPDATED(info, user, isIndexable, isNotifiableEvent, true),
 
+    /** The acl of a collection was changed - this affects the access to
+     * everything below it */
+    COLLECTION_ACCESS_CHANGED(info, user, isIndexable, isNotifiableEvent, true),
+
     /* ========= Entities =========== */
 
     /** One or more events, task etc were fetched */
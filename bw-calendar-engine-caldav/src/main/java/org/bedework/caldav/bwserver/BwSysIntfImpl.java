@@ -1101,7 +1101,7 @@ public class BwSysIntfImpl implements SysIntf {
   public UpdateResult updateEvent(final CalDAVEvent event,
                                   final List<ComponentSelectionType> updates) throws WebdavException {
     try {
-      EventInfo ei = getEvinfo(event);
+      EventInfo ei = getFullEvinfo(event);
 
       if (updates == null) {
         return new UpdateResult("No updates");
@@ -1126,6 +1126,8 @@ public class BwSysIntfImpl implements SysIntf {
         throw new WebdavBadRequest("Duplicate-guid");
       }
       throw new WebdavException(cfe);
+    } catch (WebdavException wde) {
+      throw wde;
     } catch (Throwable t) {
       throw new WebdavException(t);
     }
@@ -1564,13 +1566,15 @@ public class BwSysIntfImpl implements SysIntf {
                           final boolean overwrite) throws WebdavException {
     CopyMoveStatus cms;
     try {
-      cms = getSvci().getEventsHandler().copyMoveNamed(getEvinfo(from),
+      cms = getSvci().getEventsHandler().copyMoveNamed(getFullEvinfo(from),
                                                        unwrap(to), name,
                                                        copy, overwrite, false);
     } catch (CalFacadeAccessException cfae) {
       throw new WebdavForbidden();
     } catch (CalFacadeException cfe) {
       throw new WebdavException(cfe);
+    } catch (WebdavException wde) {
+      throw wde;
     } catch (Throwable t) {
       throw new WebdavException(t);
     }
@@ -2075,11 +2079,12 @@ public class BwSysIntfImpl implements SysIntf {
       }
 
       if (ctype.equals("text/calendar")) {
-        Calendar ical = trans.toIcal(bwevs, meth);
         if (xml == null) {
-          IcalTranslator.writeCalendar(ical, wtr);
+          trans.writeCalendar(bwevs, meth, wtr);
         } else {
-          xml.cdataValue(toIcalString(ical, "text/calendar"));
+          final StringWriter sw = new StringWriter();
+          trans.writeCalendar(bwevs, meth, sw);
+          xml.cdataValue(sw.toString());
         }
       } else if (ctype.equals("application/calendar+json")) {
         if (xml == null) {
@@ -2459,6 +2464,28 @@ public class BwSysIntfImpl implements SysIntf {
     return ((BwCalDAVEvent)ev).getEvinfo();
   }
 
+  /* Events from a partial retrieval are refetched in full before we
+   * copy them or apply updates to them.
+   */
+  private EventInfo getFullEvinfo(final CalDAVEvent ev)
+          throws CalFacadeException, WebdavException {
+    final EventInfo ei = getEvinfo(ev);
+
+    if ((ei == null) || !ei.getPartial()) {
+      return ei;
+    }
+
+    final BwEvent pev = ei.getEvent();
+    final EventInfo full = getSvci().getEventsHandler().get(pev.getColPath(),
+                                                            pev.getName());
+
+    if (full == null) {
+      throw new WebdavNotFound(ev.getName());
+    }
+
+    return full;
+  }
+
   private BwEvent getEvent(final CalDAVEvent ev) throws WebdavException {
     if (ev == null) {
       return null;
@@ -2526,6 +2553,11 @@ public class BwSysIntfImpl implements SysIntf {
       svci.beginTransaction();
 
       trans = new IcalTranslator(svci.getIcalCallback());
+
+      /* The synch service is updating external subscriptions - keep the
+         icalendar as delivered for unchanged events.
+       */
+      trans.getPars().storeCanonical = synchWs;
     } catch (Throwable t) {
       throw new WebdavException(t);
     }
@@ -86,7 +86,7 @@ public class ChgProc extends JmsSysEventListener implements Runnable {
   public void run() {
     try {
       open(changesQueueName);
-      handler = new Notifier();
+      handler = new Notifier(counts);
 
       process(false);
     } catch (Throwable t) {
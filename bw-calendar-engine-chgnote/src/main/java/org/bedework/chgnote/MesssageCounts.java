@@ -61,6 +61,15 @@ public class MesssageCounts {
   /** max retries */
   public long maxRetries;
 
+  /** notifications added or updated for sharees */
+  public long fanOutNotifications;
+
+  /** transactions committed for sharee notifications */
+  public long fanOutBatches;
+
+  /** sharees skipped as already notified of the change */
+  public long fanOutDeduped;
+
   /**
    * @param name
    */
@@ -86,6 +95,9 @@ public class MesssageCounts {
     ctLine(sb, "retried", retried);
     ctLine(sb, "retries", retries);
     ctLine(sb, "maxRetries", maxRetries);
+    ctLine(sb, "fanOutNotifications", fanOutNotifications);
+    ctLine(sb, "fanOutBatches", fanOutBatches);
+    ctLine(sb, "fanOutDeduped", fanOutDeduped);
 
     sb.append("}\n");
 
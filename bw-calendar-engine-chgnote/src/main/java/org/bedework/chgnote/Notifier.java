@@ -53,6 +53,7 @@ import org.bedework.util.misc.Uid;
 import org.bedework.util.misc.Util;
 import org.bedework.util.xml.tagdefs.AppleServerTags;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -85,10 +86,26 @@ public class Notifier extends AbstractScheduler {
           60 * 1000 * 3,
           500);
 
+  /* Number of sharees we notify in each transaction */
+  private static final int fanOutBatchSize = 50;
+
+  /* Sharees already notified of a change - keyed by href and the
+   * notification. Lets us skip repeats and resume after a failure.
+   */
+  private final Map<String, Set<String>> fannedOut =
+      new FlushMap<>(100, // size
+          60 * 1000 * 3,
+          500);
+
+  private final MesssageCounts counts;
+
   /**
+   * @param counts for fan out statistics
    */
-  public Notifier() {
+  public Notifier(final MesssageCounts counts) {
     super();
+
+    this.counts = counts;
   }
 
   @Override
@@ -167,7 +184,8 @@ public class Notifier extends AbstractScheduler {
         NotificationType storedNote = null;
 
         for (final NotificationType n:
-                getNotes().getMatching(ant.getElementName())) {
+                getNotes().getMatchingHref(ant.getElementName(),
+                                           ant.getHref())) {
           if ((n == null) || (n.getNotification() == null)) {
             // Bad notiifcation?
             continue;
@@ -264,7 +282,8 @@ public class Notifier extends AbstractScheduler {
         NotificationType storedNote = null;
 
         for (final NotificationType n:
-                getNotes().getMatching(sbnt.getElementName())) {
+                getNotes().getMatchingHref(sbnt.getElementName(),
+                                           sbnt.getHref())) {
           if ((n == null) || (n.getNotification() == null)) {
             // Bad notiifcation?
             continue;
@@ -430,6 +449,11 @@ public class Notifier extends AbstractScheduler {
        * sharee that made the change.
        */
 
+      final String changeKey = href + "\n" +
+              ((NotificationEvent)msg).getNotification();
+      final Set<String> done = getFannedOut(changeKey);
+      final List<String> batch = new ArrayList<>();
+
       for (final String sh: ci.enabledSharees) {
         final String shareeHref = getSvc().getDirectories().normalizeCua(sh);
 
@@ -439,132 +463,186 @@ public class Notifier extends AbstractScheduler {
           continue;
         }
 
+        /* Already done - a repeat of the message or a retry after a
+           failure in a later batch
+         */
+        if (done.contains(shareeHref)) {
+          counts.fanOutDeduped++;
+          continue;
+        }
+
         try {
           pushPrincipal(shareeHref);
 
-          /* See if we have any notifications for this entity
-           *
-           * SCHEMA: If we could store the entire encoded path in the name we
-           * could just do a get
-           */
-          NotificationType storedNote = null;
-
-          for (final NotificationType n:
-                  getNotes().getMatching(AppleServerTags.resourceChange)) {
-            if (rc.getEncoding().equals(n.getNotification().getEncoding())) {
-              storedNote = n;
-              break;
-            }
+          if (notifySharee(rc, note)) {
+            processed = true;
+            counts.fanOutNotifications++;
           }
+        } finally {
+          popPrincipal();
+        }
 
-          /* Add to collection or update or merge this one into a
-             stored one.
+        batch.add(shareeHref);
 
-            1. If no notification is present add the new one to the
-               notification collection
+        if (batch.size() >= fanOutBatchSize) {
+          commitBatch(done, batch);
+        }
+      }
 
-            2. If the new notification is a create discard the old and
-               create a new one (somehow we left an old create in the
-               collection)
+      commitBatch(done, batch);
 
-            3. If the new notification is a deletion and a create is
-               present throw them all away. User doesn't need to
-               know an event was created then deleted
+      if (processed) {
+        return ProcessMessageResult.PROCESSED;
+      }
 
-            4. If the new notification is a deletion and updates are
-               present discard the updates.
+      return ProcessMessageResult.IGNORED;
+    } finally {
+      closeSvci(getSvc());
+    }
+  }
 
-            5. If the new notification is updates and a create is present
-               discard the new (to the end user it just looks like a
-               new event - they don't care that it changed - events
-               will typically change a lot just after being added
-               often due to implicit scheduling).
+  /* Add, update or merge the change into the notifications for the
+   * current principal. Returns true if we changed anything.
+   */
+  private boolean notifySharee(final ResourceChangeType rc,
+                               final NotificationType note) throws CalFacadeException {
+    /* See if we have any notifications for this entity
+     *
+     * SCHEMA: If we could store the entire encoded path in the name we
+     * could just do a get
+     */
+    NotificationType storedNote = null;
+
+    for (final NotificationType n:
+            getNotes().getMatchingEncoding(AppleServerTags.resourceChange,
+                                           rc.getEncoding())) {
+      if (rc.getEncoding().equals(n.getNotification().getEncoding())) {
+        storedNote = n;
+        break;
+      }
+    }
 
-            6. If the new notification is updates and a deletion is
-               present (should not occur - means we missed a create),
-               discard the old and add the new.
+    /* Add to collection or update or merge this one into a
+       stored one.
 
-            7. If the new notification is updates (only valid choice left)
-               merge into the updates.
+      1. If no notification is present add the new one to the
+         notification collection
 
-           */
+      2. If the new notification is a create discard the old and
+         create a new one (somehow we left an old create in the
+         collection)
 
-          if (storedNote == null) {
-            // Choice 1 - Just save this one
-            rc.setName(getEncodedUuid());
-            getNotes().add(note);
-            processed = true;
-            continue;
-          }
+      3. If the new notification is a deletion and a create is
+         present throw them all away. User doesn't need to
+         know an event was created then deleted
 
-          if (!(storedNote.getNotification() instanceof ResourceChangeType)) {
-            // Don't know what to do with that
-            continue;
-          }
+      4. If the new notification is a deletion and updates are
+         present discard the updates.
 
-          final ResourceChangeType storedRc =
-                  (ResourceChangeType)storedNote.getNotification();
+      5. If the new notification is updates and a create is present
+         discard the new (to the end user it just looks like a
+         new event - they don't care that it changed - events
+         will typically change a lot just after being added
+         often due to implicit scheduling).
 
-          if (rc.getCreated() != null) {
-            // Choice 2 above - update the old one
-            storedRc.setCollectionChanges(null);
-            storedRc.setDeleted(null);
-            storedRc.setCreated(rc.getCreated());
+      6. If the new notification is updates and a deletion is
+         present (should not occur - means we missed a create),
+         discard the old and add the new.
 
-            getNotes().update(storedNote);
-            processed = true;
-            continue;
-          }
+      7. If the new notification is updates (only valid choice left)
+         merge into the updates.
 
-          if (rc.getDeleted() != null) {
-            if (storedRc.getCreated() != null) {
-              // Choice 3 above - discard both
-              getNotes().remove(storedNote);
-              processed = true;
-              continue;
-            }
+     */
 
-            // Choice 4 above - discard updates
-            storedRc.setCollectionChanges(null);
-            storedRc.setDeleted(rc.getDeleted());
-            storedRc.clearUpdated();
+    if (storedNote == null) {
+      // Choice 1 - Just save this one
+      rc.setName(getEncodedUuid());
+      getNotes().add(note);
+      return true;
+    }
 
-            getNotes().update(storedNote);
-            processed = true;
-            continue;
-          }
+    if (!(storedNote.getNotification() instanceof ResourceChangeType)) {
+      // Don't know what to do with that
+      return false;
+    }
 
-          if (storedRc.getCreated() != null) {
-            // Choice 5 above - discard new updates
-            continue;
-          }
+    final ResourceChangeType storedRc =
+            (ResourceChangeType)storedNote.getNotification();
 
-          if (!Util.isEmpty(rc.getUpdated())) {
-            // Choices 6 and 7 above
-            storedRc.setDeleted(null);
-            storedRc.setCreated(null);
-            storedRc.setCollectionChanges(null);
+    if (rc.getCreated() != null) {
+      // Choice 2 above - update the old one
+      storedRc.setCollectionChanges(null);
+      storedRc.setDeleted(null);
+      storedRc.setCreated(rc.getCreated());
 
-            for (final UpdatedType u: rc.getUpdated()) {
-              storedRc.addUpdate(u);
-            }
+      getNotes().update(storedNote);
+      return true;
+    }
 
-            getNotes().update(storedNote);
-            processed = true;
-          }
-        } finally {
-          popPrincipal();
-        }
+    if (rc.getDeleted() != null) {
+      if (storedRc.getCreated() != null) {
+        // Choice 3 above - discard both
+        getNotes().remove(storedNote);
+        return true;
       }
 
-      if (processed) {
-        return ProcessMessageResult.PROCESSED;
+      // Choice 4 above - discard updates
+      storedRc.setCollectionChanges(null);
+      storedRc.setDeleted(rc.getDeleted());
+      storedRc.clearUpdated();
+
+      getNotes().update(storedNote);
+      return true;
+    }
+
+    if (storedRc.getCreated() != null) {
+      // Choice 5 above - discard new updates
+      return false;
+    }
+
+    if (!Util.isEmpty(rc.getUpdated())) {
+      // Choices 6 and 7 above
+      storedRc.setDeleted(null);
+      storedRc.setCreated(null);
+      storedRc.setCollectionChanges(null);
+
+      for (final UpdatedType u: rc.getUpdated()) {
+        storedRc.addUpdate(u);
       }
 
-      return ProcessMessageResult.IGNORED;
-    } finally {
-      closeSvci(getSvc());
+      getNotes().update(storedNote);
+      return true;
+    }
+
+    return false;
+  }
+
+  /* Commit the notifications for the batch of sharees and remember
+   * they are done.
+   */
+  private void commitBatch(final Set<String> done,
+                           final List<String> batch) throws CalFacadeException {
+    if (batch.isEmpty()) {
+      return;
     }
+
+    getSvc().endTransaction();
+    getSvc().beginTransaction();
+
+    done.addAll(batch);
+    counts.fanOutBatches++;
+    batch.clear();
+  }
+
+  private Set<String> getFannedOut(final String changeKey) {
+    Set<String> done = fannedOut.get(changeKey);
+
+    if (done == null) {
+      done = new TreeSet<>();
+      fannedOut.put(changeKey, done);
+    }
+
+    return done;
   }
 
   private NotificationType getNotification(final SysEvent msg) throws CalFacadeException {
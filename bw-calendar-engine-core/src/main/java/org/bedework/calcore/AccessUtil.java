@@ -376,6 +376,12 @@ public class AccessUtil implements AccessUtilI {
     }
   }
 
+  @Override
+  public char[] getMergedAccess(final BwShareableDbentity<?> ent)
+          throws CalFacadeException {
+    return getAclChars(ent);
+  }
+
   /* ====================================================================
    *                   Private methods
    * ==================================================================== */
@@ -19,6 +19,7 @@
 package org.bedework.calcore;
 
 import org.bedework.calcore.indexing.BwIndexerFactory;
+import org.bedework.calcore.indexing.IndexDocCache;
 import org.bedework.calcorei.Calintf;
 import org.bedework.calcorei.CalintfDefs;
 import org.bedework.calfacade.BwPrincipal;
@@ -27,7 +28,13 @@ import org.bedework.calfacade.configs.Configurations;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.indexing.BwIndexer;
 import org.bedework.calfacade.svc.PrincipalInfo;
+import org.bedework.calfacade.util.PrincipalCache;
+import org.bedework.icalendar.RenderedCache;
 import org.bedework.sysevents.NotificationsHandlerFactory;
+import org.bedework.sysevents.events.EntityDeletedEvent;
+import org.bedework.sysevents.events.EntityUpdateEvent;
+import org.bedework.sysevents.events.HrefEvent;
+import org.bedework.sysevents.events.PrincipalEvent;
 import org.bedework.sysevents.events.SysEventBase;
 
 import org.apache.log4j.Logger;
@@ -167,17 +174,26 @@ public abstract class CalintfBase implements Calintf {
     return configs.getBasicSystemProperties();
   }
 
+  /** The indexers use this to determine who may read the entities
+   * they index.
+   *
+   * @return an access checker - null for none
+   */
+  protected abstract BwIndexer.AccessChecker getIndexAccessChecker();
+
   @Override
   public BwIndexer getPublicIndexer() throws CalFacadeException {
     return BwIndexerFactory.getPublicIndexer(configs,
-                                             currentMode);
+                                             currentMode,
+                                             getIndexAccessChecker());
   }
 
   @Override
   public BwIndexer getIndexer(final BwPrincipal principal) throws CalFacadeException {
     return BwIndexerFactory.getIndexer(configs, principal,
                                        getPrincipalInfo().getSuperUser(),
-                                       currentMode);
+                                       currentMode,
+                                       getIndexAccessChecker());
   }
 
   @Override
@@ -185,7 +201,8 @@ public abstract class CalintfBase implements Calintf {
                               final String indexRoot) throws CalFacadeException {
     return BwIndexerFactory.getIndexer(configs, principal,
                                        currentMode,
-                                       indexRoot);
+                                       indexRoot,
+                                       getIndexAccessChecker());
   }
 
   /* ====================================================================
@@ -194,6 +211,21 @@ public abstract class CalintfBase implements Calintf {
 
   @Override
   public void postNotification(final SysEventBase ev) throws CalFacadeException {
+    if ((ev instanceof EntityUpdateEvent) ||
+            (ev instanceof EntityDeletedEvent)) {
+      /* Drop any cached rendered forms and index documents of the entity */
+      final String href = ((HrefEvent)ev).getHref();
+
+      RenderedCache.invalidate(href);
+      IndexDocCache.invalidate(href);
+    }
+
+    if ((ev instanceof PrincipalEvent) &&
+            (ev.getSysCode() == SysEventBase.SysCode.NEW_USER)) {
+      /* Drop any not found entry. Logins are statistics only */
+      PrincipalCache.invalidate(((PrincipalEvent)ev).getPrincipalHref());
+    }
+
     if (!isOpen) {
       try {
         NotificationsHandlerFactory.post(ev);
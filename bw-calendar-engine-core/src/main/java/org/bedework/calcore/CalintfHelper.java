@@ -122,6 +122,15 @@ public abstract class CalintfHelper
      */
     BwCategory getCategory(String uid) throws CalFacadeException;
 
+    /** Used to fetch a number of categories in one go - assumes any
+     * access. Uids not found are skipped.
+     *
+     * @param uids
+     * @return Collection of BwCategory - never null
+     * @throws CalFacadeException
+     */
+    Collection<BwCategory> getCategories(Collection<String> uids) throws CalFacadeException;
+
     /** Used to fetch a calendar from the cache
      *
      * @param path
@@ -164,6 +173,12 @@ public abstract class CalintfHelper
             throws CalFacadeException {
       return access.checkAccess(ent, desiredAccess, returnResult);
     }
+
+    @Override
+    public char[] getMergedAccess(final BwShareableDbentity ent)
+            throws CalFacadeException {
+      return access.getMergedAccess(ent);
+    }
   }
 
   private AccessChecker ac = new AccessChecker();
@@ -337,7 +352,7 @@ public abstract class CalintfHelper
   }
 
   protected void unindexEntity(final BwCalendar col) throws CalFacadeException {
-    getIndexer(col).unindexEntity(col.getPath());
+    getIndexer(col).unindexCollection(col.getPath());
   }
 
   /** Called to notify container that an event occurred. This method should
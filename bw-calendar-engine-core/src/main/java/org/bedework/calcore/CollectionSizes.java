@@ -0,0 +1,285 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calcore;
+
+import org.bedework.calfacade.CollectionSize;
+
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Jvm wide running counts of the number of entities and their size
+ * for each collection. Counts are loaded from the db on first use and
+ * then adjusted as each transaction commits. As other jvms may be
+ * updating the same collections an entry is reloaded from the db once
+ * it is older than the verify interval.
+ *
+ * <p>Each helper holds a Changes object for the changes made during
+ * the current transaction. These are applied on commit and discarded
+ * otherwise. A count from the db is only cached if no changes to the
+ * collection were committed while it was being made - otherwise we
+ * cannot tell whether the count includes them.
+ *
+ * <p>Events saved before the size calculation changed carry the old
+ * value. The first time a collection is counted in this jvm the stored
+ * sizes are recalculated so the totals use a single scheme.
+ *
+ * <p>Quotas are per principal and are not checked against these.
+ */
+public class CollectionSizes {
+  /** Default time after which we recalculate the sizes from the db */
+  public static final long defaultVerifyInterval = 30 * 60 * 1000;
+
+  private static long verifyInterval = defaultVerifyInterval;
+
+  private static class Sizes {
+    final AtomicLong count;
+    final AtomicLong bytes;
+
+    final long verified;
+
+    Sizes(final long count,
+          final long bytes) {
+      this.count = new AtomicLong(count);
+      this.bytes = new AtomicLong(bytes);
+      verified = System.currentTimeMillis();
+    }
+  }
+
+  private static final ConcurrentMap<String, Sizes> sizes =
+          new ConcurrentHashMap<>();
+
+  /** Returned by startLoad and handed back to set. Flagged if changes
+   * to the collection are committed while the count is being made.
+   */
+  public static class Loading {
+    private boolean changed;
+  }
+
+  /* Counts in progress */
+  private static final Map<String, Loading> loads = new HashMap<>();
+
+  /* Collections whose stored event sizes have been recalculated */
+  private static final Set<String> resized =
+          Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /* Held while changes are applied or a count is stored */
+  private static final Object lock = new Object();
+
+  /** Changes made in the current transaction.
+   */
+  public static class Changes implements Serializable {
+    private final Map<String, long[]> changes = new HashMap<>();
+
+    private final Set<String> resizedPaths = new HashSet<>();
+
+    /**
+     * @param path of collection
+     * @param count change in number of entities
+     * @param bytes change in size
+     */
+    public void change(final String path,
+                       final long count,
+                       final long bytes) {
+      if ((path == null) || ((count == 0) && (bytes == 0))) {
+        return;
+      }
+
+      long[] ch = changes.get(path);
+
+      if (ch == null) {
+        ch = new long[2];
+        changes.put(path, ch);
+      }
+
+      ch[0] += count;
+      ch[1] += bytes;
+    }
+
+    /** The counts for the collection will be reloaded from the db
+     *
+     * @param path of collection
+     */
+    public void invalidate(final String path) {
+      if (path == null) {
+        return;
+      }
+
+      changes.put(path, null);
+    }
+
+    /** The stored event sizes for the collection were recalculated
+     * in this transaction.
+     *
+     * @param path of collection
+     */
+    public void resized(final String path) {
+      resizedPaths.add(path);
+    }
+
+    /** Apply the changes - called after commit.
+     */
+    public void apply() {
+      synchronized (lock) {
+        for (final Map.Entry<String, long[]> ent: changes.entrySet()) {
+          final Loading ld = loads.get(ent.getKey());
+
+          if (ld != null) {
+            // A count in progress may or may not include these
+            ld.changed = true;
+          }
+
+          final long[] ch = ent.getValue();
+
+          if (ch == null) {
+            sizes.remove(ent.getKey());
+            continue;
+          }
+
+          final Sizes sz = sizes.get(ent.getKey());
+
+          if (sz == null) {
+            // Not loaded - we'll get it from the db
+            continue;
+          }
+
+          sz.count.addAndGet(ch[0]);
+          sz.bytes.addAndGet(ch[1]);
+        }
+      }
+
+      resized.addAll(resizedPaths);
+
+      clear();
+    }
+
+    /** Drop the changes - called at start of transaction and on
+     * rollback.
+     */
+    public void clear() {
+      changes.clear();
+      resizedPaths.clear();
+    }
+  }
+
+  /**
+   * @param path of collection
+   * @return current counts or null if not loaded or due for a check
+   */
+  public static CollectionSize get(final String path) {
+    final Sizes sz = sizes.get(path);
+
+    if (sz == null) {
+      return null;
+    }
+
+    if ((System.currentTimeMillis() - sz.verified) > verifyInterval) {
+      return null;
+    }
+
+    return new CollectionSize(path, sz.count.get(), sz.bytes.get());
+  }
+
+  /** Called before counting the entities in the db.
+   *
+   * @param path of collection
+   * @return object to pass to set
+   */
+  public static Loading startLoad(final String path) {
+    final Loading ld = new Loading();
+
+    synchronized (lock) {
+      loads.put(path, ld);
+    }
+
+    return ld;
+  }
+
+  /**
+   * @param path of collection
+   * @return true if the stored event sizes need recalculating
+   */
+  public static boolean needsResize(final String path) {
+    return !resized.contains(path);
+  }
+
+  /** Set the counts from the db. They are discarded if changes were
+   * committed while counting or another count was started.
+   *
+   * @param val the counts
+   * @param ld from startLoad
+   */
+  public static void set(final CollectionSize val,
+                         final Loading ld) {
+    final Sizes old;
+
+    synchronized (lock) {
+      if (loads.get(val.getPath()) != ld) {
+        return;
+      }
+
+      loads.remove(val.getPath());
+
+      if (ld.changed) {
+        return;
+      }
+
+      old = sizes.put(val.getPath(),
+                      new Sizes(val.getCount(),
+                                val.getBytes()));
+    }
+
+    if ((old != null) &&
+            ((old.count.get() != val.getCount()) ||
+                     (old.bytes.get() != val.getBytes()))) {
+      final Logger log = Logger.getLogger(CollectionSizes.class);
+
+      if (log.isDebugEnabled()) {
+        log.debug("Corrected sizes for " + val.getPath() +
+                          " count " + old.count.get() +
+                          " -> " + val.getCount() +
+                          " bytes " + old.bytes.get() +
+                          " -> " + val.getBytes());
+      }
+    }
+  }
+
+  /**
+   * @param val time in millis after which we recalculate from the db
+   */
+  public static void setVerifyInterval(final long val) {
+    verifyInterval = val;
+  }
+
+  /** Drop all the counts
+   */
+  public static void flush() {
+    synchronized (lock) {
+      sizes.clear();
+    }
+  }
+}
@@ -55,6 +55,7 @@ import org.bedework.calfacade.BwStats;
 import org.bedework.calfacade.BwStats.StatsEntry;
 import org.bedework.calfacade.BwSystem;
 import org.bedework.calfacade.BwUser;
+import org.bedework.calfacade.CollectionSize;
 import org.bedework.calfacade.CollectionSynchInfo;
 import org.bedework.calfacade.RecurringRetrievalMode;
 import org.bedework.calfacade.RecurringRetrievalMode.Rmode;
@@ -78,6 +79,7 @@ import org.bedework.calfacade.svc.prefs.BwAuthUserPrefsCalendar;
 import org.bedework.calfacade.svc.prefs.BwAuthUserPrefsContact;
 import org.bedework.calfacade.svc.prefs.BwAuthUserPrefsLocation;
 import org.bedework.calfacade.util.Granulator.EventPeriod;
+import org.bedework.calfacade.util.PrincipalCache;
 import org.bedework.calfacade.wrappers.CalendarWrapper;
 import org.bedework.sysevents.events.SysEvent;
 import org.bedework.util.calendar.IcalDefs;
@@ -170,6 +172,8 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
   CalintfHelperCallback cb;
   CalintfHelperHib.CalintfHelperHibCb chcb;
 
+  private IndexAccessChecker indexAccess;
+
   /** Prevent updates.
    */
   //sprivate boolean readOnly;
@@ -180,6 +184,11 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
 
   private Timestamp curTimestamp;
 
+  /* Principals saved in this transaction. The principal cache is
+     refreshed with these after the commit so it holds the new seq.
+   */
+  private final Map<String, BwPrincipal> savedPrincipals = new HashMap<>();
+
   /** We make this static for this implementation so that there is only one
    * SessionFactory per server for the calendar.
    *
@@ -223,6 +232,7 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
 
     cb = new CalintfHelperCallback(this);
     chcb = new CalintfHelperHibCb(this);
+    indexAccess = new IndexAccessChecker(this);
 
     events = new CoreEvents(chcb, cb,
                             access, currentMode, sessionless);
@@ -252,6 +262,29 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     }
   }
 
+  /* Given to the indexers so they can index the readers of an entity */
+  private static class IndexAccessChecker implements BwIndexer.AccessChecker {
+    private final CalintfImpl intf;
+
+    IndexAccessChecker(final CalintfImpl intf) {
+      this.intf = intf;
+    }
+
+    @Override
+    public CurrentAccess checkAccess(final BwShareableDbentity ent,
+                                     final int desiredAccess,
+                                     final boolean returnResult)
+            throws CalFacadeException {
+      return intf.access.checkAccess(ent, desiredAccess, returnResult);
+    }
+
+    @Override
+    public char[] getMergedAccess(final BwShareableDbentity ent)
+            throws CalFacadeException {
+      return intf.access.getMergedAccess(ent);
+    }
+  }
+
   private static class CalintfHelperCallback implements CalintfHelperHib.Callback {
     private final CalintfImpl intf;
 
@@ -310,6 +343,20 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
       }
     }
 
+    @Override
+    public Collection<BwCategory> getCategories(final Collection<String> uids)
+            throws CalFacadeException {
+      try {
+        return intf.getEvPropsHandler(BwCategory.class).get(uids);
+      } catch (final Throwable t) {
+        if (t instanceof CalFacadeException) {
+          throw (CalFacadeException)t;
+        }
+
+        throw new CalFacadeException(t);
+      }
+    }
+
     @Override
     public BwCalendar getCollection(final String path,
                                     final int desiredAccess,
@@ -351,6 +398,11 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     }
   }
 
+  @Override
+  protected BwIndexer.AccessChecker getIndexAccessChecker() {
+    return indexAccess;
+  }
+
   @Override
   public boolean getSuperUser() {
     return principalInfo.getSuperUser();
@@ -520,6 +572,8 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
 
     sess.beginTransaction();
 
+    savedPrincipals.clear();
+
     if (events != null) {
       ((CalintfHelperHib)events).startTransaction();
     }
@@ -542,6 +596,13 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
 
       if (!sess.rolledback()) {
         sess.commit();
+
+        for (final Map.Entry<String, BwPrincipal> me:
+                savedPrincipals.entrySet()) {
+          PrincipalCache.put(me.getKey(), me.getValue());
+        }
+      } else {
+        invalidateSavedPrincipals();
       }
 
       if (events != null) {
@@ -557,23 +618,35 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
       }
     } catch (final CalFacadeException cfe) {
       sess.rollback();
+      invalidateSavedPrincipals();
       throw cfe;
     } catch (final Throwable t) {
       sess.rollback();
+      invalidateSavedPrincipals();
       throw new CalFacadeException(t);
     } finally {
+      savedPrincipals.clear();
       synchronized (openIfs) {
         openIfs.remove(objKey);
       }
     }
   }
 
+  /* Another thread may have cached a copy we then changed. */
+  private void invalidateSavedPrincipals() {
+    for (final String href: savedPrincipals.keySet()) {
+      PrincipalCache.invalidate(href);
+    }
+  }
+
   @Override
   public void rollbackTransaction() throws CalFacadeException {
     try {
       checkOpen();
       sess.rollback();
+      invalidateSavedPrincipals();
     } finally {
+      savedPrincipals.clear();
       clearNotifications();
       synchronized (openIfs) {
         openIfs.remove(objKey);
@@ -905,6 +978,11 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     return calendars.getSyncToken(path);
   }
 
+  @Override
+  public CollectionSize getCollectionSize(final String path) throws CalFacadeException {
+    return calendars.getCollectionSize(path);
+  }
+
   @Override
   public Collection<String> getChildEntities(final String parentPath,
                                              final int start,
@@ -1163,12 +1241,34 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
 
   @Override
   public void saveOrUpdate(final BwUnversionedDbentity val) throws CalFacadeException {
-    sess.saveOrUpdate(val);
+    if (!(val instanceof BwPrincipal)) {
+      sess.saveOrUpdate(val);
+      return;
+    }
+
+    /* Principals may be detached copies from the jvm wide cache - merge
+       those rather than attaching them. The cache is refreshed with the
+       saved principal after the commit.
+     */
+    final BwPrincipal pr;
+
+    if (val.unsaved()) {
+      sess.saveOrUpdate(val);
+      pr = (BwPrincipal)val;
+    } else {
+      pr = (BwPrincipal)sess.merge(val);
+    }
+
+    savedPrincipals.put(pr.getPrincipalRef(), pr);
   }
 
   @Override
   public void delete(final BwUnversionedDbentity val) throws CalFacadeException {
     sess.delete(val);
+
+    if (val instanceof BwPrincipal) {
+      PrincipalCache.invalidate(((BwPrincipal)val).getPrincipalRef());
+    }
   }
 
   @Override
@@ -1344,18 +1444,28 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
       return null;
     }
 
-    /* XXX We should cache these as a static map and return detached objects only.
-     * Updating the user for logon etc should be a separate method,
+    /* We return detached copies from the jvm wide cache. Updates merge
+     * the copy and the entry is refreshed after the commit.
      *
      * Also - we are searching the user table at the moment. Make this into a
      * principal table and allow any principal to log on and own entities.
      */
 
+    final PrincipalCache.Entry ent = PrincipalCache.get(href);
+
+    if (ent != null) {
+      return ent.getPrincipal();
+    }
+
     sess.createQuery(getPrincipalQuery);
 
     sess.setString("href", href);
 
-    return (BwPrincipal)sess.getUnique();
+    final BwPrincipal pr = (BwPrincipal)sess.getUnique();
+
+    PrincipalCache.put(href, pr);
+
+    return pr;
   }
 
   private static final String getPrincipalHrefsQuery =
@@ -1527,6 +1637,7 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
   public void updateGroup(final BwGroup group,
                           final boolean admin) throws CalFacadeException {
     sess.saveOrUpdate(group);
+    PrincipalCache.invalidate(group.getPrincipalRef());
   }
 
   private static final String removeAllAdminGroupMemberRefsQuery =
@@ -1583,6 +1694,9 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     sess.executeUpdate();
 
     sess.delete(group);
+
+    // It may be cached as a member of any group
+    PrincipalCache.flush();
   }
 
   @Override
@@ -1601,6 +1715,7 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     ent.setMember(val);
 
     sess.saveOrUpdate(ent);
+    PrincipalCache.invalidate(group.getPrincipalRef());
   }
 
   private static final String findAdminGroupEntryQuery =
@@ -1640,6 +1755,7 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     }
 
     sess.delete(ent);
+    PrincipalCache.invalidate(group.getPrincipalRef());
   }
 
   private static final String getAdminGroupUserMembersQuery =
@@ -1920,6 +2036,63 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     val.setContent(rc);
   }
 
+  private static final String getResourceContentsQuery =
+      "from " + BwResourceContent.class.getName() +
+      " as rc where rc.colPath=:path and rc.name in (:names)";
+
+  /* Keep the in list within the database parameter limits */
+  private static final int maxResourceContentNames = 500;
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void getResourceContents(final Collection<BwResource> vals) throws CalFacadeException {
+    if (Util.isEmpty(vals)) {
+      return;
+    }
+
+    /* Group by collection - usually only one */
+    final Map<String, Map<String, BwResource>> cols = new HashMap<>();
+
+    for (final BwResource r: vals) {
+      Map<String, BwResource> names = cols.get(r.getColPath());
+
+      if (names == null) {
+        names = new HashMap<>();
+        cols.put(r.getColPath(), names);
+      }
+
+      names.put(r.getName(), r);
+    }
+
+    for (final Map.Entry<String, Map<String, BwResource>> ent:
+            cols.entrySet()) {
+      final List<String> names = new ArrayList<>(ent.getValue().keySet());
+
+      for (int i = 0; i < names.size(); i += maxResourceContentNames) {
+        sess.createQuery(getResourceContentsQuery);
+        sess.setString("path", ent.getKey());
+        sess.setParameterList("names",
+                              names.subList(i,
+                                            Math.min(i + maxResourceContentNames,
+                                                     names.size())));
+
+        final List<BwResourceContent> rcs = sess.getList();
+
+        if (rcs == null) {
+          continue;
+        }
+
+        for (final BwResourceContent rc: rcs) {
+          final BwResource r = ent.getValue().get(rc.getName());
+
+          if (r != null) {
+            r.setContent(rc);
+          }
+        }
+      }
+    }
+  }
+
   private static final String getAllResourcesQuery =
       "from " + BwResource.class.getName() +
       " as r where r.colPath=:path" +
@@ -1991,6 +2164,26 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
     return resChecked;
   }
 
+  /* Hibernate properties we set if the configuration does not. Names
+   * then values.
+   */
+  private static final String[] defaultHibernateProperties = {
+          /* Hibernate keeps translated queries in a plan cache keyed by
+           * the query text. The default only holds on to 128 so we
+           * thrash it.
+           */
+          "hibernate.query.plan_cache_max_strong_references", "512",
+          "hibernate.query.plan_cache_max_soft_references", "4096",
+
+          /* Send inserts and updates in jdbc batches. Ordering groups
+           * them by entity so a new recurring event with its instances
+           * is a few round trips rather than one per row.
+           */
+          "hibernate.jdbc.batch_size", "50",
+          "hibernate.order_inserts", "true",
+          "hibernate.order_updates", "true",
+  };
+
   private SessionFactory getSessionFactory() throws CalFacadeException {
     if (sessionFactory != null) {
       return sessionFactory;
@@ -2021,6 +2214,13 @@ public class CalintfImpl extends CalintfBase implements PrivilegeDefs {
         Properties hprops = new Properties();
         hprops.load(new StringReader(sb.toString()));
 
+        for (int i = 0; i < defaultHibernateProperties.length; i += 2) {
+          if (hprops.getProperty(defaultHibernateProperties[i]) == null) {
+            hprops.setProperty(defaultHibernateProperties[i],
+                               defaultHibernateProperties[i + 1]);
+          }
+        }
+
         conf.addProperties(hprops).configure();
 
         sessionFactory = conf.buildSessionFactory();
@@ -20,15 +20,18 @@ package org.bedework.calcore.hibernate;
 
 import org.bedework.calcore.AccessUtil;
 import org.bedework.calcore.AccessUtil.CollectionGetter;
+import org.bedework.calcore.CollectionSizes;
 import org.bedework.calcorei.CoreCalendarsI;
 import org.bedework.calcorei.HibSession;
 import org.bedework.calfacade.BwCalendar;
 import org.bedework.calfacade.BwCollectionLastmod;
+import org.bedework.calfacade.BwEvent;
 import org.bedework.calfacade.BwEventObj;
 import org.bedework.calfacade.BwPrincipal;
 import org.bedework.calfacade.BwStats;
 import org.bedework.calfacade.BwStats.CacheStats;
 import org.bedework.calfacade.CalFacadeDefs;
+import org.bedework.calfacade.CollectionSize;
 import org.bedework.calfacade.CollectionSynchInfo;
 import org.bedework.calfacade.base.BwLastMod;
 import org.bedework.calfacade.configs.BasicSystemProperties;
@@ -205,6 +208,10 @@ public class CoreCalendars extends CalintfHelperHib
 
   private CollectionCache colCache;
 
+  /* Changes to collection sizes made in this transaction */
+  private final CollectionSizes.Changes sizeChanges =
+          new CollectionSizes.Changes();
+
   /** Constructor
    *
    * @param chcb
@@ -235,6 +242,7 @@ public class CoreCalendars extends CalintfHelperHib
   @Override
   public void startTransaction() throws CalFacadeException {
     colCache.flush();  // Just in case
+    sizeChanges.clear();
   }
 
   /* (non-Javadoc)
@@ -243,6 +251,12 @@ public class CoreCalendars extends CalintfHelperHib
   @Override
   public void endTransaction() throws CalFacadeException {
     colCache.flush();
+
+    if (getSess().rolledback()) {
+      sizeChanges.clear();
+    } else {
+      sizeChanges.apply();
+    }
   }
 
   /* ====================================================================
@@ -254,6 +268,11 @@ public class CoreCalendars extends CalintfHelperHib
     colCache.flushAccess(this);
   }
 
+  private static final String getSynchInfoQuery =
+    "select lm.timestamp, lm.sequence from " +
+      BwCollectionLastmod.class.getName() +
+      " lm where path=:path";
+
   /* (non-Javadoc)
    * @see org.bedework.calcorei.CoreCalendarsI#getSynchInfo(java.lang.String, java.lang.String)
    */
@@ -262,12 +281,7 @@ public class CoreCalendars extends CalintfHelperHib
                                           final String token) throws CalFacadeException {
     HibSession sess = getSess();
 
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("select lm.timestamp, lm.sequence from ");
-    sb.append(BwCollectionLastmod.class.getName());
-    sb.append(" lm where path=:path");
-    sess.createQuery(sb.toString());
+    sess.createQuery(getSynchInfoQuery);
 
     sess.setString("path", path);
     sess.cacheableQuery();
@@ -644,6 +658,10 @@ public class CoreCalendars extends CalintfHelperHib
     touchCalendar(col);
   }
 
+  private static final String touchCalendarQuery =
+    "update " + BwCollectionLastmod.class.getName() +
+      " set timestamp=:timestamp, sequence=:sequence where path=:path";
+
   @Override
   public void touchCalendar(final BwCalendar col) throws CalFacadeException {
     // CALWRAPPER - if we're not cloning can we avoid this?
@@ -656,12 +674,7 @@ public class CoreCalendars extends CalintfHelperHib
 
     HibSession sess = getSess();
 
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("update ");
-    sb.append(BwCollectionLastmod.class.getName());
-    sb.append(" set timestamp=:timestamp, sequence=:sequence where path=:path");
-    sess.createQuery(sb.toString());
+    sess.createQuery(touchCalendarQuery);
 
     sess.setString("timestamp", lm.getTimestamp());
     sess.setInt("sequence", lm.getSequence());
@@ -714,7 +727,7 @@ public class CoreCalendars extends CalintfHelperHib
     ((CalendarWrapper)cal).clearCurrentAccess(); // force recheck
     colCache.put((CalendarWrapper)cal);
 
-    notify(SysEvent.SysCode.COLLECTION_UPDATED, cal);
+    notify(SysEvent.SysCode.COLLECTION_ACCESS_CHANGED, cal);
   }
 
   @Override
@@ -727,7 +740,7 @@ public class CoreCalendars extends CalintfHelperHib
 
     colCache.flush();
 
-    notify(SysEvent.SysCode.COLLECTION_UPDATED, cal);
+    notify(SysEvent.SysCode.COLLECTION_ACCESS_CHANGED, cal);
   }
 
   private static final String removeCalendarPrefForAllQuery =
@@ -794,10 +807,11 @@ public class CoreCalendars extends CalintfHelperHib
     }
 
     colCache.remove(path);
+    sizeChanges.invalidate(path);
     touchCalendar(parent);
 
     notify(SysEvent.SysCode.COLLECTION_DELETED, val);
-    getIndexer(val).unindexEntity(path);
+    getIndexer(val).unindexCollection(path);
 
     return true;
   }
@@ -1036,6 +1050,116 @@ public class CoreCalendars extends CalintfHelperHib
     return token;
   }
 
+  private static final String collectionSizeQuery =
+    "select count(*), sum(ev.byteSize) from " +
+      BwEventObj.class.getName() + " as ev " +
+      "where ev.colPath = :colPath and ev.tombstoned=false";
+
+  private static final String collectionEventsQuery =
+    "from " + BwEventObj.class.getName() + " as ev " +
+      "where ev.colPath = :colPath and ev.tombstoned=false " +
+      "order by ev.id";
+
+  /* Number of events fetched at a time when recalculating sizes */
+  private static final int resizeBatchSize = 100;
+
+  @Override
+  public CollectionSize getCollectionSize(final String path)
+          throws CalFacadeException {
+    final BwCalendar col = getCalendar(path, privAny, false);
+
+    if (col == null) {
+      return null;
+    }
+
+    CollectionSize sz = CollectionSizes.get(path);
+
+    if (sz != null) {
+      return sz;
+    }
+
+    /* Not loaded or due for a check - count them */
+
+    final boolean resize = CollectionSizes.needsResize(path);
+    CollectionSizes.Loading ld = null;
+
+    if (resize) {
+      resizeEvents(path);
+    } else {
+      ld = CollectionSizes.startLoad(path);
+    }
+
+    final HibSession sess = getSess();
+
+    sess.createQuery(collectionSizeQuery);
+    sess.setString("colPath", path);
+
+    final Object[] res = (Object[])sess.getUnique();
+
+    long count = 0;
+    long bytes = 0;
+
+    if (res != null) {
+      if (res[0] != null) {
+        count = ((Number)res[0]).longValue();
+      }
+
+      if (res[1] != null) {
+        bytes = ((Number)res[1]).longValue();
+      }
+    }
+
+    sz = new CollectionSize(path, count, bytes);
+
+    if (!resize) {
+      // Don't cache uncommitted sizes - we'll count again next time
+      CollectionSizes.set(sz, ld);
+    }
+
+    return sz;
+  }
+
+  /* Recalculate the stored size of each event in the collection. Those
+   * saved before the calculation changed would otherwise be summed
+   * with the new values.
+   */
+  private void resizeEvents(final String path) throws CalFacadeException {
+    final HibSession sess = getSess();
+    int start = 0;
+
+    for (;;) {
+      sess.createQuery(collectionEventsQuery);
+      sess.setString("colPath", path);
+      sess.setFirstResult(start);
+      sess.setMaxResults(resizeBatchSize);
+
+      @SuppressWarnings("unchecked")
+      final List<BwEvent> evs = sess.getList();
+
+      if (Util.isEmpty(evs)) {
+        break;
+      }
+
+      for (final BwEvent ev: evs) {
+        final int sz = ev.calculateByteSize();
+
+        if (sz != ev.getByteSize()) {
+          ev.setByteSize(sz);
+          sess.update(ev);
+        }
+      }
+
+      if (evs.size() < resizeBatchSize) {
+        break;
+      }
+
+      start += resizeBatchSize;
+    }
+
+    sess.flush();
+    sizeChanges.resized(path);
+  }
+
   /* ====================================================================
    *                  Admin support
    * ==================================================================== */
@@ -1377,6 +1501,9 @@ public class CoreCalendars extends CalintfHelperHib
     val.getLastmod().setPath(val.getPath());
     val.updateLastmod(getCurrentTimestamp());
 
+    sizeChanges.invalidate(oldHref);
+    sizeChanges.invalidate(val.getPath());
+
     notifyMove(SysEvent.SysCode.COLLECTION_MOVED,
                oldHref, val);
 
@@ -1467,7 +1594,7 @@ public class CoreCalendars extends CalintfHelperHib
                           final BwCalendar val) throws CalFacadeException {
     try {
       final boolean indexed = true;
-      getIndexer(val).unindexEntity(oldHref);
+      getIndexer(val).unindexCollection(oldHref);
       indexEntity(val);
 
       postNotification(
@@ -1484,12 +1611,29 @@ public class CoreCalendars extends CalintfHelperHib
     }
   }
 
+  // XXX tombstone-schema
+  private static final String getChildrenQuery =
+    "from " + BwCalendar.class.getName() +
+      " where colPath=:path" +
+      " and (filterExpr is null or filterExpr <> :tsfilter)";
+
+  // XXX tombstone-schema
+  private static final String getChildLastmodsQuery =
+    "select lm.path, lm.timestamp, lm.sequence from " +
+      BwCollectionLastmod.class.getName() + " lm, " +
+      BwCalendar.class.getName() +
+      " col where col.colPath=:path and lm.path=col.path" +
+      " and (col.filterExpr is null or col.filterExpr <> :tsfilter)";
+
+  private static final String getCollectionsByPathQuery =
+    "from " + BwCalendar.class.getName() +
+      " where path in (:paths)";
+
   /* No access checks performed */
   @SuppressWarnings("unchecked")
   private Collection<BwCalendar> getChildren(final BwCalendar col) throws CalFacadeException {
     final HibSession sess = getSess();
 
-    StringBuilder sb = new StringBuilder();
     final List<BwCalendar> ch;
     final List<BwCalendar> wch = new ArrayList<BwCalendar>();
 
@@ -1503,14 +1647,7 @@ public class CoreCalendars extends CalintfHelperHib
          we're just working our way down a tree. The 2 phase might be slower.
        */
 
-      sb.append("from ");
-      sb.append(BwCalendar.class.getName());
-      sb.append(" where colPath=:path");
-
-      // XXX tombstone-schema
-      sb.append(" and (filterExpr is null or filterExpr <> :tsfilter)");
-
-      sess.createQuery(sb.toString());
+      sess.createQuery(getChildrenQuery);
 
       sess.setString("path", col.getPath());
       sess.setString("tsfilter", BwCalendar.tombstonedFilter);
@@ -1521,16 +1658,7 @@ public class CoreCalendars extends CalintfHelperHib
        * got in the cache.
        */
 
-      sb.append("select lm.path, lm.timestamp, lm.sequence from ");
-      sb.append(BwCollectionLastmod.class.getName());
-      sb.append(" lm, ");
-      sb.append(BwCalendar.class.getName());
-      sb.append(" col where col.colPath=:path and lm.path=col.path");
-
-      // XXX tombstone-schema
-      sb.append(" and (col.filterExpr is null or col.filterExpr <> :tsfilter)");
-
-      sess.createQuery(sb.toString());
+      sess.createQuery(getChildLastmodsQuery);
 
       sess.setString("path", col.getPath());
       sess.setString("tsfilter", BwCalendar.tombstonedFilter);
@@ -1566,12 +1694,7 @@ public class CoreCalendars extends CalintfHelperHib
 
       /* paths lists those we couldn't find in the cache. */
 
-      sb = new StringBuilder();
-      sb.append("from ");
-      sb.append(BwCalendar.class.getName());
-      sb.append(" where path in (:paths)");
-
-      sess.createQuery(sb.toString());
+      sess.createQuery(getCollectionsByPathQuery);
 
       sess.setParameterList("paths", paths);
 
@@ -30,6 +30,7 @@ import org.bedework.calfacade.BwString;
 import org.bedework.calfacade.EventPropertiesReference;
 import org.bedework.calfacade.exc.CalFacadeException;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -222,6 +223,36 @@ public class CoreEventProperties <T extends BwEventProperty>
     return check((T)sess.getUnique());
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public Collection<T> get(final Collection<String> uids) throws CalFacadeException {
+    final Collection<T> res = new ArrayList<>();
+
+    if ((uids == null) || uids.isEmpty()) {
+      return res;
+    }
+
+    HibSession sess = getSess();
+
+    StringBuilder qstr = new StringBuilder("from ");
+    qstr.append(className);
+    qstr.append(" ent where uid in (:uids)");
+
+    sess.createQuery(qstr.toString());
+
+    sess.setParameterList("uids", uids);
+
+    for (final T ent: (List<T>)sess.getList()) {
+      final T checked = check(ent);
+
+      if (checked != null) {
+        res.add(checked);
+      }
+    }
+
+    return res;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public T find(final BwString val,
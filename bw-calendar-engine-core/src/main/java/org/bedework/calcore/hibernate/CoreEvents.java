@@ -20,6 +20,7 @@ package org.bedework.calcore.hibernate;
 
 import org.bedework.access.Acl.CurrentAccess;
 import org.bedework.calcore.AccessUtil;
+import org.bedework.calcore.CollectionSizes;
 import org.bedework.calcore.hibernate.EventQueryBuilder.EventsQueryResult;
 import org.bedework.calcorei.CoreEventInfo;
 import org.bedework.calcorei.CoreEventsI;
@@ -46,8 +47,8 @@ import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.filter.BwCollectionFilter;
 import org.bedework.calfacade.filter.SortTerm;
 import org.bedework.calfacade.ical.BwIcalPropertyInfo.BwIcalPropertyInfoEntry;
+import org.bedework.calfacade.indexing.BwIndexer.SearchResultIterator;
 import org.bedework.calfacade.indexing.SearchResult;
-import org.bedework.calfacade.indexing.SearchResultEntry;
 import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calfacade.util.ChangeTable;
 import org.bedework.calfacade.util.ChangeTableEntry;
@@ -74,6 +75,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /** Class to encapsulate most of what we do with events.
  *
@@ -198,6 +201,13 @@ import java.util.TreeSet;
  * @author Mike Douglass   douglm  - rpi.edu
  */
 public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
+  /* Number of hits fetched from the index at a time by getEvents */
+  private static final int eventsPageSize = 200;
+
+  /* Changes to collection sizes made in this transaction */
+  private final CollectionSizes.Changes sizeChanges =
+          new CollectionSizes.Changes();
+
   /** Constructor
    *
    * @param chcb
@@ -220,10 +230,16 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
    */
   @Override
   public void startTransaction() throws CalFacadeException {
+    sizeChanges.clear();
   }
 
   @Override
   public void endTransaction() throws CalFacadeException {
+    if (getSess().rolledback()) {
+      sizeChanges.clear();
+    } else {
+      sizeChanges.apply();
+    }
   }
 
   @Override
@@ -498,33 +514,74 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
                                     getAccessChecker(),
                                     recurRetrieval);
 
-    final List<SearchResultEntry> sres =
-            sr.getIndexer().getSearchResult(sr, 0, -1, desiredAccess);
+    /* Results are handled a page at a time as the iterator produces
+       them. Only the finished CoreEventInfo objects are kept - the
+       result is sorted and vavailability components are assembled from
+       all of them.
+     */
     final TreeSet<CoreEventInfo> ceis = new TreeSet<>();
+    final List<EventInfo> page = new ArrayList<>(eventsPageSize);
 
-    for (final SearchResultEntry sre: sres) {
-      final Object o = sre.getEntity();
+    try (SearchResultIterator it =
+                 sr.getIndexer().getSearchResultIterator(sr, eventsPageSize,
+                                                         desiredAccess,
+                                                         retrieveList)) {
+      while (it.hasNext()) {
+        final Object o = it.next().getEntity();
 
-      if (!(o instanceof EventInfo)) {
-        continue;
-      }
-
-      final EventInfo ei = (EventInfo)o;
-      final BwEvent ev = ei.getEvent();
-      restoreCategories(ev);
+        if (!(o instanceof EventInfo)) {
+          continue;
+        }
 
-      final CoreEventInfo cei = postGetEvent(ev, null, ei.getCurrentAccess());
+        page.add((EventInfo)o);
 
-      if (cei == null) {
-        continue;
+        if (page.size() >= eventsPageSize) {
+          postGetEvents(page, ceis);
+        }
+      }
+    } catch (final RuntimeException re) {
+      if (re.getCause() instanceof CalFacadeException) {
+        throw (CalFacadeException)re.getCause();
       }
 
-      ceis.add(cei);
+      throw re;
     }
 
+    postGetEvents(page, ceis);
+
     return buildVavail(ceis);
   }
 
+  /* Restore the categories for the page with one fetch then add the
+     accessible events to ceis. The page is emptied.
+   */
+  private void postGetEvents(final List<EventInfo> page,
+                             final Collection<CoreEventInfo> ceis)
+          throws CalFacadeException {
+    if (page.isEmpty()) {
+      return;
+    }
+
+    final List<BwEvent> evs = new ArrayList<>(page.size());
+
+    for (final EventInfo ei: page) {
+      evs.add(ei.getEvent());
+    }
+
+    restoreCategories(evs);
+
+    for (final EventInfo ei: page) {
+      final CoreEventInfo cei = postGetEvent(ei.getEvent(), null,
+                                             ei.getCurrentAccess());
+
+      if (cei != null) {
+        ceis.add(cei);
+      }
+    }
+
+    page.clear();
+  }
+
   @Override
   public UpdateEventResult addEvent(final EventInfo ei,
                                     final boolean scheduling,
@@ -591,6 +648,8 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
 
     setupDependentEntities(val);
 
+    val.setByteSize(val.calculateByteSize());
+
     /* Remove any tombstoned event in the collection with same uid */
     deleteTombstoned(val.getColPath(), val.getUid());
 
@@ -600,6 +659,10 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     if ((val instanceof BwEventAnnotation) || !val.getRecurring()) {
       sess.save(val);
 
+      if (!(val instanceof BwEventAnnotation)) {
+        sizeChanges.change(val.getColPath(), 1, val.getByteSize());
+      }
+
       if (!getForRestore()) {
         notify(SysEvent.SysCode.ENTITY_ADDED, val, shared);
       }
@@ -638,6 +701,7 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
 
     /* We can save the master at this point */
     sess.save(val);
+    sizeChanges.change(val.getColPath(), 1, val.getByteSize());
 
     String stzid = val.getDtstart().getTzid();
     TimeZone stz = null;
@@ -663,6 +727,9 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
 
     String firstRecurrenceId = null;
 
+    /* Saved together so the inserts can be batched */
+    final List<BwRecurrenceInstance> instances = new ArrayList<>();
+
     for (Period p: rp.instances) {
       String dtval = p.getStart().toString();
       if (dateOnly) {
@@ -717,7 +784,7 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
         }
       }
 
-      sess.save(ri);
+      instances.add(ri);
       maxInstances--;
       if (maxInstances == 0) {
         // That's all you're getting from me
@@ -725,6 +792,8 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
       }
     }
 
+    sess.saveAll(instances);
+
     if ((recurids != null) && (recurids.size() != 0)) {
       /* We removed all the valid overrides - we are left with those
        * with recurrence ids that don't match.
@@ -819,6 +888,10 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     }
 
     if (!(val instanceof BwEventProxy)) {
+      final int sz = val.calculateByteSize();
+      sizeChanges.change(val.getColPath(), 0, sz - val.getByteSize());
+      val.setByteSize(sz);
+
       sess.update(val);
 
       Collection<BwDbentity<?>> deleted = val.getDeletedEntities();
@@ -1043,6 +1116,8 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
 
       notifyDelete(reallyDelete, ev, shared);
 
+      sizeChanges.change(ev.getColPath(), -1, -ev.getByteSize());
+
       if (reallyDelete) {
         sess.delete(ev);
       } else {
@@ -1143,6 +1218,11 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     //sess.delete(sess.merge(deletee));
 
     notifyDelete(reallyDelete, ev, shared);
+
+    if (deletee == ev) {
+      sizeChanges.change(ev.getColPath(), -1, -ev.getByteSize());
+    }
+
     if (reallyDelete) {
       clearCollection(ev.getAttendees());
 
@@ -1165,6 +1245,9 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
                         final BwCalendar to) throws CalFacadeException {
     deleteTombstoned(to.getPath(), val.getUid());
 
+    sizeChanges.change(from.getPath(), -1, -val.getByteSize());
+    sizeChanges.change(to.getPath(), 1, val.getByteSize());
+
     val.setColPath(to.getPath());
 
     BwEvent tombstone = val.cloneTombstone();
@@ -1217,20 +1300,17 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     sess.update(val);
   }
 
+  private static final String deleteTombstonedEventQuery =
+    "delete from " + BwEventObj.class.getName() +
+      " ev where ev.tombstoned = true and " +
+      "ev.colPath = :path and " +
+      "ev.uid = :uid";
+
   private void deleteTombstoned(final String colPath,
                                 final String uid) throws CalFacadeException {
     HibSession sess = getSess();
 
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("delete from ");
-    sb.append(BwEventObj.class.getName());
-    sb.append(" ev where ev.tombstoned = true and ");
-
-    sb.append("ev.colPath = :path and ");
-    sb.append("ev.uid = :uid");
-
-    sess.createQuery(sb.toString());
+    sess.createQuery(deleteTombstonedEventQuery);
 
     sess.setString("path", colPath);
     sess.setString("uid", uid);
@@ -1332,6 +1412,9 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     return ids;
   }
 
+  private static final String eventByIdQuery =
+    "from " + BwEventObj.class.getName() + " ev where ev.id=:id";
+
   /** Get an event given the internal key. Returns null if event no longer
    * exists.
    *
@@ -1355,13 +1438,7 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
 
     PrivateInternalEventKey ikey = (PrivateInternalEventKey)key;
 
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("from ");
-    sb.append(BwEventObj.class.getName());
-    sb.append(" ev where ev.id=:id");
-
-    sess.createQuery(sb.toString());
+    sess.createQuery(eventByIdQuery);
     sess.setInt("id", ikey.key);
 
     BwEvent ev = (BwEvent)sess.getUnique();
@@ -1375,6 +1452,18 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     return new CoreEventInfo(ev, ca);
   }
 
+  private static final String synchEventsQuery =
+    "from " + BwEvent.class.getName() +
+      " ev where ev.colPath = :path and " +
+      // No deleted events for null sync-token
+      "ev.tombstoned = false";
+
+  private static final String synchEventsSinceQuery =
+    "from " + BwEvent.class.getName() +
+      " ev where ev.colPath = :path and " +
+      "ev.ctoken is not null and " + // XXX Only because we reused column
+      "ev.ctoken > :token";
+
   @Override
   public Set<CoreEventInfo> getSynchEvents(final String path,
                                            final String token) throws CalFacadeException {
@@ -1388,22 +1477,12 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     BwCalendar col = getCollection(path);
     access.checkAccess(col, privAny, false);
 
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("from ");
-    sb.append(BwEvent.class.getName());
-    sb.append(" ev where ev.colPath = :path and ");
-
     if (token != null) {
-      sb.append("ev.ctoken is not null and "); // XXX Only because we reused column
-      sb.append("ev.ctoken > :token");
+      sess.createQuery(synchEventsSinceQuery);
     } else {
-      // No deleted events for null sync-token
-      sb.append("ev.tombstoned = false");
+      sess.createQuery(synchEventsQuery);
     }
 
-    sess.createQuery(sb.toString());
-
     sess.setString("path", path);
 
     if (token != null) {
@@ -1432,6 +1511,13 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
    *                  Admin support
    * ==================================================================== */
 
+  private static final String childEntitiesQuery =
+    "select ev.name from " + BwEventObj.class.getName() +
+      " ev where ev.colPath=:colPath" +
+      // No deleted events
+      " and ev.tombstoned = false" +
+      " order by ev.created";
+
   /* (non-Javadoc)
    * @see org.bedework.calcorei.CoreEventsI#getChildEntities(java.lang.String, int, int)
    */
@@ -1442,14 +1528,7 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
                                              final int count) throws CalFacadeException {
     HibSession sess = getSess();
 
-    StringBuilder sb = new StringBuilder("select ev.name from ");
-    sb.append(BwEventObj.class.getName());
-    sb.append(" ev where ev.colPath=:colPath");
-    // No deleted events
-    sb.append(" and ev.tombstoned = false");
-    sb.append(" order by ev.created");
-
-    sess.createQuery(sb.toString());
+    sess.createQuery(childEntitiesQuery);
 
     sess.setString("colPath", parentPath);
 
@@ -2155,8 +2234,9 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
 
     /* updated only contains recurrence ids that don't exist */
 
+    sess.saveAll(updated.values());
+
     for (BwRecurrenceInstance ri: updated.values()) {
-      sess.save(ri);
       uc.addAdded(ri);
 
       notifyInstanceChange(SysEvent.SysCode.ENTITY_ADDED, val, shared,
@@ -2227,6 +2307,7 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
                             final boolean shared) throws CalFacadeException {
     HibSession sess = getSess();
     Dur dur = new Dur(master.getDuration());
+    final List<BwRecurrenceInstance> instances = new ArrayList<>();
 
     Iterator it = rids.iterator();
     while (it.hasNext()) {
@@ -2265,10 +2346,14 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
         }
       }
 
-      sess.save(ri);
+      instances.add(ri);
+    }
+
+    sess.saveAll(instances);
 
+    for (final BwRecurrenceInstance ri: instances) {
       notifyInstanceChange(SysEvent.SysCode.ENTITY_ADDED, master, shared,
-                           start.getDate());
+                           ri.getRecurrenceId());
 
       uc.addAdded(ri);
     }
@@ -2324,6 +2409,13 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     }
   }
 
+  /* The query text for each shape of eventQuery with no date range.
+   * Callers fetch by uid or master far more often than anything else so
+   * we only build each of these once.
+   */
+  private static final ConcurrentMap<String, String> eventQueries =
+          new ConcurrentHashMap<>();
+
   private void eventQuery(final Class cl,
                           final String colPath,
                           final String guid,
@@ -2332,21 +2424,76 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
                           final Boolean overrides,
                           final RecurringRetrievalMode recurRetrieval) throws CalFacadeException {
     HibSession sess = getSess();
-    EventQueryBuilder qb = new EventQueryBuilder();
-    final String qevName = "ev";
     BwDateTime startDate = null;
     BwDateTime endDate = null;
 
-    /* SEG:   from Events ev where */
-    qb.from();
-    qb.addClass(cl, qevName);
-    qb.where();
-
     if (recurRetrieval != null) {
       startDate = recurRetrieval.start;
       endDate = recurRetrieval.end;
     }
 
+    if ((startDate != null) || (endDate != null)) {
+      final EventQueryBuilder qb =
+              eventQueryBuilder(cl, colPath, rid, master, overrides,
+                                startDate, endDate);
+
+      qb.createQuery(sess);
+
+      qb.setDateTermValues(startDate, endDate);
+    } else {
+      final String shape = cl.getName() +
+              "|" + (colPath != null) +
+              "|" + (rid != null) +
+              "|" + (master != null) +
+              "|" + (overrides != null);
+
+      String q = eventQueries.get(shape);
+
+      if (q == null) {
+        q = eventQueryBuilder(cl, colPath, rid, master, overrides,
+                              null, null).toString();
+        eventQueries.put(shape, q);
+      }
+
+      sess.createQuery(q);
+    }
+
+    if (master != null) {
+      sess.setEntity("master", master);
+    } else {
+      if (colPath != null) {
+        sess.setString("colPath", colPath);
+      }
+      sess.setString("uid", guid);
+    }
+
+    if (overrides != null) {
+      sess.setBool("override", overrides);
+    }
+
+    //if (!masterOnly && (rid != null)) {
+    if (rid != null) {
+      sess.setString("rid", rid);
+    }
+
+    //debugMsg("Try query " + sb.toString());
+  }
+
+  private EventQueryBuilder eventQueryBuilder(final Class cl,
+                                              final String colPath,
+                                              final String rid,
+                                              final BwEvent master,
+                                              final Boolean overrides,
+                                              final BwDateTime startDate,
+                                              final BwDateTime endDate) {
+    EventQueryBuilder qb = new EventQueryBuilder();
+    final String qevName = "ev";
+
+    /* SEG:   from Events ev where */
+    qb.from();
+    qb.addClass(cl, qevName);
+    qb.where();
+
     /* SEG:   (<date-ranges>) and */
     if (qb.appendDateTerms(qevName, startDate, endDate, false, false)) {
       qb.and();
@@ -2374,29 +2521,7 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
       qb.append(" and ev.recurrenceId=:rid ");
     }
 
-    qb.createQuery(sess);
-
-    qb.setDateTermValues(startDate, endDate);
-
-    if (master != null) {
-      sess.setEntity("master", master);
-    } else {
-      if (colPath != null) {
-        sess.setString("colPath", colPath);
-      }
-      sess.setString("uid", guid);
-    }
-
-    if (overrides != null) {
-      sess.setBool("override", overrides);
-    }
-
-    //if (!masterOnly && (rid != null)) {
-    if (rid != null) {
-      sess.setString("rid", rid);
-    }
-
-    //debugMsg("Try query " + sb.toString());
+    return qb;
   }
 
   private CoreEventInfo makeOverrideProxy(BwEventAnnotation override,
@@ -2551,21 +2676,45 @@ public class CoreEvents extends CalintfHelperHib implements CoreEventsI {
     return outevs;
   }
 
-  private void restoreCategories(final CategorisedEntity ce) throws CalFacadeException {
-    Set<String> uids = ce.getCategoryUids();
-    if (Util.isEmpty(uids)) {
+  /* Resolve the categories for all the entities with a single fetch.
+     Entities referring to the same category share the object.
+   */
+  private void restoreCategories(final Collection<? extends CategorisedEntity> ces)
+          throws CalFacadeException {
+    final Set<String> uids = new TreeSet<>();
+
+    for (final CategorisedEntity ce: ces) {
+      if (!Util.isEmpty(ce.getCategoryUids())) {
+        uids.addAll(ce.getCategoryUids());
+      }
+    }
+
+    if (uids.isEmpty()) {
       return;
     }
 
-    for (final String uid: uids) {
-      BwCategory cat = cb.getCategory(uid);
+    final Map<String, BwCategory> cats = new HashMap<>();
 
-      if (cat == null) {
-        throw new CalFacadeException("Attempting to store null for cat uid "
-                                             + uid);
+    for (final BwCategory cat: cb.getCategories(uids)) {
+      cats.put(cat.getUid(), cat);
+    }
+
+    for (final CategorisedEntity ce: ces) {
+      final Set<String> ceUids = ce.getCategoryUids();
+      if (Util.isEmpty(ceUids)) {
+        continue;
       }
 
-      ce.addCategory(cat);
+      for (final String uid: ceUids) {
+        final BwCategory cat = cats.get(uid);
+
+        if (cat == null) {
+          throw new CalFacadeException("Attempting to store null for cat uid "
+                                               + uid);
+        }
+
+        ce.addCategory(cat);
+      }
     }
   }
 
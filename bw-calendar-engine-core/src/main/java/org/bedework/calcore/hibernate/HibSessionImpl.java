@@ -805,6 +805,28 @@ public class HibSessionImpl implements HibSession {
     }
   }
 
+  @Override
+  public void saveAll(final Collection<?> objs) throws CalFacadeException {
+    if (exc != null) {
+      // Didn't hear me last time?
+      throw new CalFacadeException(exc);
+    }
+
+    if (Util.isEmpty(objs)) {
+      return;
+    }
+
+    try {
+      for (final Object obj: objs) {
+        beforeSave(obj);
+        sess.save(obj);
+        deleteSubs(obj);
+      }
+    } catch (Throwable t) {
+      handleException(t);
+    }
+  }
+
   /* * Save a new object with the given id. This should only be used for
    * restoring the db from a save or for assigned keys.
    *
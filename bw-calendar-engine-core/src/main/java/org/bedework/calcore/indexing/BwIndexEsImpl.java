@@ -21,6 +21,7 @@ package org.bedework.calcore.indexing;
 import org.bedework.access.Acl;
 import org.bedework.calcore.indexing.DocBuilder.ItemKind;
 import org.bedework.calcore.indexing.DocBuilder.UpdateInfo;
+import org.bedework.calcore.indexing.IndexDocCache.Doc;
 import org.bedework.caldav.util.filter.FilterBase;
 import org.bedework.calfacade.BwCalendar;
 import org.bedework.calfacade.BwCategory;
@@ -41,6 +42,8 @@ import org.bedework.calfacade.configs.Configurations;
 import org.bedework.calfacade.configs.IndexProperties;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.filter.SortTerm;
+import org.bedework.calfacade.ical.BwIcalPropertyInfo;
+import org.bedework.calfacade.ical.BwIcalPropertyInfo.BwIcalPropertyInfoEntry;
 import org.bedework.calfacade.indexing.BwIndexer;
 import org.bedework.calfacade.indexing.SearchResult;
 import org.bedework.calfacade.indexing.SearchResultEntry;
@@ -90,6 +93,7 @@ import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.cluster.metadata.AliasMetaData;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -97,6 +101,7 @@ import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.get.GetResult;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.MatchQueryBuilder;
 import org.elasticsearch.index.query.MatchQueryBuilder.Operator;
@@ -109,18 +114,33 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.bedework.calcore.indexing.DocBuilder.DocInfo;
 
@@ -172,6 +192,9 @@ public class BwIndexEsImpl implements BwIndexer {
   private final BwPrincipal principal;
   private final boolean superUser;
 
+  /* Used when indexing to get the readers of entities */
+  private final AccessChecker indexAccessCheck;
+
   private final String host;
   private int port = 9300;
 
@@ -187,8 +210,64 @@ public class BwIndexEsImpl implements BwIndexer {
   private final IndexProperties idxpars;
   private final BasicSystemProperties basicSysprops;
 
+  /* Change token state for an index. Changes made in this jvm bump
+   * the local count at once and are added to the update tracker at
+   * transaction end. Concurrent transactions share a single tracker
+   * update. The tracker is reread every changeTokenRefresh millis to
+   * pick up changes made elsewhere.
+   */
+  private static class ChangeState {
+    /* From the tracker */
+    volatile String dtstamp;
+
+    final AtomicLong count;
+
+    /* Local changes not yet added to the tracker */
+    final AtomicLong unflushed = new AtomicLong();
+
+    final AtomicBoolean flushing = new AtomicBoolean();
+
+    /* When we last read the tracker */
+    volatile long refreshed;
+
+    ChangeState(final String dtstamp,
+                final long count) {
+      this.dtstamp = dtstamp;
+      this.count = new AtomicLong(count);
+      refreshed = System.currentTimeMillis();
+    }
+
+    String getChangeToken() {
+      return dtstamp + ";" + count.get();
+    }
+
+    /* The count never goes backwards */
+    void updateCount(final long val) {
+      while (true) {
+        final long cur = count.get();
+
+        if ((val <= cur) || count.compareAndSet(cur, val)) {
+          return;
+        }
+      }
+    }
+  }
+
   /* Indexed by index name */
-  private final static Map<String, UpdateInfo> updateInfo = new HashMap<>();
+  private final static ConcurrentMap<String, ChangeState> changeStates =
+          new ConcurrentHashMap<>();
+
+  private final static long changeTokenRefresh = 5 * 1000;
+
+  /* Collections, categories, contacts and locations also have a tracker
+   * of their own so caches of those are not flushed by every event change.
+   */
+  private final static String[] trackedTypes = {
+          docTypeCollection,
+          docTypeCategory,
+          docTypeContact,
+          docTypeLocation
+  };
 
   /* This is used for testng - we delay searches to give the indexer
    * time to catch up
@@ -205,6 +284,7 @@ public class BwIndexEsImpl implements BwIndexer {
    * @param superUser - true if the principal is a superuser.
    * @param currentMode - guest, user,publicAdmin
    * @param indexName - explicitly specified
+   * @param indexAccessCheck - to index the readers of entities - may be null
    * @throws CalFacadeException
    */
   public BwIndexEsImpl(final Configurations configs,
@@ -212,13 +292,15 @@ public class BwIndexEsImpl implements BwIndexer {
                        final BwPrincipal principal,
                        final boolean superUser,
                        final int currentMode,
-                       final String indexName) throws CalFacadeException {
+                       final String indexName,
+                       final AccessChecker indexAccessCheck) throws CalFacadeException {
     debug = getLog().isDebugEnabled();
 
     this.publick = publick;
     this.principal = principal;
     this.superUser = superUser;
     this.currentMode = currentMode;
+    this.indexAccessCheck = indexAccessCheck;
 
     idxpars = configs.getIndexProperties();
     authpars = configs.getAuthProperties(true);
@@ -262,10 +344,6 @@ public class BwIndexEsImpl implements BwIndexer {
       targetIndex = Util.buildPath(false, indexName);
       searchIndexes = new String[]{targetIndex};
     }
-
-    if (updateInfo.get(targetIndex) == null) {
-      // Need to get the info from the index
-    }
   }
 
   @Override
@@ -368,50 +446,265 @@ public class BwIndexEsImpl implements BwIndexer {
 
   @Override
   public void markTransaction() throws CalFacadeException {
-    final UpdateInfo ui = updateInfo.get(targetIndex);
-    if ((ui != null) && !ui.isUpdate()) {
+    flushChanges(null);
+
+    for (final String docType: trackedTypes) {
+      flushChanges(docType);
+    }
+  }
+
+  /* Add our changes to the tracker for the type - null for the
+   * index wide tracker.
+   */
+  private void flushChanges(final String docType) throws CalFacadeException {
+    final ChangeState cs = changeStates.get(stateKey(docType));
+
+    if (cs == null) {
+      return;
+    }
+
+    if (cs.unflushed.get() == 0) {
       return;
     }
 
-    final UpdateRequestBuilder urb =
-            getClient().prepareUpdate(targetIndex,
-                                      docTypeUpdateTracker,
-                                      updateTrackerId).
-                    setRetryOnConflict(20).
-                    setRefresh(true);
+    /* If another thread is flushing we leave our changes to it. It
+       looks at unflushed again after clearing the flag so anything
+       added while it was flushing is picked up.
+     */
+    while (cs.flushing.compareAndSet(false, true)) {
+      try {
+        final long changes = cs.unflushed.getAndSet(0);
+
+        if (changes != 0) {
+          updateTracker(cs, docType, changes);
+        }
+      } finally {
+        cs.flushing.set(false);
+      }
 
-    urb.setScript("ctx._source.count += 1",
-                  ScriptService.ScriptType.INLINE);
-    final UpdateResponse ur = urb.execute().actionGet();
+      if (cs.unflushed.get() == 0) {
+        return;
+      }
+    }
+  }
+
+  /* Add the changes to the tracker. On failure they are put back to be
+     flushed at the end of the next transaction.
+   */
+  private void updateTracker(final ChangeState cs,
+                             final String docType,
+                             final long changes) throws CalFacadeException {
+    try {
+      final UpdateRequestBuilder urb =
+              getClient().prepareUpdate(targetIndex,
+                                        docTypeUpdateTracker,
+                                        trackerId(docType)).
+                      setRetryOnConflict(20).
+                      setRefresh(true).
+                      setFields("count");
+
+      urb.setScript("ctx._source.count += changes",
+                    ScriptService.ScriptType.INLINE);
+      urb.addScriptParam("changes", changes);
+
+      if (docType != null) {
+        // Type trackers are created on first change
+        final Map<String, Object> upsert = new HashMap<>();
+        upsert.put("count", changes);
+
+        urb.setUpsert(upsert);
+      }
+
+      final UpdateResponse ur = urb.execute().actionGet();
+
+      final GetResult gres = ur.getGetResult();
+
+      if ((gres != null) && (gres.field("count") != null)) {
+        final Number n = (Number)gres.field("count").getValue();
+
+        cs.updateCount(n.longValue() + cs.unflushed.get());
+      }
+    } catch (final Throwable t) {
+      cs.unflushed.addAndGet(changes);
+      throw new CalFacadeException(t);
+    }
+  }
+
+  /* Days ahead covered by the warm up searches */
+  private static final int[] warmUpDays = {1, 7, 31};
+
+  @Override
+  public void warmUp() throws CalFacadeException {
+    final long start = System.currentTimeMillis();
+
+    final ESQueryFilter ef = getFilters(RecurringRetrievalMode.expanded);
+    final String dtstartRef =
+            ESQueryFilter.makePropertyRef(PropertyInfoIndex.DTSTART,
+                                          PropertyInfoIndex.UTC);
+
+    final Calendar cal = Calendar.getInstance();
+    final String today = DateTimeUtil.isoDate(cal.getTime());
+
+    try {
+      for (final int days: warmUpDays) {
+        cal.setTime(new Date(start));
+        cal.add(Calendar.DATE, days);
+
+        final FilterBuilder fb =
+                ef.addDateRangeFilter(null, today,
+                                      DateTimeUtil.isoDate(cal.getTime()));
+
+        final SearchRequestBuilder srb =
+                getClient().prepareSearch(targetIndex);
+
+        srb.setSearchType(SearchType.QUERY_THEN_FETCH)
+           .setPostFilter(fb)
+           .setFrom(0)
+           .setSize(10)
+           .addSort(new FieldSortBuilder(dtstartRef)
+                            .order(SortOrder.ASC));
+
+        final SearchResponse resp = srb.execute().actionGet();
+
+        if (debug) {
+          debug("Warm up " + days + " days: found " +
+                        resp.getHits().getTotalHits());
+        }
+      }
+
+      currentChangeToken();
+    } catch (final ElasticsearchException ese) {
+      throw new CalFacadeException(ese);
+    }
+
+    info("Warmed up index " + targetIndex + " in " +
+                 (System.currentTimeMillis() - start) + " millis");
   }
 
   @Override
   public String currentChangeToken() throws CalFacadeException {
+    return changeToken(null);
+  }
+
+  @Override
+  public String currentChangeToken(final String docType) throws CalFacadeException {
+    if (!isTrackedType(docType)) {
+      return changeToken(null);
+    }
+
+    return changeToken(docType);
+  }
+
+  private String changeToken(final String docType) throws CalFacadeException {
+    final ChangeState cs = changeStates.get(stateKey(docType));
+
+    if ((cs != null) &&
+            ((System.currentTimeMillis() - cs.refreshed) < changeTokenRefresh)) {
+      return cs.getChangeToken();
+    }
+
+    final ChangeState ncs = refreshChangeState(docType, cs);
+
+    if (ncs == null) {
+      return null;
+    }
+
+    return ncs.getChangeToken();
+  }
+
+  /* Read the update tracker for the type and update or create the state.
+   * Returns null if there is no index wide tracker.
+   */
+  private ChangeState refreshChangeState(final String docType,
+                                         final ChangeState cs) throws CalFacadeException {
     final GetRequestBuilder grb = getClient().prepareGet(targetIndex,
                                                          docTypeUpdateTracker,
-                                                         updateTrackerId).
+                                                         trackerId(docType)).
             setFields("count", "_timestamp");
 
     final GetResponse gr = grb.execute().actionGet();
 
-    if (!gr.isExists()) {
+    final String dtstamp;
+    final long count;
+
+    if (gr.isExists()) {
+      final EntityBuilder er = getEntityBuilder(gr.getFields());
+      final UpdateInfo ui = er.makeUpdateInfo();
+
+      dtstamp = ui.getDtstamp();
+      count = ui.getCount();
+    } else if (docType == null) {
       return null;
+    } else {
+      // No changes of this type recorded yet
+      dtstamp = null;
+      count = 0;
     }
 
-    final EntityBuilder er = getEntityBuilder(gr.getFields());
-    UpdateInfo ui = er.makeUpdateInfo();
+    if (cs != null) {
+      cs.dtstamp = dtstamp;
+      cs.updateCount(count + cs.unflushed.get());
+      cs.refreshed = System.currentTimeMillis();
 
-    synchronized (updateInfo) {
-      final UpdateInfo tui = updateInfo.get(targetIndex);
+      return cs;
+    }
 
-      if ((tui == null) || (tui.getCount() < ui.getCount())) {
-        updateInfo.put(targetIndex, ui);
-      } else {
-        ui = tui;
+    final ChangeState ncs = new ChangeState(dtstamp, count);
+    final ChangeState prev = changeStates.putIfAbsent(stateKey(docType),
+                                                      ncs);
+
+    if (prev != null) {
+      return prev;
+    }
+
+    return ncs;
+  }
+
+  private String stateKey(final String docType) {
+    if (docType == null) {
+      return targetIndex;
+    }
+
+    return targetIndex + "|" + docType;
+  }
+
+  private static String trackerId(final String docType) {
+    if (docType == null) {
+      return updateTrackerId;
+    }
+
+    return updateTrackerId + "-" + docType;
+  }
+
+  private static boolean isTrackedType(final String docType) {
+    for (final String type: trackedTypes) {
+      if (type.equals(docType)) {
+        return true;
       }
     }
 
-    return ui.getChangeToken();
+    return false;
+  }
+
+  /* The type with its own tracker for the entity or null */
+  private static String trackedType(final Object rec) {
+    if (rec instanceof BwCalendar) {
+      return docTypeCollection;
+    }
+
+    if (rec instanceof BwCategory) {
+      return docTypeCategory;
+    }
+
+    if (rec instanceof BwContact) {
+      return docTypeContact;
+    }
+
+    if (rec instanceof BwLocation) {
+      return docTypeLocation;
+    }
+
+    return null;
   }
 
   @Override
@@ -425,6 +718,49 @@ public class BwIndexEsImpl implements BwIndexer {
                              final int pageSize,
                              final AccessChecker accessCheck,
                              final RecurringRetrievalMode recurRetrieval) throws CalFacadeException {
+    final EsSearchResult res = initSearch(query, relevance, filter, sort,
+                                          defaultFilterContext,
+                                          start, end, pageSize,
+                                          accessCheck, recurRetrieval);
+
+    return searchDone(res, countRequest(res).execute().actionGet());
+  }
+
+  @Override
+  public Future<SearchResult> searchAsync(final String query,
+                                          final boolean relevance,
+                                          final FilterBase filter,
+                                          final List<SortTerm> sort,
+                                          final FilterBase defaultFilterContext,
+                                          final String start,
+                                          final String end,
+                                          final int pageSize,
+                                          final AccessChecker accessCheck,
+                                          final RecurringRetrievalMode recurRetrieval) throws CalFacadeException {
+    final EsSearchResult res = initSearch(query, relevance, filter, sort,
+                                          defaultFilterContext,
+                                          start, end, pageSize,
+                                          accessCheck, recurRetrieval);
+
+    return new EsFuture<SearchResult, SearchResponse>(
+            countRequest(res).execute()) {
+      @Override
+      SearchResult convert(final SearchResponse resp) {
+        return searchDone(res, resp);
+      }
+    };
+  }
+
+  private EsSearchResult initSearch(final String query,
+                                    final boolean relevance,
+                                    final FilterBase filter,
+                                    final List<SortTerm> sort,
+                                    final FilterBase defaultFilterContext,
+                                    final String start,
+                                    final String end,
+                                    final int pageSize,
+                                    final AccessChecker accessCheck,
+                                    final RecurringRetrievalMode recurRetrieval) throws CalFacadeException {
     if (basicSysprops.getTestMode()) {
       final long timeSinceIndex = System.currentTimeMillis() - lastIndexTime;
       final long waitTime = indexerDelay - timeSinceIndex;
@@ -473,6 +809,11 @@ public class BwIndexEsImpl implements BwIndexer {
 
     res.curSort = sort;
 
+    return res;
+  }
+
+  /* Count the hits - we fetch them a page at a time later */
+  private SearchRequestBuilder countRequest(final EsSearchResult res) throws CalFacadeException {
     final SearchRequestBuilder srb = getClient().prepareSearch(searchIndexes);
     if (res.curQuery != null) {
       srb.setQuery(res.curQuery);
@@ -483,29 +824,18 @@ public class BwIndexEsImpl implements BwIndexer {
             .setFrom(0)
             .setSize(0);
 
-    if (!Util.isEmpty(res.curSort)) {
-      SortOrder so;
-
-      for (final SortTerm st: res.curSort) {
-        if (st.isAscending()) {
-          so = SortOrder.ASC;
-        } else {
-          so = SortOrder.DESC;
-        }
-
-        srb.addSort(new FieldSortBuilder(
-                ESQueryFilter.makePropertyRef(st.getProperties()))
-                            .order(so));
-      }
-    }
+    addSort(srb, res.curSort);
 
     if (debug) {
       debug("Search: targetIndex=" + targetIndex +
                     "; srb=" + srb);
     }
 
-    final SearchResponse resp = srb.execute().actionGet();
+    return srb;
+  }
 
+  private SearchResult searchDone(final EsSearchResult res,
+                                  final SearchResponse resp) {
 //    if (resp.status() != RestStatus.OK) {
       //TODO
 //    }
@@ -551,15 +881,40 @@ public class BwIndexEsImpl implements BwIndexer {
                                                  final int num,
                                                  final int desiredAccess)
           throws CalFacadeException {
+    final EsSearchResult res = (EsSearchResult)sres;
+
+    return pageDone(res, num, desiredAccess,
+                    pageRequest(res, offset, num).execute().actionGet());
+  }
+
+  @Override
+  public Future<List<SearchResultEntry>> getSearchResultAsync(final SearchResult sres,
+                                                              final int offset,
+                                                              final int num,
+                                                              final int desiredAccess)
+          throws CalFacadeException {
+    final EsSearchResult res = (EsSearchResult)sres;
+
+    return new EsFuture<List<SearchResultEntry>, SearchResponse>(
+            pageRequest(res, offset, num).execute()) {
+      @Override
+      List<SearchResultEntry> convert(final SearchResponse resp)
+              throws CalFacadeException {
+        return pageDone(res, num, desiredAccess, resp);
+      }
+    };
+  }
+
+  private SearchRequestBuilder pageRequest(final EsSearchResult res,
+                                           final int offset,
+                                           final int num)
+          throws CalFacadeException {
     if (debug) {
       debug("offset: " + offset + ", num: " + num);
     }
 
-    final EsSearchResult res = (EsSearchResult)sres;
-
     res.pageStart = offset;
 
-    final List<SearchResultEntry> entities;
     final SearchRequestBuilder srb = getClient().prepareSearch(searchIndexes);
     if (res.curQuery != null) {
       srb.setQuery(res.curQuery);
@@ -570,35 +925,33 @@ public class BwIndexEsImpl implements BwIndexer {
             .setFrom(res.pageStart);
 
     if (num < 0) {
-      srb.setSize((int)sres.getFound());
-      entities = new ArrayList<>((int)sres.getFound());
+      srb.setSize((int)res.getFound());
     } else {
       srb.setSize(num);
-      entities = new ArrayList<>(num);
     }
 
-    if (!Util.isEmpty(res.curSort)) {
-      SortOrder so;
-
-      for (final SortTerm st: res.curSort) {
-        if (st.isAscending()) {
-          so = SortOrder.ASC;
-        } else {
-          so = SortOrder.DESC;
-        }
-
-        srb.addSort(new FieldSortBuilder(
-                ESQueryFilter.makePropertyRef(st.getProperties()))
-                            .order(so));
-      }
-    }
+    addSort(srb, res.curSort);
 
     if (res.requiresSecondaryFetch) {
       // Limit to href then fetch those
-      srb.addField(ESQueryFilter.hrefJname);
+      srb.addFields(ESQueryFilter.hrefJname, ctokenJname);
     }
 
-    final SearchResponse resp = srb.execute().actionGet();
+    return srb;
+  }
+
+  private List<SearchResultEntry> pageDone(final EsSearchResult res,
+                                           final int num,
+                                           final int desiredAccess,
+                                           final SearchResponse resp)
+          throws CalFacadeException {
+    final List<SearchResultEntry> entities;
+
+    if (num < 0) {
+      entities = new ArrayList<>((int)res.getFound());
+    } else {
+      entities = new ArrayList<>(num);
+    }
 
     if (resp.status() != RestStatus.OK) {
       if (debug) {
@@ -606,7 +959,7 @@ public class BwIndexEsImpl implements BwIndexer {
       }
     }
 
-    SearchHits hits = resp.getHits();
+    final SearchHits hits = resp.getHits();
 
     if ((hits.getHits() == null) ||
             (hits.getHits().length == 0)) {
@@ -618,90 +971,527 @@ public class BwIndexEsImpl implements BwIndexer {
       return entities;
     }
 
+    final Map<String, Collection<BwEventAnnotation>> overrides = new HashMap<>();
+    final Collection<EventInfo> masters = new TreeSet<>();
+
     if (res.requiresSecondaryFetch) {
-      hits = multiFetch(hits);
+      final List<Doc> docs = multiFetch(hits);
 
-      if (hits == null) {
+      if (docs == null) {
         return entities;
       }
+
+      for (final Doc doc: docs) {
+        res.pageStart++;
+
+        final SearchResultEntry sre = makeEntry(res, doc, desiredAccess,
+                                                overrides, masters, false);
+
+        if (sre != null) {
+          entities.add(sre);
+        }
+      }
+    } else {
+      for (final SearchHit hit : hits) {
+        res.pageStart++;
+
+        final SearchResultEntry sre = makeEntry(res, hit, desiredAccess,
+                                                overrides, masters, false);
+
+        if (sre != null) {
+          entities.add(sre);
+        }
+      }
     }
 
-    final Map<String, Collection<BwEventAnnotation>> overrides = new HashMap<>();
-    final Collection<EventInfo> masters = new TreeSet<>();
+    // Finish off the events
 
-    for (final SearchHit hit : hits) {
-      res.pageStart++;
-      final String dtype = hit.getType();
+    attachOverrides(masters, overrides);
 
-      if (dtype == null) {
-        throw new CalFacadeException("org.bedework.index.noitemtype");
+    return entities;
+  }
+
+  @Override
+  public SearchResultIterator getSearchResultIterator(
+          final SearchResult sres,
+          final int pageSize,
+          final int desiredAccess,
+          final List<BwIcalPropertyInfoEntry> retrieveList) throws CalFacadeException {
+    return new EsResultIterator((EsSearchResult)sres, pageSize,
+                                desiredAccess,
+                                sourceIncludes(retrieveList));
+  }
+
+  private static final String ctokenJname =
+          getJname(PropertyInfoIndex.CTOKEN);
+
+  @Override
+  public Map<String, Long> getCounts(final SearchResult sres,
+                                     final CountBy by,
+                                     final int maxTerms)
+          throws CalFacadeException {
+    final EsSearchResult res = (EsSearchResult)sres;
+    final String aggName = "counts";
+
+    final TermsBuilder tb = AggregationBuilders.terms(aggName);
+
+    switch (by) {
+      case category:
+        tb.field(ESQueryFilter.makePropertyRef(PropertyInfoIndex.CATEGORIES,
+                                               PropertyInfoIndex.UID));
+        break;
+      case location:
+        tb.field(getJname(PropertyInfoIndex.LOCATION_UID));
+        break;
+      case collection:
+        tb.field(getJname(PropertyInfoIndex.COLLECTION));
+        break;
+      case day:
+        tb.field(DocBuilder.startDayJname);
+        tb.order(Terms.Order.term(true));
+        break;
+    }
+
+    if (maxTerms > 0) {
+      tb.size(maxTerms);
+    } else {
+      tb.size(0); // all of them
+    }
+
+    /* Aggregations ignore the post filter - apply it to the query */
+    final QueryBuilder qb;
+
+    if (res.curQuery == null) {
+      qb = QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(),
+                                       res.curFilter);
+    } else {
+      qb = QueryBuilders.filteredQuery(res.curQuery, res.curFilter);
+    }
+
+    final SearchRequestBuilder srb = getClient().prepareSearch(searchIndexes);
+
+    srb.setSearchType(SearchType.COUNT)
+       .setQuery(qb)
+       .setSize(0)
+       .addAggregation(tb);
+
+    if (debug) {
+      debug("Counts: targetIndex=" + targetIndex +
+                    "; srb=" + srb);
+    }
+
+    try {
+      final SearchResponse resp = srb.execute().actionGet();
+
+      final Map<String, Long> counts = new LinkedHashMap<>();
+
+      if (resp.status() != RestStatus.OK) {
+        if (debug) {
+          debug("Search returned status " + resp.status());
+        }
+
+        return counts;
       }
 
-      final String kval = hit.getId();
+      if (resp.getAggregations() == null) {
+        return counts;
+      }
 
-      if (kval == null) {
-        throw new CalFacadeException("org.bedework.index.noitemkey");
+      final Terms terms = resp.getAggregations().get(aggName);
+
+      if (terms == null) {
+        return counts;
       }
 
-      final EntityBuilder eb = getEntityBuilder(hit.sourceAsMap());
+      for (final Terms.Bucket b: terms.getBuckets()) {
+        counts.put(b.getKey(), b.getDocCount());
+      }
 
-      Object entity = null;
-      switch (dtype) {
-        case docTypeCollection:
-          entity = eb.makeCollection();
-          break;
-        case docTypeCategory:
-          entity = eb.makeCat();
-          break;
-        case docTypeContact:
-          entity = eb.makeContact();
-          break;
-        case docTypeLocation:
-          entity = eb.makeLocation();
-          break;
-        case docTypeEvent: case docTypePoll:
-          entity = eb.makeEvent(
-                  res.recurRetrieval.mode == Rmode.expanded);
-          final EventInfo ei = (EventInfo)entity;
-          final BwEvent ev = ei.getEvent();
-
-          final Acl.CurrentAccess ca =
-                  res.accessCheck.checkAccess(ev,
-                                              desiredAccess,
-                                              true);
-
-          if ((ca == null) || !ca.getAccessAllowed()) {
-            continue;
-          }
+      return counts;
+    } catch (final ElasticsearchException ese) {
+      throw new CalFacadeException(ese);
+    }
+  }
+
+  /* Fields always fetched for a partial retrieval. These identify the
+   * entity, allow access checks and are needed to handle recurrences.
+   */
+  private static final PropertyInfoIndex[] requiredSourceFields = {
+          PropertyInfoIndex.HREF,
+          PropertyInfoIndex.NAME,
+          PropertyInfoIndex.UID,
+          PropertyInfoIndex.COLLECTION,
+          PropertyInfoIndex.CREATOR,
+          PropertyInfoIndex.OWNER,
+          PropertyInfoIndex.ACL,
+          PropertyInfoIndex.PUBLIC,
+          PropertyInfoIndex.ENTITY_TYPE,
+          PropertyInfoIndex.CTOKEN,
+          PropertyInfoIndex.DTSTAMP,
+          PropertyInfoIndex.LAST_MODIFIED,
+          PropertyInfoIndex.CREATED,
+          PropertyInfoIndex.SEQUENCE,
+          PropertyInfoIndex.SCHEDULE_TAG,
+          PropertyInfoIndex.RECURRING,
+          PropertyInfoIndex.RECURRENCE_ID,
+          PropertyInfoIndex.MASTER,
+          PropertyInfoIndex.OVERRIDE,
+          PropertyInfoIndex.INSTANCE,
+          PropertyInfoIndex.DTSTART,
+          PropertyInfoIndex.DTEND,
+          PropertyInfoIndex.DURATION,
+          PropertyInfoIndex.END_TYPE,
+          PropertyInfoIndex.NO_START,
+  };
+
+  /* Return the _source fields to fetch or null for everything */
+  private String[] sourceIncludes(final List<BwIcalPropertyInfoEntry> retrieveList) {
+    if (Util.isEmpty(retrieveList)) {
+      return null;
+    }
+
+    final Set<String> fields = new TreeSet<>();
+
+    for (final PropertyInfoIndex pi: requiredSourceFields) {
+      final String jname = getJname(pi);
+
+      if (jname != null) {
+        fields.add(jname);
+      }
+    }
+
+    for (final BwIcalPropertyInfoEntry ipie: retrieveList) {
+      if ((ipie == null) || (ipie.getJname() == null)) {
+        // Can't tell what's in the index - fetch it all
+        return null;
+      }
+
+      fields.add(ipie.getJname());
+    }
+
+    return fields.toArray(new String[fields.size()]);
+  }
+
+  /* Fetches the results a page at a time using a scroll. Entities are
+   * built as each page is consumed.
+   *
+   * Overrides may be in a later page than their master so recurring
+   * masters and overrides are held until the scroll is done.
+   */
+  private class EsResultIterator implements SearchResultIterator {
+    private final EsSearchResult res;
+    private final int desiredAccess;
+
+    /* Source fields to fetch - null for all */
+    private final String[] includes;
+
+    private String scrollId;
+    private boolean done;
+    private int tries;
+
+    private final LinkedList<SearchResultEntry> ready = new LinkedList<>();
+
+    private final Map<String, Collection<BwEventAnnotation>> overrides =
+            new HashMap<>();
+
+    /* Recurring masters waiting for overrides */
+    private final Collection<EventInfo> masters = new TreeSet<>();
+    private final List<SearchResultEntry> held = new ArrayList<>();
+
+    EsResultIterator(final EsSearchResult res,
+                     final int pageSize,
+                     final int desiredAccess,
+                     final String[] includes) throws CalFacadeException {
+      this.res = res;
+      this.desiredAccess = desiredAccess;
+      this.includes = includes;
+
+      res.pageStart = 0;
+
+      final SearchRequestBuilder srb =
+              getClient().prepareSearch(searchIndexes);
+      if (res.curQuery != null) {
+        srb.setQuery(res.curQuery);
+      }
+
+      srb.setSearchType(SearchType.QUERY_THEN_FETCH)
+         .setPostFilter(res.curFilter)
+         .setScroll(new TimeValue(60000))
+         .setSize(pageSize);
+
+      addSort(srb, res.curSort);
+
+      if (res.requiresSecondaryFetch) {
+        // Limit to href then fetch those
+        srb.addFields(ESQueryFilter.hrefJname, ctokenJname);
+      } else if (includes != null) {
+        srb.setFetchSource(includes, null);
+      }
+
+      if (debug) {
+        debug("Scroll search: srb=" + srb);
+      }
+
+      addPage(srb.execute().actionGet());
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (ready.isEmpty() && !done) {
+          nextPage();
+        }
+
+        return !ready.isEmpty();
+      } catch (final CalFacadeException cfe) {
+        throw new RuntimeException(cfe);
+      }
+    }
+
+    @Override
+    public SearchResultEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      return ready.removeFirst();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      done = true;
+      ready.clear();
+      held.clear();
+      masters.clear();
+      overrides.clear();
+
+      clearScroll();
+    }
+
+    private void nextPage() throws CalFacadeException {
+      if (tries > absoluteMaxTries) {
+        // huge count or we screwed up
+        warn("Indexer: too many tries");
+        finish();
+        return;
+      }
+
+      tries++;
+
+      addPage(getClient().prepareSearchScroll(scrollId)
+                      .setScroll(new TimeValue(60000))
+                      .execute().actionGet());
+    }
+
+    private void addPage(final SearchResponse resp) throws CalFacadeException {
+      if (resp.status() != RestStatus.OK) {
+        if (debug) {
+          debug("Search returned status " + resp.status());
+        }
+      }
+
+      scrollId = resp.getScrollId();
+
+      final SearchHits hits = resp.getHits();
+
+      //Break condition: No hits are returned
+      if ((hits.getHits() == null) ||
+              (hits.getHits().length == 0)) {
+        finish();
+        return;
+      }
+
+      final List<EventInfo> pageMasters = new ArrayList<>();
+
+      if (res.requiresSecondaryFetch) {
+        final List<Doc> docs = multiFetch(hits, includes);
+
+        if (docs == null) {
+          // Everything in the page was removed since the search
+          return;
+        }
+
+        for (final Doc doc: docs) {
+          res.pageStart++;
+
+          addEntry(makeEntry(res, doc, desiredAccess,
+                             overrides, pageMasters,
+                             includes != null));
+        }
+
+        return;
+      }
+
+      for (final SearchHit hit : hits) {
+        res.pageStart++;
+
+        addEntry(makeEntry(res, hit, desiredAccess,
+                           overrides, pageMasters,
+                           includes != null));
+      }
+    }
+
+    private void addEntry(final SearchResultEntry sre) {
+      if (sre == null) {
+        return;
+      }
+
+      if ((res.recurRetrieval.mode != Rmode.expanded) &&
+              (sre.getEntity() instanceof EventInfo)) {
+        final EventInfo ei = (EventInfo)sre.getEntity();
+
+        if (ei.getEvent().getRecurring()) {
+          masters.add(ei);
+          held.add(sre);
+          return;
+        }
+      }
+
+      ready.add(sre);
+    }
+
+    private void finish() {
+      done = true;
+
+      attachOverrides(masters, overrides);
+      ready.addAll(held);
+
+      held.clear();
+      masters.clear();
+      overrides.clear();
+
+      clearScroll();
+    }
+
+    private void clearScroll() {
+      if (scrollId == null) {
+        return;
+      }
+
+      try {
+        getClient().prepareClearScroll().addScrollId(scrollId)
+                .execute().actionGet();
+      } catch (final Throwable t) {
+        warn("Unable to clear scroll: " + t.getMessage());
+      }
+
+      scrollId = null;
+    }
+  }
+
+  /* Build the entry for a search hit. Returns null for entities we
+   * cannot access and for overrides, which are added to the overrides
+   * map. Events are added to masters.
+   */
+  private SearchResultEntry makeEntry(final EsSearchResult res,
+                                      final SearchHit hit,
+                                      final int desiredAccess,
+                                      final Map<String, Collection<BwEventAnnotation>> overrides,
+                                      final Collection<EventInfo> masters,
+                                      final boolean partial)
+          throws CalFacadeException {
+    final String dtype = hit.getType();
+
+    if (dtype == null) {
+      throw new CalFacadeException("org.bedework.index.noitemtype");
+    }
+
+    final String kval = hit.getId();
+
+    if (kval == null) {
+      throw new CalFacadeException("org.bedework.index.noitemkey");
+    }
+
+    return makeEntry(res, dtype,
+                     getEntityBuilder(hit.sourceAsMap(), partial),
+                     hit.getScore(),
+                     desiredAccess, overrides, masters);
+  }
 
-          ei.setCurrentAccess(ca);
+  /* As above for a document from a secondary fetch */
+  private SearchResultEntry makeEntry(final EsSearchResult res,
+                                      final Doc doc,
+                                      final int desiredAccess,
+                                      final Map<String, Collection<BwEventAnnotation>> overrides,
+                                      final Collection<EventInfo> masters,
+                                      final boolean partial)
+          throws CalFacadeException {
+    return makeEntry(res, doc.type,
+                     getEntityBuilder(doc.source, partial),
+                     doc.score,
+                     desiredAccess, overrides, masters);
+  }
+
+  private SearchResultEntry makeEntry(final EsSearchResult res,
+                                      final String dtype,
+                                      final EntityBuilder eb,
+                                      final float score,
+                                      final int desiredAccess,
+                                      final Map<String, Collection<BwEventAnnotation>> overrides,
+                                      final Collection<EventInfo> masters)
+          throws CalFacadeException {
+    Object entity = null;
+    switch (dtype) {
+      case docTypeCollection:
+        entity = eb.makeCollection();
+        break;
+      case docTypeCategory:
+        entity = eb.makeCat();
+        break;
+      case docTypeContact:
+        entity = eb.makeContact();
+        break;
+      case docTypeLocation:
+        entity = eb.makeLocation();
+        break;
+      case docTypeEvent: case docTypePoll:
+        entity = eb.makeEvent(
+                res.recurRetrieval.mode == Rmode.expanded);
+        final EventInfo ei = (EventInfo)entity;
+        final BwEvent ev = ei.getEvent();
+
+        final Acl.CurrentAccess ca =
+                res.accessCheck.checkAccess(ev,
+                                            desiredAccess,
+                                            true);
+
+        if ((ca == null) || !ca.getAccessAllowed()) {
+          return null;
+        }
 
-          if (ev instanceof BwEventAnnotation) {
-            // Treat as override
-            Collection<BwEventAnnotation> ov = overrides.get(
-                    ev.getHref());
+        ei.setCurrentAccess(ca);
 
-            if (ov == null) {
-              ov = new TreeSet<>();
+        if (ev instanceof BwEventAnnotation) {
+          // Treat as override
+          Collection<BwEventAnnotation> ov = overrides.get(
+                  ev.getHref());
 
-              overrides.put(ev.getHref(), ov);
-            }
+          if (ov == null) {
+            ov = new TreeSet<>();
 
-            ov.add((BwEventAnnotation)ev);
-            continue;
+            overrides.put(ev.getHref(), ov);
           }
 
-          masters.add(ei);
-          break;
-      }
+          ov.add((BwEventAnnotation)ev);
+          return null;
+        }
 
-      entities.add(new SearchResultEntry(entity,
-                                         dtype,
-                                         hit.getScore()));
+        masters.add(ei);
+        break;
     }
 
-    // Finish off the events
+    return new SearchResultEntry(entity,
+                                 dtype,
+                                 score);
+  }
 
+  private void attachOverrides(final Collection<EventInfo> masters,
+                               final Map<String, Collection<BwEventAnnotation>> overrides) {
     for (final EventInfo ei: masters) {
       final BwEvent ev = ei.getEvent();
 
@@ -721,8 +1511,27 @@ public class BwIndexEsImpl implements BwIndexer {
         }
       }
     }
+  }
 
-    return entities;
+  private void addSort(final SearchRequestBuilder srb,
+                       final List<SortTerm> sort) {
+    if (Util.isEmpty(sort)) {
+      return;
+    }
+
+    SortOrder so;
+
+    for (final SortTerm st: sort) {
+      if (st.isAscending()) {
+        so = SortOrder.ASC;
+      } else {
+        so = SortOrder.DESC;
+      }
+
+      srb.addSort(new FieldSortBuilder(
+              ESQueryFilter.makePropertyRef(st.getProperties()))
+                          .order(so));
+    }
   }
 
   @Override
@@ -757,7 +1566,7 @@ public class BwIndexEsImpl implements BwIndexer {
 
       // Unbatched
 
-      markUpdated();
+      markUpdated(trackedType(rec));
 
       final IndexResponse resp = index(rec);
 
@@ -781,27 +1590,95 @@ public class BwIndexEsImpl implements BwIndexer {
     }
   }
 
+  @Override
+  public Future<Void> indexEntityAsync(final Object rec) throws CalFacadeException {
+    if (rec instanceof EventInfo) {
+      // May take several requests - do it now
+      indexEntity(rec);
+      return EsFuture.completed(null);
+    }
+
+    try {
+      markUpdated(trackedType(rec));
+
+      final DocInfo di = makeDoc(rec);
+
+      return new EsFuture<Void, IndexResponse>(
+              indexRequest(di).execute()) {
+        @Override
+        Void convert(final IndexResponse resp) {
+          if (debug) {
+            debug("IndexResponse: index=" + resp.getIndex() +
+                          " id=" + resp.getId() +
+                          " type=" + resp.getType() +
+                          " version=" + resp.getVersion());
+          }
+
+          return null;
+        }
+
+        @Override
+        Void failed(final ExecutionException ee) throws ExecutionException {
+          if (!(ee.getCause() instanceof VersionConflictEngineException)) {
+            throw ee;
+          }
+
+          final VersionConflictEngineException vcee =
+                  (VersionConflictEngineException)ee.getCause();
+
+          if (vcee.getCurrentVersion() == vcee.getProvidedVersion()) {
+            warn("Failed index with equal version for type " + di.type +
+                         " and id " + di.id);
+          }
+
+          return null;
+        }
+      };
+    } finally {
+      lastIndexTime = System.currentTimeMillis();
+    }
+  }
+
   private void markUpdated() throws CalFacadeException {
-    UpdateInfo ui = updateInfo.get(targetIndex);
+    markUpdated(null);
+  }
 
-    if (ui == null) {
-      currentChangeToken();
+  /* Bump the index wide count and that for the type if it has one */
+  private void markUpdated(final String docType) throws CalFacadeException {
+    bumpCount(null);
+
+    if (docType != null) {
+      bumpCount(docType);
     }
+  }
 
-    ui = updateInfo.get(targetIndex);
+  private void bumpCount(final String docType) throws CalFacadeException {
+    ChangeState cs = changeStates.get(stateKey(docType));
+
+    if (cs == null) {
+      cs = refreshChangeState(docType, null);
+    }
 
-    if (ui == null) {
+    if (cs == null) {
       throw new CalFacadeException("Unable to set updateInfo");
     }
 
-    ui.setUpdate(true);
+    cs.count.incrementAndGet();
+    cs.unflushed.incrementAndGet();
   }
 
   @Override
   public void unindexEntity(final BwEventProperty val) throws CalFacadeException {
     unindexEntity(getDocBuilder().getHref(val));
 
-    markUpdated();
+    bumpCount(trackedType(val));
+  }
+
+  @Override
+  public void unindexCollection(final String href) throws CalFacadeException {
+    unindexEntity(href);
+
+    bumpCount(docTypeCollection);
   }
 
   @Override
@@ -814,6 +1691,8 @@ public class BwIndexEsImpl implements BwIndexer {
 
       /*final DeleteByQueryResponse resp = */dqrb.execute().actionGet();
 
+      IndexDocCache.invalidate(href);
+
       markUpdated();
 
       // TODO check response?
@@ -854,6 +1733,13 @@ public class BwIndexEsImpl implements BwIndexer {
 
       index(new UpdateInfo());
 
+      // Discard any cached state for the old index
+      changeStates.remove(stateKey(null));
+
+      for (final String docType: trackedTypes) {
+        changeStates.remove(stateKey(docType));
+      }
+
       info("Index created: change token set to " + currentChangeToken());
 
       return newName;
@@ -1039,6 +1925,57 @@ public class BwIndexEsImpl implements BwIndexer {
     return eb.makeLocation();
   }
 
+  @Override
+  public Future<BwCategory> fetchCatAsync(final String val,
+                                          final PropertyInfoIndex... index)
+          throws CalFacadeException {
+    return new EsFuture<BwCategory, EntityBuilder>(
+            fetchEntityAsync(docTypeCategory, val, index)) {
+      @Override
+      BwCategory convert(final EntityBuilder eb) throws CalFacadeException {
+        if (eb == null) {
+          return null;
+        }
+
+        return eb.makeCat();
+      }
+    };
+  }
+
+  @Override
+  public Future<BwContact> fetchContactAsync(final String val,
+                                             final PropertyInfoIndex... index)
+          throws CalFacadeException {
+    return new EsFuture<BwContact, EntityBuilder>(
+            fetchEntityAsync(docTypeContact, val, index)) {
+      @Override
+      BwContact convert(final EntityBuilder eb) throws CalFacadeException {
+        if (eb == null) {
+          return null;
+        }
+
+        return eb.makeContact();
+      }
+    };
+  }
+
+  @Override
+  public Future<BwLocation> fetchLocationAsync(final String val,
+                                               final PropertyInfoIndex... index)
+          throws CalFacadeException {
+    return new EsFuture<BwLocation, EntityBuilder>(
+            fetchEntityAsync(docTypeLocation, val, index)) {
+      @Override
+      BwLocation convert(final EntityBuilder eb) throws CalFacadeException {
+        if (eb == null) {
+          return null;
+        }
+
+        return eb.makeLocation();
+      }
+    };
+  }
+
   private static final int maxFetchCount = 100;
   private static final int absoluteMaxTries = 1000;
 
@@ -1082,10 +2019,22 @@ public class BwIndexEsImpl implements BwIndexer {
    *                   private methods
    * ======================================================================== */
 
-  private SearchHits multiFetch(final SearchHits hits) throws CalFacadeException {
-    // Make an ored filter from keys
+  private List<Doc> multiFetch(final SearchHits hits) throws CalFacadeException {
+    return multiFetch(hits, null);
+  }
 
-    final Set<String> hrefs = new TreeSet<>(); // Dedup
+  /* Fetch all the documents for the hrefs in the hits. includes are
+   * the source fields to fetch - null for all.
+   *
+   * When fetching everything the documents for each href are cached
+   * against the change token of the hit. Only those hrefs not in the
+   * cache are fetched from the index.
+   */
+  private List<Doc> multiFetch(final SearchHits hits,
+                               final String[] includes) throws CalFacadeException {
+    final Map<String, String> hrefs = new LinkedHashMap<>(); // Dedup
+    final Map<String, List<Doc>> found = new HashMap<>();
+    final String indexes = Arrays.toString(searchIndexes);
 
     for (final SearchHit hit : hits) {
       final String dtype = hit.getType();
@@ -1100,47 +2049,160 @@ public class BwIndexEsImpl implements BwIndexer {
         throw new CalFacadeException("org.bedework.index.noitemkey");
       }
 
-      final SearchHitField hrefField = hit.field(ESQueryFilter.hrefJname);
+      final String href = (String)hit.field(ESQueryFilter.hrefJname).getValue();
+
+      if (hrefs.containsKey(href)) {
+        continue;
+      }
+
+      final SearchHitField ctokenField = hit.field(ctokenJname);
+      final String ctoken;
+
+      if ((includes != null) || (ctokenField == null)) {
+        ctoken = null;
+      } else {
+        ctoken = (String)ctokenField.getValue();
+      }
+
+      hrefs.put(href, ctoken);
+
+      final List<Doc> cached = IndexDocCache.get(indexes, href, ctoken);
+
+      if (cached != null) {
+        found.put(href, cached);
+      }
+    }
+
+    if (found.size() < hrefs.size()) {
+      final Set<String> toFetch = new TreeSet<>(hrefs.keySet());
+      toFetch.removeAll(found.keySet());
+
+      final List<SearchHit> hits2 = fetchHrefs(toFetch, includes);
+
+      if (hits2 != null) {
+        final Map<String, List<Doc>> fetched = new HashMap<>();
+
+        for (final SearchHit hit: hits2) {
+          final Map<String, Object> source =
+                  hit.sourceAsMap();
+
+          final String href = getHref(source);
+
+          List<Doc> docs = fetched.get(href);
+
+          if (docs == null) {
+            docs = new ArrayList<>();
+            fetched.put(href, docs);
+          }
+
+          docs.add(new Doc(hit.getType(), hit.getId(), hit.getScore(),
+                           source));
+        }
+
+        for (final String href: fetched.keySet()) {
+          final List<Doc> docs = fetched.get(href);
+
+          IndexDocCache.put(indexes, href, hrefs.get(href), docs);
+          found.put(href, docs);
+        }
+      }
+    }
+
+    if (found.isEmpty()) {
+      return null;
+    }
 
+    /* Return in the order of the original hits */
+    final List<Doc> res = new ArrayList<>();
 
-      hrefs.add((String)hrefField.getValue());
+    for (final String href: hrefs.keySet()) {
+      final List<Doc> docs = found.get(href);
+
+      if (docs != null) {
+        res.addAll(docs);
+      }
     }
 
+    return res;
+  }
+
+  /* Fetch every document for the hrefs. A recurring event has a
+   * document for the master, each override and each instance so we
+   * page until we have all the hits. Throws if any request fails so
+   * we never cache or return a partial set. Null for no hits.
+   */
+  private List<SearchHit> fetchHrefs(final Set<String> hrefs,
+                                     final String[] includes) throws CalFacadeException {
+    // Make an ored filter from keys
+
     final SearchRequestBuilder srb = getClient().prepareSearch(searchIndexes);
 
     srb.setSearchType(SearchType.QUERY_THEN_FETCH)
             .setPostFilter(getFilters(null).multiHrefFilter(hrefs));
-    srb.setFrom(0);
-    srb.setSize(hrefs.size());
 
-    if (debug) {
-      debug("MultiFetch: targetIndex=" + targetIndex +
-                    "; srb=" + srb);
+    if (includes != null) {
+      srb.setFetchSource(includes, null);
     }
 
-    final SearchResponse resp = srb.execute().actionGet();
+    final int pageSize = Math.max(hrefs.size(), maxFetchCount);
+    final List<SearchHit> res = new ArrayList<>();
+
+    for (;;) {
+      srb.setFrom(res.size());
+      srb.setSize(pageSize);
 
-    if (resp.status() != RestStatus.OK) {
       if (debug) {
-        debug("Search returned status " + resp.status());
+        debug("MultiFetch: targetIndex=" + targetIndex +
+                      "; srb=" + srb);
       }
 
+      final SearchResponse resp = srb.execute().actionGet();
+
+      if (resp.status() != RestStatus.OK) {
+        throw new CalFacadeException("org.bedework.index.fetchfailed",
+                                     String.valueOf(resp.status()));
+      }
+
+      final SearchHits hits2 = resp.getHits();
+
+      //Break condition: No hits are returned
+      if ((hits2.getHits() == null) ||
+              (hits2.getHits().length == 0)) {
+        break;
+      }
+
+      res.addAll(Arrays.asList(hits2.getHits()));
+
+      if (res.size() >= hits2.getTotalHits()) {
+        break;
+      }
+    }
+
+    if (res.isEmpty()) {
       return null;
     }
 
-    final SearchHits hits2 = resp.getHits();
+    return res;
+  }
 
-    if ((hits2.getHits() == null) ||
-            (hits2.getHits().length == 0)) {
+  private static String getHref(final Map<String, Object> source) {
+    if (source == null) {
       return null;
     }
 
-    //Break condition: No hits are returned
-    if (hits2.hits().length == 0) {
-      return null;
+    final Object o = source.get(ESQueryFilter.hrefJname);
+
+    if (o instanceof List) {
+      final List l = (List)o;
+
+      if (l.isEmpty()) {
+        return null;
+      }
+
+      return (String)l.get(0);
     }
 
-    return hits2;
+    return (String)o;
   }
 
   private void deleteIndexes(final List<String> names) throws CalFacadeException {
@@ -1157,10 +2219,96 @@ public class BwIndexEsImpl implements BwIndexer {
     }
   }
 
+  @Override
+  public List<BwCategory> fetchCats(final Collection<String> uids)
+          throws CalFacadeException {
+    return fetchEntities(docTypeCategory, uids,
+                         new BuildEntity<BwCategory>() {
+                           @Override
+                           BwCategory make(final EntityBuilder eb)
+                                   throws CalFacadeException {
+                             return eb.makeCat();
+                           }
+                         });
+  }
+
+  @Override
+  public List<BwContact> fetchContacts(final Collection<String> uids)
+          throws CalFacadeException {
+    return fetchEntities(docTypeContact, uids,
+                         new BuildEntity<BwContact>() {
+                           @Override
+                           BwContact make(final EntityBuilder eb)
+                                   throws CalFacadeException {
+                             return eb.makeContact();
+                           }
+                         });
+  }
+
+  @Override
+  public List<BwLocation> fetchLocations(final Collection<String> uids)
+          throws CalFacadeException {
+    return fetchEntities(docTypeLocation, uids,
+                         new BuildEntity<BwLocation>() {
+                           @Override
+                           BwLocation make(final EntityBuilder eb)
+                                   throws CalFacadeException {
+                             return eb.makeLocation();
+                           }
+                         });
+  }
+
   private static abstract class BuildEntity<T> {
     abstract T make(EntityBuilder eb) throws CalFacadeException;
   }
 
+  /* Fetch entities by uid - up to maxFetchCount per request. If a uid
+     matches more than one entity we may miss some. Callers look those
+     up singly.
+   */
+  private <T> List<T> fetchEntities(final String docType,
+                                     final Collection<String> uids,
+                                     final BuildEntity<T> be) throws CalFacadeException {
+    final List<T> res = new ArrayList<>();
+
+    if (Util.isEmpty(uids)) {
+      return res;
+    }
+
+    final List<String> vals = new ArrayList<>(uids);
+
+    for (int i = 0; i < vals.size(); i += maxFetchCount) {
+      final List<String> batch =
+              vals.subList(i, Math.min(i + maxFetchCount, vals.size()));
+
+      final SearchRequestBuilder srb = getClient().prepareSearch(searchIndexes);
+
+      srb.setTypes(docType);
+
+      if (debug) {
+        debug("fetchEntities: " + batch.size() + " of type " + docType);
+      }
+
+      final SearchResponse resp =
+              srb.setSearchType(SearchType.QUERY_THEN_FETCH)
+                 .setPostFilter(getFilters(null).multiEntityFilter(
+                         docType, batch, PropertyInfoIndex.UID))
+                 .setFrom(0).setSize(batch.size()).execute().actionGet();
+
+      if (resp.status() != RestStatus.OK) {
+        if (debug) {
+          debug("Search returned status " + resp.status());
+        }
+      }
+
+      for (final SearchHit hit: resp.getHits()) {
+        res.add(be.make(getEntityBuilder(hit.sourceRef())));
+      }
+    }
+
+    return res;
+  }
+
   private <T> List<T> fetchAllEntities(final String docType,
                                        final BuildEntity<T> be) throws CalFacadeException {
     final SearchRequestBuilder srb = getClient().prepareSearch(targetIndex);
@@ -1212,7 +2360,7 @@ public class BwIndexEsImpl implements BwIndexer {
 
       for (final SearchHit hit : hits) {
         //Handle the hit...
-        final T ent = be.make(getEntityBuilder(hit.sourceAsMap()));
+        final T ent = be.make(getEntityBuilder(hit.sourceRef()));
         res.add(ent);
         //ourPos++;
       }
@@ -1227,31 +2375,79 @@ public class BwIndexEsImpl implements BwIndexer {
                                     final String val,
                                     final PropertyInfoIndex... index)
           throws CalFacadeException {
-    if ((index.length == 1) &&
-            (index[0] == PropertyInfoIndex.HREF)) {
-      final GetRequestBuilder grb = getClient().prepareGet(targetIndex,
-                                                           docType,
-                                                           val);
+    if (isHrefFetch(index)) {
+      return fetchDone(getRequest(docType, val).execute().actionGet());
+    }
 
-      final GetResponse gr = grb.execute().actionGet();
+    return fetchDone(docType, val,
+                     fetchRequest(docType, val, index).execute().actionGet(),
+                     index);
+  }
 
-      if (!gr.isExists()) {
-        return null;
+  /* As above but the response is handled when get is called */
+  private Future<EntityBuilder> fetchEntityAsync(final String docType,
+                                                 final String val,
+                                                 final PropertyInfoIndex... index)
+          throws CalFacadeException {
+    if (isHrefFetch(index)) {
+      return new EsFuture<EntityBuilder, GetResponse>(
+              getRequest(docType, val).execute()) {
+        @Override
+        EntityBuilder convert(final GetResponse resp)
+                throws CalFacadeException {
+          return fetchDone(resp);
+        }
+      };
+    }
+
+    return new EsFuture<EntityBuilder, SearchResponse>(
+            fetchRequest(docType, val, index).execute()) {
+      @Override
+      EntityBuilder convert(final SearchResponse resp)
+              throws CalFacadeException {
+        return fetchDone(docType, val, resp, index);
       }
+    };
+  }
+
+  private static boolean isHrefFetch(final PropertyInfoIndex... index) {
+    return (index.length == 1) &&
+            (index[0] == PropertyInfoIndex.HREF);
+  }
 
-      return getEntityBuilder(gr.getSourceAsMap());
+  private GetRequestBuilder getRequest(final String docType,
+                                       final String val)
+          throws CalFacadeException {
+    return getClient().prepareGet(targetIndex, docType, val);
+  }
+
+  private EntityBuilder fetchDone(final GetResponse gr)
+          throws CalFacadeException {
+    if (!gr.isExists()) {
+      return null;
     }
 
+    return getEntityBuilder(gr.getSourceAsMap());
+  }
+
+  private SearchRequestBuilder fetchRequest(final String docType,
+                                            final String val,
+                                            final PropertyInfoIndex... index)
+          throws CalFacadeException {
     final SearchRequestBuilder srb = getClient().prepareSearch(searchIndexes);
 
     srb.setTypes(docType);
 
-    final SearchResponse response = srb.setSearchType(SearchType.QUERY_THEN_FETCH)
+    return srb.setSearchType(SearchType.QUERY_THEN_FETCH)
             .setPostFilter(getFilters(null).singleEntityFilter(docType, val, index))
-            .setFrom(0).setSize(60).setExplain(true)
-            .execute()
-            .actionGet();
+            .setFrom(0).setSize(60).setExplain(true);
+  }
 
+  private EntityBuilder fetchDone(final String docType,
+                                  final String val,
+                                  final SearchResponse response,
+                                  final PropertyInfoIndex... index)
+          throws CalFacadeException {
     final SearchHits hits = response.getHits();
 
     //Break condition: No hits are returned
@@ -1319,35 +2515,9 @@ public class BwIndexEsImpl implements BwIndexer {
         return indexEvent((EventInfo)rec);
       }
 
-      final DocBuilder db = getDocBuilder();
-
-      if (rec instanceof UpdateInfo) {
-        di = db.makeDoc((UpdateInfo)rec);
-      }
-
-      if (rec instanceof BwCalendar) {
-        di = db.makeDoc((BwCalendar)rec);
-      }
-
-      if (rec instanceof BwCategory) {
-        di = db.makeDoc((BwCategory)rec);
-      }
-
-      if (rec instanceof BwContact) {
-        di = db.makeDoc((BwContact)rec);
-      }
-
-      if (rec instanceof BwLocation) {
-        di = db.makeDoc((BwLocation)rec);
-      }
-
-      if (di != null) {
-        return indexDoc(di);
-      }
+      di = makeDoc(rec);
 
-      throw new CalFacadeException(
-              new IndexException(IndexException.unknownRecordType,
-                                 rec.getClass().getName()));
+      return indexDoc(di);
     } catch (final CalFacadeException cfe) {
       throw cfe;
     } catch (final VersionConflictEngineException vcee) {
@@ -1362,6 +2532,35 @@ public class BwIndexEsImpl implements BwIndexer {
     }
   }
 
+  /* Make the document for anything other than an event */
+  private DocInfo makeDoc(final Object rec) throws CalFacadeException {
+    final DocBuilder db = getDocBuilder();
+
+    if (rec instanceof UpdateInfo) {
+      return db.makeDoc((UpdateInfo)rec);
+    }
+
+    if (rec instanceof BwCalendar) {
+      return db.makeDoc((BwCalendar)rec);
+    }
+
+    if (rec instanceof BwCategory) {
+      return db.makeDoc((BwCategory)rec);
+    }
+
+    if (rec instanceof BwContact) {
+      return db.makeDoc((BwContact)rec);
+    }
+
+    if (rec instanceof BwLocation) {
+      return db.makeDoc((BwLocation)rec);
+    }
+
+    throw new CalFacadeException(
+            new IndexException(IndexException.unknownRecordType,
+                               rec.getClass().getName()));
+  }
+
   private IndexResponse indexEvent(final EventInfo ei) throws CalFacadeException {
     try {
 
@@ -1369,6 +2568,8 @@ public class BwIndexEsImpl implements BwIndexer {
 
       final BwEvent ev = ei.getEvent();
 
+      IndexDocCache.invalidate(ev.getHref());
+
       if (!ev.testRecurring() && (ev.getRecurrenceId() == null)) {
         return indexEvent(ei,
                           ItemKind.master,
@@ -1598,6 +2799,10 @@ public class BwIndexEsImpl implements BwIndexer {
   }
 
   private IndexResponse indexDoc(final DocInfo di) throws Throwable {
+    return indexRequest(di).execute().actionGet();
+  }
+
+  private IndexRequestBuilder indexRequest(final DocInfo di) throws CalFacadeException {
     //batchCurSize++;
     final IndexRequestBuilder req = getClient().
             prepareIndex(targetIndex, di.type, di.id);
@@ -1613,7 +2818,7 @@ public class BwIndexEsImpl implements BwIndexer {
                     " with DocInfo " + di);
     }
 
-    return req.execute().actionGet();
+    return req;
   }
 
   private Client getClient() throws CalFacadeException {
@@ -1649,6 +2854,22 @@ public class BwIndexEsImpl implements BwIndexer {
           warn("*************************************************************");
         }
         settings.put("http.enabled", idxpars.getHttpEnabled());
+
+        /* Tuning */
+        if (idxpars.getRefreshInterval() != null) {
+          settings.put("index.refresh_interval",
+                       idxpars.getRefreshInterval());
+        }
+
+        if (idxpars.getBulkThreads() > 0) {
+          settings.put("threadpool.bulk.size", idxpars.getBulkThreads());
+        }
+
+        if (idxpars.getFieldDataLimit() != null) {
+          settings.put("indices.fielddata.cache.size",
+                       idxpars.getFieldDataLimit());
+        }
+
         final NodeBuilder nbld = NodeBuilder.nodeBuilder()
                 .settings(settings);
 
@@ -1757,9 +2978,30 @@ public class BwIndexEsImpl implements BwIndexer {
     return new EntityBuilder(fields);
   }
 
+  private EntityBuilder getEntityBuilder(final Map<String, ?> fields,
+                                         final boolean partial) throws CalFacadeException {
+    return new EntityBuilder(fields, partial);
+  }
+
+  /* Only for categories, contacts and locations - see EntityBuilder */
+  private EntityBuilder getEntityBuilder(final BytesReference source) {
+    return new EntityBuilder(source);
+  }
+
+  private static String getJname(final PropertyInfoIndex pi) {
+    final BwIcalPropertyInfoEntry ipie = BwIcalPropertyInfo.getPinfo(pi);
+
+    if (ipie == null) {
+      return null;
+    }
+
+    return ipie.getJname();
+  }
+
   private DocBuilder getDocBuilder() throws CalFacadeException {
     return new DocBuilder(principal,
-                          authpars, unauthpars, basicSysprops);
+                          authpars, unauthpars, basicSysprops,
+                          indexAccessCheck);
   }
 
   protected Logger getLog() {
@@ -22,6 +22,7 @@ import org.bedework.calfacade.BwPrincipal;
 import org.bedework.calfacade.configs.Configurations;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.indexing.BwIndexer;
+import org.bedework.calfacade.indexing.BwIndexer.AccessChecker;
 
 /** Create an instance of an indexer for bedework.
  *
@@ -38,16 +39,19 @@ public class BwIndexerFactory {
    *
    * @param configs
    * @param currentMode - guest, user,publicAdmin
+   * @param accessCheck - used to index the readers of entities
    * @return indexer
    * @throws CalFacadeException
    */
   public static BwIndexer getPublicIndexer(final Configurations configs,
-                                           final int currentMode) throws CalFacadeException {
+                                           final int currentMode,
+                                           final AccessChecker accessCheck) throws CalFacadeException {
     return new BwIndexEsImpl(configs, true,
                              null,    // principal
                              false,   // super user
                              currentMode,
-                             null); // No explicit name
+                             null, // No explicit name
+                             accessCheck);
   }
 
   /** Factory method to get current indexer
@@ -56,18 +60,21 @@ public class BwIndexerFactory {
    * @param principal - who we are searching for
    * @param superUser - true if the principal is a superuser.
    * @param currentMode - guest, user,publicAdmin
+   * @param accessCheck - used to index the readers of entities
    * @return indexer
    * @throws CalFacadeException
    */
   public static BwIndexer getIndexer(final Configurations configs,
                                      final BwPrincipal principal,
                                      final boolean superUser,
-                                     final int currentMode) throws CalFacadeException {
+                                     final int currentMode,
+                                     final AccessChecker accessCheck) throws CalFacadeException {
     return new BwIndexEsImpl(configs, false,
                              principal,
                              superUser,
                              currentMode,
-                             null); // No explicit name
+                             null, // No explicit name
+                             accessCheck);
   }
 
   /** Factory method allowing us to specify the system root. This should only
@@ -78,17 +85,20 @@ public class BwIndexerFactory {
    * @param principal
    * @param currentMode - guest, user,publicAdmin
    * @param indexRoot
+   * @param accessCheck - used to index the readers of entities
    * @return indexer
    * @throws CalFacadeException
    */
   public static BwIndexer getIndexer(final Configurations configs,
                                      final BwPrincipal principal,
                                      final int currentMode,
-                                     final String indexRoot) throws CalFacadeException {
+                                     final String indexRoot,
+                                     final AccessChecker accessCheck) throws CalFacadeException {
     return new BwIndexEsImpl(configs, true,
                              principal,
                              false,
                              currentMode,
-                             indexRoot); // Explicit name
+                             indexRoot, // Explicit name
+                             accessCheck);
   }
 }
@@ -42,6 +42,7 @@ import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.ical.BwIcalPropertyInfo;
 import org.bedework.calfacade.ical.BwIcalPropertyInfo.BwIcalPropertyInfoEntry;
 import org.bedework.calfacade.indexing.BwIndexer;
+import org.bedework.calfacade.indexing.BwIndexer.AccessChecker;
 import org.bedework.calfacade.indexing.IndexKeys;
 import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.util.calendar.IcalDefs;
@@ -50,17 +51,23 @@ import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 import org.bedework.util.misc.ToString;
 import org.bedework.util.misc.Util;
 
+import org.bedework.access.Ace;
+import org.bedework.access.AceWho;
+import org.bedework.access.Acl;
+import org.bedework.access.WhoDefs;
 import net.fortuna.ical4j.model.parameter.Related;
 import org.apache.log4j.Logger;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /** Build documents for ElasticSearch
  *
@@ -80,8 +87,33 @@ public class DocBuilder {
   private AuthProperties unauthpars;
   private BasicSystemProperties basicSysprops;
 
+  private AccessChecker accessCheck;
+
+  /* Readers for the last entity - saves merging the acl for every
+     instance of a recurring event */
+  private String lastReadersKey;
+  private Set<String> lastReaders;
+
   private IndexKeys keys = new IndexKeys();
 
+  /** Field holding the tokens for the principals who may be able to
+   * read the entity. This is a superset - denials are ignored - so
+   * searches still check the access of the results.
+   */
+  static final String readersJname = "readers";
+
+  /** Field holding the UTC date of the start - yyyyMMdd. Used to
+   * count events by day.
+   */
+  static final String startDayJname = "startDay";
+
+  /* Reader values for who types which are not a principal */
+  static final String readerAll = "#all";
+  static final String readerAuthenticated = "#authenticated";
+  static final String readerUnauthenticated = "#unauthenticated";
+
+  private static final char[] hexChars = "0123456789abcdef".toCharArray();
+
   static Map<String, String> interestingXprops = new HashMap<>();
 
   static {
@@ -111,17 +143,20 @@ public class DocBuilder {
    * @param authpars
    * @param unauthpars
    * @param basicSysprops
+   * @param accessCheck - to get the readers - null for none
    */
   DocBuilder(final BwPrincipal principal,
              final AuthProperties authpars,
              final AuthProperties unauthpars,
-             final BasicSystemProperties basicSysprops) throws CalFacadeException {
+             final BasicSystemProperties basicSysprops,
+             final AccessChecker accessCheck) throws CalFacadeException {
     debug = getLog().isDebugEnabled();
 
     this.principal = principal;
     this.authpars = authpars;
     this.unauthpars = unauthpars;
     this.basicSysprops = basicSysprops;
+    this.accessCheck = accessCheck;
 
     builder = newBuilder();
   }
@@ -148,9 +183,6 @@ public class DocBuilder {
     private String dtstamp;
     private Long count = 0l;
 
-    /* Set this true if we write something to the index */
-    private boolean update;
-
     UpdateInfo() {
     }
 
@@ -174,20 +206,6 @@ public class DocBuilder {
       return count;
     }
 
-    /**
-     * @param update true to indicate update occurred
-     */
-    public void setUpdate(final boolean update) {
-      this.update = update;
-    }
-
-    /**
-     * @return true to indicate update occurred
-     */
-    public boolean isUpdate() {
-      return update;
-    }
-
     /**
      * @return a change token for the index.
      */
@@ -584,6 +602,8 @@ public class DocBuilder {
         indexDate(PropertyInfoIndex.INDEX_END, end);
       }
 
+      indexStartDay(start);
+
       makeField(PropertyInfoIndex.NO_START,
                 String.valueOf(ev.getNoStart()));
       makeField(PropertyInfoIndex.END_TYPE,
@@ -660,6 +680,123 @@ public class DocBuilder {
     makeField(PropertyInfoIndex.COLLECTION, colPath);
     makeField(PropertyInfoIndex.ACL, ent.getAccess());
     makeField(PropertyInfoIndex.PUBLIC, ent.getPublick());
+
+    final Set<String> readers = getReaders(ent);
+
+    if (readers == null) {
+      return;
+    }
+
+    builder.startArray(readersJname);
+
+    for (final String reader: readers) {
+      builder.value(readerToken(reader));
+    }
+
+    builder.endArray();
+  }
+
+  /* Return the principals, groups and pseudo-principals which are
+     granted some access by the merged acl. Null if we can't tell - the
+     field is then left out and searches will not filter on it.
+   */
+  private Set<String> getReaders(final BwShareableContainedDbentity ent) {
+    if (accessCheck == null) {
+      return null;
+    }
+
+    final String key = ent.getColPath() + "\t" + ent.getOwnerHref() +
+            "\t" + ent.getAccess();
+
+    if (key.equals(lastReadersKey)) {
+      return lastReaders;
+    }
+
+    final Set<String> readers = new TreeSet<>();
+
+    try {
+      final char[] acl = accessCheck.getMergedAccess(ent);
+
+      if (acl == null) {
+        return null;
+      }
+
+      if (ent.getOwnerHref() != null) {
+        readers.add(ent.getOwnerHref());
+      }
+
+      for (final Ace ace: Acl.decode(acl).getAces()) {
+        final AceWho who = ace.getWho();
+
+        if (who.getNotWho()) {
+          readers.add(readerAll);
+          continue;
+        }
+
+        switch (who.getWhoType()) {
+          case WhoDefs.whoTypeOwner:
+            // Added above
+            break;
+
+          case WhoDefs.whoTypeUser:
+          case WhoDefs.whoTypeGroup:
+          case WhoDefs.whoTypeResource:
+          case WhoDefs.whoTypeVenue:
+            if (who.getWho() != null) {
+              readers.add(who.getWho());
+            }
+            break;
+
+          case WhoDefs.whoTypeAuthenticated:
+            readers.add(readerAuthenticated);
+            break;
+
+          case WhoDefs.whoTypeUnauthenticated:
+            readers.add(readerUnauthenticated);
+            break;
+
+          default:
+            // all, other, host, ticket
+            readers.add(readerAll);
+        }
+      }
+    } catch (final Throwable t) {
+      if (debug) {
+        debug("Unable to get readers for " + ent.getColPath() +
+                      ": " + t.getMessage());
+      }
+
+      return null;
+    }
+
+    lastReadersKey = key;
+    lastReaders = readers;
+
+    return readers;
+  }
+
+  /** The readers field is indexed as a hex digest of the value.
+   * Hrefs would otherwise be split up by an analyzed field.
+   *
+   * @param val principal href, account or one of the reader constants
+   * @return token for the readers field
+   */
+  static String readerToken(final String val) {
+    try {
+      final MessageDigest md = MessageDigest.getInstance("MD5");
+      final byte[] digest = md.digest(val.getBytes("UTF-8"));
+
+      final StringBuilder sb = new StringBuilder(digest.length * 2);
+
+      for (final byte b: digest) {
+        sb.append(hexChars[(b >> 4) & 0xf]);
+        sb.append(hexChars[b & 0xf]);
+      }
+
+      return sb.toString();
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
   }
 
   private void indexXprops(final XpropsEntity ent) throws CalFacadeException {
@@ -706,6 +843,11 @@ public class DocBuilder {
           continue;
         }
 
+        /* The saved icalendar text is large and never searched */
+        if (BwXproperty.bedeworkCanonicalIcal.equals(xp.getName())) {
+          continue;
+        }
+
         builder.startObject();
         makeField(PropertyInfoIndex.NAME, xp.getName());
 
@@ -1077,6 +1219,24 @@ public class DocBuilder {
     }
   }
 
+  private void indexStartDay(final BwDateTime dt) throws CalFacadeException {
+    try {
+      if (dt == null) {
+        return;
+      }
+
+      final String utc = dt.getDate();
+
+      if ((utc == null) || (utc.length() < 8)) {
+        return;
+      }
+
+      builder.field(startDayJname, utc.substring(0, 8));
+    } catch (IOException e) {
+      throw new CalFacadeException(e);
+    }
+  }
+
   private void indexBwStrings(final PropertyInfoIndex pi,
                               final Set<? extends BwStringBase> val) throws CalFacadeException {
     try {
@@ -30,6 +30,7 @@ import org.bedework.caldav.util.filter.PresenceFilter;
 import org.bedework.caldav.util.filter.PropertyFilter;
 import org.bedework.caldav.util.filter.TimeRangeFilter;
 import org.bedework.calfacade.BwCalendar;
+import org.bedework.calfacade.BwGroup;
 import org.bedework.calfacade.BwPrincipal;
 import org.bedework.calfacade.RecurringRetrievalMode;
 import org.bedework.calfacade.RecurringRetrievalMode.Rmode;
@@ -58,6 +59,7 @@ import org.elasticsearch.index.query.TermsFilterBuilder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -155,6 +157,13 @@ public class ESQueryFilter implements CalintfDefs {
                addTerm(makePropertyRef(index), val));
   }
 
+  public FilterBuilder multiEntityFilter(final String doctype,
+                                         final Collection<String> vals,
+                                         final PropertyInfoIndex... index) throws CalFacadeException {
+    return and(addTerm("_type", doctype),
+               FilterBuilders.termsFilter(makePropertyRef(index), vals));
+  }
+
   public FilterBuilder buildFilter(final FilterBase f) throws CalFacadeException {
     FilterBuilder fb = makeFilter(f);
 
@@ -189,6 +198,8 @@ public class ESQueryFilter implements CalintfDefs {
       }
     }
 
+    fb = readersFilter(fb);
+
     /* If the search is for expanded events we want instances or
        overrides or non-recurring masters only.
 
@@ -377,6 +388,65 @@ public class ESQueryFilter implements CalintfDefs {
                                                  principal.getPrincipalRef()));
   }
 
+  /** Limit the search to entities the current principal may be able
+   * to read. Entities indexed without readers are not excluded. The
+   * results still need an access check as the readers ignore denials.
+   *
+   * <p>A change to the acl of a collection is signalled with
+   * COLLECTION_ACCESS_CHANGED and the indexer then reindexes everything
+   * below it, so the readers may be briefly out of date.
+   *
+   * @param filter - may be null
+   * @return the filter with the readers limit
+   */
+  public FilterBuilder readersFilter(final FilterBuilder filter) {
+    if (superUser) {
+      return filter;
+    }
+
+    final boolean unauthenticated = (currentMode == guestMode) ||
+            ((principal != null) && principal.getUnauthenticated());
+
+    if ((principal == null) && !unauthenticated) {
+      // Don't know who it is - leave it to the access checks
+      return filter;
+    }
+
+    final Set<String> readers = new HashSet<>();
+
+    readers.add(DocBuilder.readerAll);
+
+    if (unauthenticated) {
+      readers.add(DocBuilder.readerUnauthenticated);
+    } else {
+      readers.add(DocBuilder.readerAuthenticated);
+
+      /* Acls may refer to principals by href or account */
+      readers.add(principal.getPrincipalRef());
+      readers.add(principal.getAccount());
+
+      for (final BwGroup grp: principal.getGroups()) {
+        readers.add(grp.getPrincipalRef());
+        readers.add(grp.getAccount());
+      }
+
+      readers.addAll(principal.getGroupNames());
+    }
+
+    readers.remove(null);
+
+    final List<String> tokens = new ArrayList<>(readers.size());
+
+    for (final String reader: readers) {
+      tokens.add(DocBuilder.readerToken(reader));
+    }
+
+    return and(filter,
+               or(FilterBuilders.missingFilter(DocBuilder.readersJname),
+                  FilterBuilders.termsFilter(DocBuilder.readersJname,
+                                             tokens)));
+  }
+
   /**
    *
    * @param pi
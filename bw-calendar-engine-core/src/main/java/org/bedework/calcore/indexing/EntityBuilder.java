@@ -29,6 +29,7 @@ import org.bedework.calfacade.BwDateTime;
 import org.bedework.calfacade.BwEvent;
 import org.bedework.calfacade.BwEventAnnotation;
 import org.bedework.calfacade.BwEventObj;
+import org.bedework.calfacade.BwEventProperty;
 import org.bedework.calfacade.BwGeo;
 import org.bedework.calfacade.BwLocation;
 import org.bedework.calfacade.BwLongString;
@@ -51,8 +52,12 @@ import org.bedework.util.misc.Util;
 
 import net.fortuna.ical4j.model.property.RequestStatus;
 import org.apache.log4j.Logger;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.get.GetField;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -77,17 +82,52 @@ public class EntityBuilder  {
 
   private final Deque<Map<String, Object>> fieldStack = new ArrayDeque<>();
 
+  /* True if the fields are a subset of those indexed */
+  private final boolean partial;
+
+  /* Unparsed source of the document - set when the entity is built
+     directly from the source.
+   */
+  private final BytesReference source;
+
   /** Constructor - 1 use per entity
    *
    * @param fields map of fields from index
    * @throws CalFacadeException
    */
   EntityBuilder(final Map<String, ?> fields) throws CalFacadeException {
+    this(fields, false);
+  }
+
+  /** Constructor - 1 use per entity
+   *
+   * @param fields map of fields from index
+   * @param partial true if only some of the indexed fields were fetched.
+   *                Missing properties are left unset and events are
+   *                flagged as partial.
+   * @throws CalFacadeException
+   */
+  EntityBuilder(final Map<String, ?> fields,
+                final boolean partial) throws CalFacadeException {
     debug = getLog().isDebugEnabled();
+    this.partial = partial;
+    source = null;
 
     pushFields(fields);
   }
 
+  /** Constructor - 1 use per entity. The entity is built as the source
+   * is parsed so no map of the fields is created. Only categories,
+   * contacts and locations can be built this way.
+   *
+   * @param source of document from index
+   */
+  EntityBuilder(final BytesReference source) {
+    debug = getLog().isDebugEnabled();
+    partial = false;
+    this.source = source;
+  }
+
   /* ========================================================================
    *                   package private methods
    * ======================================================================== */
@@ -105,6 +145,11 @@ public class EntityBuilder  {
   BwCategory makeCat() throws CalFacadeException {
     final BwCategory cat = new BwCategory();
 
+    if (source != null) {
+      parseSource(cat);
+      return cat;
+    }
+
     restoreSharedEntity(cat);
 
     cat.setName(getString(PropertyInfoIndex.NAME));
@@ -121,6 +166,11 @@ public class EntityBuilder  {
   BwContact makeContact() throws CalFacadeException {
     final BwContact ent = new BwContact();
 
+    if (source != null) {
+      parseSource(ent);
+      return ent;
+    }
+
     restoreSharedEntity(ent);
 
     ent.setUid(getString(PropertyInfoIndex.UID));
@@ -137,6 +187,11 @@ public class EntityBuilder  {
   BwLocation makeLocation() throws CalFacadeException {
     final BwLocation ent = new BwLocation();
 
+    if (source != null) {
+      parseSource(ent);
+      return ent;
+    }
+
     restoreSharedEntity(ent);
 
     ent.setUid(getString(PropertyInfoIndex.UID));
@@ -193,6 +248,8 @@ public class EntityBuilder  {
 
     final EventInfo ei = new  EventInfo(ev);
 
+    ei.setPartial(partial);
+
     /*
     Float score = (Float)sd.getFirstValue("score");
 
@@ -819,6 +876,186 @@ public class EntityBuilder  {
     return getFirstValue(id.getJname());
   }
 
+  /* ========================================================================
+   *                   Building directly from the source
+   * ======================================================================== */
+
+  private static final String creatorJname =
+          getJname(PropertyInfoIndex.CREATOR);
+  private static final String ownerJname =
+          getJname(PropertyInfoIndex.OWNER);
+  private static final String collectionJname =
+          getJname(PropertyInfoIndex.COLLECTION);
+  private static final String aclJname =
+          getJname(PropertyInfoIndex.ACL);
+  private static final String publicJname =
+          getJname(PropertyInfoIndex.PUBLIC);
+  private static final String nameJname =
+          getJname(PropertyInfoIndex.NAME);
+  private static final String uidJname =
+          getJname(PropertyInfoIndex.UID);
+  private static final String categoriesJname =
+          getJname(PropertyInfoIndex.CATEGORIES);
+  private static final String descriptionJname =
+          getJname(PropertyInfoIndex.DESCRIPTION);
+  private static final String cnJname =
+          getJname(PropertyInfoIndex.CN);
+  private static final String phoneJname =
+          getJname(PropertyInfoIndex.PHONE);
+  private static final String emailJname =
+          getJname(PropertyInfoIndex.EMAIL);
+  private static final String urlJname =
+          getJname(PropertyInfoIndex.URL);
+  private static final String addressJname =
+          getJname(PropertyInfoIndex.ADDRESS);
+  private static final String subaddressJname =
+          getJname(PropertyInfoIndex.SUBADDRESS);
+  private static final String langJname =
+          getJname(PropertyInfoIndex.LANG);
+  private static final String valueJname =
+          getJname(PropertyInfoIndex.VALUE);
+
+  /* Set the properties of the entity from the source as each field is
+     parsed. Fields we don't restore, e.g. the href and readers, are
+     skipped.
+   */
+  private void parseSource(final BwEventProperty ent) throws CalFacadeException {
+    if (source == null) {
+      return;
+    }
+
+    XContentParser parser = null;
+
+    try {
+      parser = XContentHelper.createParser(source);
+
+      if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+        throw new CalFacadeException(CalFacadeException.illegalObjectClass);
+      }
+
+      ent.setPublick(false);
+
+      while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+        final String name = parser.currentName();
+        final XContentParser.Token token = parser.nextToken();
+
+        switch (token) {
+          case START_OBJECT:
+            restoreField(ent, name, parseBwString(parser));
+            break;
+
+          case START_ARRAY:
+            parser.skipChildren();
+            break;
+
+          case VALUE_NULL:
+            break;
+
+          default:
+            restoreField(ent, name, parser.text());
+        }
+      }
+    } catch (final CalFacadeException cfe) {
+      throw cfe;
+    } catch (final Throwable t) {
+      throw new CalFacadeException(t);
+    } finally {
+      if (parser != null) {
+        parser.close();
+      }
+    }
+  }
+
+  private static BwString parseBwString(final XContentParser parser)
+          throws IOException {
+    final BwString val = new BwString();
+
+    while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+      final String name = parser.currentName();
+      final XContentParser.Token token = parser.nextToken();
+
+      if ((token == XContentParser.Token.START_OBJECT) ||
+              (token == XContentParser.Token.START_ARRAY)) {
+        parser.skipChildren();
+        continue;
+      }
+
+      if (token == XContentParser.Token.VALUE_NULL) {
+        continue;
+      }
+
+      if (name.equals(langJname)) {
+        val.setLang(parser.text());
+      } else if (name.equals(valueJname)) {
+        val.setValue(parser.text());
+      }
+    }
+
+    return val;
+  }
+
+  private static void restoreField(final BwEventProperty ent,
+                                   final String name,
+                                   final String val) {
+    if (name.equals(creatorJname)) {
+      ent.setCreatorHref(val);
+    } else if (name.equals(ownerJname)) {
+      ent.setOwnerHref(val);
+    } else if (name.equals(collectionJname)) {
+      ent.setColPath(val);
+    } else if (name.equals(aclJname)) {
+      ent.setAccess(val);
+    } else if (name.equals(publicJname)) {
+      ent.setPublick(Boolean.valueOf(val));
+    } else if (name.equals(uidJname)) {
+      ent.setUid(val);
+    } else if (ent instanceof BwCategory) {
+      if (name.equals(nameJname)) {
+        ((BwCategory)ent).setName(val);
+      }
+    } else if (ent instanceof BwContact) {
+      final BwContact ct = (BwContact)ent;
+
+      if (name.equals(phoneJname)) {
+        ct.setPhone(val);
+      } else if (name.equals(emailJname)) {
+        ct.setEmail(val);
+      } else if (name.equals(urlJname)) {
+        ct.setLink(val);
+      }
+    } else if (ent instanceof BwLocation) {
+      if (name.equals(urlJname)) {
+        ((BwLocation)ent).setLink(val);
+      }
+    }
+  }
+
+  private static void restoreField(final BwEventProperty ent,
+                                   final String name,
+                                   final BwString val) {
+    if (ent instanceof BwCategory) {
+      final BwCategory cat = (BwCategory)ent;
+
+      if (name.equals(categoriesJname)) {
+        cat.setWord(val);
+      } else if (name.equals(descriptionJname)) {
+        cat.setDescription(val);
+      }
+    } else if (ent instanceof BwContact) {
+      if (name.equals(cnJname)) {
+        ((BwContact)ent).setCn(val);
+      }
+    } else if (ent instanceof BwLocation) {
+      final BwLocation loc = (BwLocation)ent;
+
+      if (name.equals(addressJname)) {
+        loc.setAddress(val);
+      } else if (name.equals(subaddressJname)) {
+        loc.setSubaddress(val);
+      }
+    }
+  }
+
   private static String getJname(final PropertyInfoIndex pi) {
     final BwIcalPropertyInfoEntry ipie = BwIcalPropertyInfo.getPinfo(pi);
 
@@ -0,0 +1,320 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calcore.indexing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** A jvm wide cache of the indexed documents for an event href - the
+ * master, overrides and any instances. Entries hold the parsed source
+ * and are validated against the change token of the event so a
+ * changed event will never match a stale entry.
+ *
+ * <p>We cache the source rather than the built EventInfo as callers
+ * modify the events they are given. Each retrieval builds new objects
+ * and gets its own copy of the source. The same href may be in more
+ * than one index so the names of the indexes searched are part of the
+ * key.
+ *
+ * <p>Entries are dropped when the href is indexed or unindexed and
+ * when we post an update or delete system event for it.
+ */
+public class IndexDocCache {
+  /** Default maximum number of hrefs cached */
+  static final int defaultMaxEntries = 2000;
+
+  private static int maxEntries = defaultMaxEntries;
+
+  private static long hits;
+  private static long misses;
+
+  private static final Object lock = new Object();
+
+  /** A document from the index
+   */
+  static class Doc {
+    final String type;
+    final String id;
+    final float score;
+    final Map<String, Object> source;
+
+    Doc(final String type,
+        final String id,
+        final float score,
+        final Map<String, Object> source) {
+      this.type = type;
+      this.id = id;
+      this.score = score;
+      this.source = source;
+    }
+  }
+
+  private static class Key {
+    final String indexes;
+    final String href;
+
+    Key(final String indexes,
+        final String href) {
+      this.indexes = indexes;
+      this.href = href;
+    }
+
+    @Override
+    public int hashCode() {
+      return indexes.hashCode() * 31 + href.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key that = (Key)o;
+
+      return indexes.equals(that.indexes) && href.equals(that.href);
+    }
+  }
+
+  private static class Entry {
+    final String ctoken;
+    final List<Doc> docs;
+
+    Entry(final String ctoken,
+          final List<Doc> docs) {
+      this.ctoken = ctoken;
+      this.docs = docs;
+    }
+  }
+
+  private static final LinkedHashMap<Key, Entry> cache =
+          new LinkedHashMap<Key, Entry>(1000,
+                                        0.75f,
+                                        true) { // access order
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<Key, Entry> eldest) {
+              if (size() <= maxEntries) {
+                return false;
+              }
+
+              removeHrefKey(eldest.getKey());
+              return true;
+            }
+          };
+
+  /* The keys for each href so we can invalidate across indexes */
+  private static final Map<String, Set<Key>> hrefKeys = new HashMap<>();
+
+  /**
+   * @param indexes names of the indexes searched
+   * @param href of event
+   * @param ctoken current change token of event
+   * @return copies of the cached documents or null
+   */
+  static List<Doc> get(final String indexes,
+                       final String href,
+                       final String ctoken) {
+    if ((indexes == null) || (href == null) || (ctoken == null)) {
+      return null;
+    }
+
+    final Entry ent;
+
+    synchronized (lock) {
+      ent = cache.get(new Key(indexes, href));
+
+      if ((ent == null) || !ent.ctoken.equals(ctoken)) {
+        misses++;
+        return null;
+      }
+
+      hits++;
+    }
+
+    return copy(ent.docs);
+  }
+
+  /**
+   * @param indexes names of the indexes searched
+   * @param href of event
+   * @param ctoken change token of event when fetched
+   * @param docs all the documents for the href - the caller may go on
+   *             to use them
+   */
+  static void put(final String indexes,
+                  final String href,
+                  final String ctoken,
+                  final List<Doc> docs) {
+    if ((indexes == null) || (href == null) ||
+            (ctoken == null) || (docs == null)) {
+      return;
+    }
+
+    final Key key = new Key(indexes, href);
+    final Entry ent = new Entry(ctoken, copy(docs));
+
+    synchronized (lock) {
+      cache.put(key, ent);
+
+      Set<Key> keys = hrefKeys.get(href);
+
+      if (keys == null) {
+        keys = new HashSet<>();
+        hrefKeys.put(href, keys);
+      }
+
+      keys.add(key);
+    }
+  }
+
+  /** Drop the entries for the given href.
+   *
+   * @param href of entity
+   */
+  public static void invalidate(final String href) {
+    if (href == null) {
+      return;
+    }
+
+    synchronized (lock) {
+      final Set<Key> keys = hrefKeys.remove(href);
+
+      if (keys == null) {
+        return;
+      }
+
+      for (final Key key: keys) {
+        cache.remove(key);
+      }
+    }
+  }
+
+  /** Empty the cache
+   */
+  public static void flush() {
+    synchronized (lock) {
+      cache.clear();
+      hrefKeys.clear();
+    }
+  }
+
+  /**
+   * @param val maximum number of hrefs cached
+   */
+  static void setMaxEntries(final int val) {
+    synchronized (lock) {
+      maxEntries = val;
+
+      if (cache.size() > val) {
+        cache.clear();
+        hrefKeys.clear();
+      }
+    }
+  }
+
+  /**
+   * @return number of entries
+   */
+  static int getCached() {
+    synchronized (lock) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * @return number of hits
+   */
+  static long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of misses
+   */
+  static long getMisses() {
+    return misses;
+  }
+
+  /* Called with the lock held */
+  private static void removeHrefKey(final Key key) {
+    final Set<Key> keys = hrefKeys.get(key.href);
+
+    if (keys == null) {
+      return;
+    }
+
+    keys.remove(key);
+
+    if (keys.isEmpty()) {
+      hrefKeys.remove(key.href);
+    }
+  }
+
+  private static List<Doc> copy(final List<Doc> docs) {
+    final List<Doc> res = new ArrayList<>(docs.size());
+
+    for (final Doc doc: docs) {
+      res.add(new Doc(doc.type, doc.id, doc.score,
+                      copyMap(doc.source)));
+    }
+
+    return res;
+  }
+
+  private static Map<String, Object> copyMap(final Map<String, Object> val) {
+    if (val == null) {
+      return null;
+    }
+
+    final Map<String, Object> res = new HashMap<>(val.size());
+
+    for (final Map.Entry<String, Object> ent: val.entrySet()) {
+      res.put(ent.getKey(), copyValue(ent.getValue()));
+    }
+
+    return res;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object copyValue(final Object val) {
+    if (val instanceof Map) {
+      return copyMap((Map<String, Object>)val);
+    }
+
+    if (val instanceof List) {
+      final List<Object> l = (List<Object>)val;
+      final List<Object> res = new ArrayList<>(l.size());
+
+      for (final Object o: l) {
+        res.add(copyValue(o));
+      }
+
+      return res;
+    }
+
+    // Strings, numbers and booleans are immutable
+    return val;
+  }
+}
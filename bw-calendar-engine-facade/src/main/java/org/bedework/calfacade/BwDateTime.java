@@ -93,6 +93,15 @@ public class BwDateTime extends DumpEntity<BwDateTime>
 
   private Boolean floatFlag;
 
+  /* Epoch millis for date - computed when first needed */
+  private transient long utcMillis;
+  private transient boolean utcMillisSet;
+
+  /* Marks a date we could not convert */
+  private static final long noMillis = Long.MIN_VALUE;
+
+  private static final long millisPerDay = 24 * 60 * 60 * 1000L;
+
   /** Constructor
    */
   private BwDateTime() {
@@ -426,6 +435,7 @@ public class BwDateTime extends DumpEntity<BwDateTime>
                 jname = "utc")
   private void setDate(final String val) {
     date = val;
+    utcMillisSet = false;
   }
 
   /** This is a UTC datetime value to make searching easier. There are a number of
@@ -474,6 +484,20 @@ public class BwDateTime extends DumpEntity<BwDateTime>
    *                        Conversion methods
    * ==================================================================== */
 
+  /** The UTC date as milliseconds since the epoch. Computed once from
+   * the date field so comparisons need not work with strings.
+   *
+   * @return millis or Long.MIN_VALUE if the date is not a valid UTC value
+   */
+  public long utcMillis() {
+    if (!utcMillisSet) {
+      utcMillis = parseUtcMillis(date);
+      utcMillisSet = true;
+    }
+
+    return utcMillis;
+  }
+
   /**
    * @return boolean
    */
@@ -662,6 +686,12 @@ public class BwDateTime extends DumpEntity<BwDateTime>
       throw new CalFacadeException("org.bedework.datetime.expect.dateonly");
     }
 
+    final long days = parseDays(getDtval(), 0);
+
+    if (days != noMillis) {
+      return makeBwDateTime(true, formatDate(days + 1), null);
+    }
+
     try {
       Date dt = new Date(getDtval());
 
@@ -806,6 +836,25 @@ public class BwDateTime extends DumpEntity<BwDateTime>
   }
 
   private BwDateTime addDuration(final Dur val) throws CalFacadeException {
+    if (!getDateType() && (getTzid() == null) && !getFloating()) {
+      /* UTC - no daylight saving so we can just add the millis */
+      final long millis = utcMillis();
+
+      if (millis != noMillis) {
+        long durMillis = (((((val.getWeeks() * 7L) +
+                val.getDays()) * 24 +
+                val.getHours()) * 60 +
+                val.getMinutes()) * 60 +
+                val.getSeconds()) * 1000;
+
+        if (val.isNegative()) {
+          durMillis = -durMillis;
+        }
+
+        return fromUTC(false, formatUtc(millis + durMillis));
+      }
+    }
+
     DtEnd dtEnd;
 
     java.util.Date endDt = val.getTime(makeDate());
@@ -835,6 +884,138 @@ public class BwDateTime extends DumpEntity<BwDateTime>
     return makeBwDateTime(dtEnd);
   }
 
+  /* Millis for a value of the form yyyyMMddTHHmmssZ or noMillis
+   */
+  static long parseUtcMillis(final String val) {
+    if ((val == null) || (val.length() != 16) ||
+        (val.charAt(8) != 'T') || (val.charAt(15) != 'Z')) {
+      return noMillis;
+    }
+
+    final long days = parseDays(val, 0);
+    final int hours = parseInt(val, 9, 2);
+    final int mins = parseInt(val, 11, 2);
+    final int secs = parseInt(val, 13, 2);
+
+    if ((days == noMillis) || (hours < 0) || (mins < 0) || (secs < 0)) {
+      return noMillis;
+    }
+
+    return (days * millisPerDay) +
+            (((hours * 60L) + mins) * 60 + secs) * 1000;
+  }
+
+  /* Days since the epoch for yyyyMMdd at pos or noMillis
+   */
+  static long parseDays(final String val,
+                                final int pos) {
+    if ((val == null) || (val.length() < pos + 8)) {
+      return noMillis;
+    }
+
+    final int y = parseInt(val, pos, 4);
+    final int m = parseInt(val, pos + 4, 2);
+    final int d = parseInt(val, pos + 6, 2);
+
+    if ((y < 0) || (m < 1) || (m > 12) || (d < 1) || (d > 31)) {
+      return noMillis;
+    }
+
+    /* Days from civil - proleptic gregorian */
+    final int yr = (m <= 2) ? y - 1 : y;
+    final int era = ((yr >= 0) ? yr : yr - 399) / 400;
+    final int yoe = yr - era * 400;
+    final int doy = (153 * (m + ((m > 2) ? -3 : 9)) + 2) / 5 + d - 1;
+    final int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+    return era * 146097L + doe - 719468;
+  }
+
+  private static int parseInt(final String val,
+                              final int pos,
+                              final int len) {
+    int res = 0;
+
+    for (int i = pos; i < pos + len; i++) {
+      final char ch = val.charAt(i);
+
+      if ((ch < '0') || (ch > '9')) {
+        return -1;
+      }
+
+      res = res * 10 + (ch - '0');
+    }
+
+    return res;
+  }
+
+  /* yyyyMMdd for days since the epoch */
+  static String formatDate(final long days) {
+    final StringBuilder sb = new StringBuilder(16);
+
+    appendDate(sb, days);
+
+    return sb.toString();
+  }
+
+  /* yyyyMMddTHHmmssZ for millis since the epoch */
+  static String formatUtc(final long millis) {
+    long days = millis / millisPerDay;
+    long rem = millis % millisPerDay;
+
+    if (rem < 0) {
+      days--;
+      rem += millisPerDay;
+    }
+
+    final StringBuilder sb = new StringBuilder(16);
+
+    appendDate(sb, days);
+    sb.append('T');
+
+    final int secs = (int)(rem / 1000);
+
+    append2(sb, secs / 3600);
+    append2(sb, (secs / 60) % 60);
+    append2(sb, secs % 60);
+    sb.append('Z');
+
+    return sb.toString();
+  }
+
+  private static void appendDate(final StringBuilder sb,
+                                 final long days) {
+    /* Civil from days - proleptic gregorian */
+    final long z = days + 719468;
+    final long era = ((z >= 0) ? z : z - 146096) / 146097;
+    final int doe = (int)(z - era * 146097);
+    final int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    final int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    final int mp = (5 * doy + 2) / 153;
+    final int d = doy - (153 * mp + 2) / 5 + 1;
+    final int m = (mp < 10) ? mp + 3 : mp - 9;
+    final long y = yoe + era * 400 + ((m <= 2) ? 1 : 0);
+
+    final String ys = String.valueOf(y);
+
+    for (int i = ys.length(); i < 4; i++) {
+      sb.append('0');
+    }
+
+    sb.append(ys);
+    append2(sb, m);
+    append2(sb, d);
+  }
+
+  private static void append2(final StringBuilder sb,
+                              final int val) {
+    if (val < 10) {
+      sb.append('0');
+    }
+
+    sb.append(val);
+  }
+
   /* ====================================================================
    *                        Object methods
    * ==================================================================== */
@@ -845,6 +1026,13 @@ public class BwDateTime extends DumpEntity<BwDateTime>
       return 0;
     }
 
+    final long m1 = dt1.utcMillis();
+    final long m2 = dt2.utcMillis();
+
+    if ((m1 != noMillis) && (m2 != noMillis)) {
+      return Long.compare(m1, m2);
+    }
+
     return dt1.getDate().compareTo(dt2.getDate());
   }
 
@@ -33,6 +33,7 @@ import org.bedework.calfacade.base.EventEntity;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.util.CalFacadeUtil;
 import org.bedework.calfacade.util.ChangeTable;
+import org.bedework.calfacade.util.QuotaUtil;
 import org.bedework.util.calendar.IcalDefs;
 import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 import org.bedework.util.misc.ToString;
@@ -1717,6 +1718,73 @@ public class BwEvent extends BwShareableContainedDbentity<BwEvent>
     return true;
   }
 
+  /* ====================================================================
+   *               Canonical icalendar methods
+   * ==================================================================== */
+
+  /* Marks a canonical form not yet stamped with a change token */
+  private static final String canonicalUnstamped = "-";
+
+  /** Save the canonical icalendar form of this event, i.e. the
+   * components as they were imported. It will be stamped with the
+   * change token when the event is next saved.
+   *
+   * @param val    icalendar text of the components
+   */
+  @NoProxy
+  @NoDump
+  @NoWrap
+  public void setCanonicalIcal(final String val) {
+    replaceXproperty(BwXproperty.bedeworkCanonicalIcal,
+                     canonicalUnstamped + ";" + val);
+  }
+
+  /** Get the canonical icalendar form of this event. This is only
+   * returned if the event has not changed since it was saved.
+   *
+   * @return String icalendar text or null
+   */
+  @NoProxy
+  @NoDump
+  @NoWrap
+  public String getCanonicalIcal() {
+    final String val = getXproperty(BwXproperty.bedeworkCanonicalIcal);
+
+    if (val == null) {
+      return null;
+    }
+
+    final int pos = val.indexOf(';');
+
+    if ((pos < 0) || !val.substring(0, pos).equals(getCtoken())) {
+      return null;
+    }
+
+    return val.substring(pos + 1);
+  }
+
+  /** Called after the change token has been updated. A canonical form
+   * set by an import is stamped with the new token. Any other is now
+   * out of date and is removed.
+   */
+  @NoProxy
+  public void stampCanonicalIcal() {
+    final String val = getXproperty(BwXproperty.bedeworkCanonicalIcal);
+
+    if (val == null) {
+      return;
+    }
+
+    if (val.startsWith(canonicalUnstamped + ";")) {
+      replaceXproperty(BwXproperty.bedeworkCanonicalIcal,
+                       getCtoken() +
+                               val.substring(canonicalUnstamped.length()));
+      return;
+    }
+
+    replaceXproperty(BwXproperty.bedeworkCanonicalIcal, null);
+  }
+
   /* ====================================================================
    *               Request status methods
    * ==================================================================== */
@@ -4389,56 +4457,55 @@ public class BwEvent extends BwShareableContainedDbentity<BwEvent>
    */
   @NoProxy
   public int calculateByteSize() {
-
     int sz = 40; // Overhead for superclasses.
-   /*
-   sv += 4;   // int entityType = CalFacadeDefs.entityTypeEvent;
-   sv += stringSize(name);        // String name;
-   sv += collectionSize(nnn);     // Collection<BwString> summaries;
-   sv += collectionSize(nnn);     // Collection<BwLongString> descriptions;
-   sv += stringSize(classification);   // String classification;
-   sv += collectionSize(nnn);     // Collection<BwString> comments;
-   sv += collectionSize(nnn);     // Collection<BwString> resources;
-    private BwDateTime dtstart;
-    private BwDateTime dtend;
-   sv += 16;   // String duration;
-   sv += 4;    // Boolean noStart;
-   sv += 1;    // char endType = endTypeDate;
-   sv += stringSize(link);   // String link;
-    private BwGeo geo;
-   sv += stringSize(status);   // String status;
-   sv += stringSize(cost);   // String cost;
-   sv += 1;    // boolean deleted;
-   sv += 16;   // String dtstamp;
-   sv += 16;   // String lastmod;
-   sv += 16;   // String created;
-   sv += 4;    // integer priority;
-    private Collection<BwCategory> categories = null;
-    private Collection<BwContact> contacts;
-    private BwLocation location;
-   sv += stringSize(name);   // String transparency;
-   sv += 4;    // integer percentComplete;
-   sv += 16;   // String completed;
-    private Collection<BwAttendee> attendees;
-   sv += 4;   // Boolean recurring;
-   sv += stringSize(uid);   // String uid;
-    private Collection<BwAlarm> alarms;
-   sv += 16;   // String recurrenceId;
-    private Collection<String> rrules;
-    private Collection<String> exrules;
-    private Collection<BwDateTime> rdates;
-    private Collection<BwDateTime> exdates;
-   sv += 16;   // String latestDate;
-   sv += 4;   // Boolean expanded;
-   sv += 4;   // int sequence;
-   sv += 4;   // int scheduleMethod;
-   sv += stringSize(name);   // String originator;
-    private Collection<String> recipients;
-   sv += 4;   // int scheduleState;
-    private Collection<BwRequestStatus> requestStatuses;
-    private BwRelatedTo relatedTo;
-   sv += 4;   // int byteSize;
-    */
+
+    sz += 4;   // int entityType = CalFacadeDefs.entityTypeEvent;
+    sz += QuotaUtil.size(getName());
+    sz += QuotaUtil.collectionSize(getSummaries());
+    sz += QuotaUtil.collectionSize(getDescriptions());
+    sz += QuotaUtil.size(getClassification());
+    sz += QuotaUtil.collectionSize(getComments());
+    sz += QuotaUtil.collectionSize(getResources());
+    sz += 2 * 16;   // dtstart and dtend
+    sz += 16;   // String duration;
+    sz += 4;    // Boolean noStart;
+    sz += 1;    // char endType = endTypeDate;
+    sz += QuotaUtil.size(getLink());
+    sz += QuotaUtil.size(getStatus());
+    sz += QuotaUtil.size(getCost());
+    sz += 1;    // boolean deleted;
+    sz += 3 * 16;   // dtstamp, lastmod and created
+    sz += 4;    // integer priority;
+    sz += QuotaUtil.collectionSize(getContacts());
+    sz += QuotaUtil.size(getLocation());
+    sz += QuotaUtil.size(getOrganizer());
+    sz += QuotaUtil.size(getUid());
+
+    if (getAttendees() != null) {
+      for (final BwAttendee att: getAttendees()) {
+        sz += QuotaUtil.size(att.getAttendeeUri()) +
+                QuotaUtil.size(att.getCn());
+      }
+    }
+
+    sz += QuotaUtil.collectionSize(getRecipients());
+    sz += QuotaUtil.collectionSize(getRrules());
+    sz += QuotaUtil.collectionSize(getExrules());
+
+    if (getXproperties() != null) {
+      for (final BwXproperty xp: getXproperties()) {
+        if (BwXproperty.bedeworkCanonicalIcal.equals(xp.getName())) {
+          // A copy of the imported data - not charged to the owner
+          continue;
+        }
+
+        sz += QuotaUtil.size(xp.getName()) +
+                QuotaUtil.size(xp.getPars()) +
+                QuotaUtil.size(xp.getValue());
+      }
+    }
+
+    sz += 4;   // int byteSize;
 
     return sz;
   }
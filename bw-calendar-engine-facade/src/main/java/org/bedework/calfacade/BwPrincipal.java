@@ -460,9 +460,11 @@ public abstract class BwPrincipal extends BwDbentity<BwPrincipal>
     val.setId(getId());
     val.setSeq(getSeq());
     val.setCreated(getCreated());
+    val.setDescription(getDescription());
     val.setLogon(getLogon());
     val.setLastAccess(getLastAccess());
     val.setLastModify(getLastModify());
+    val.setQuota(getQuota());
     val.setCategoryAccess(getCategoryAccess());
     val.setLocationAccess(getLocationAccess());
     val.setContactAccess(getContactAccess());
@@ -289,6 +289,11 @@ public class BwStats implements Serializable {
   /* Dates cache stats */
   protected CacheStats dateCacheStats = new CacheStats("UTC Dates");
 
+  /* Rendered events cache stats */
+  protected CacheStats renderedCacheStats = new CacheStats("Rendered events");
+
+  protected long renderedCacheBytes;
+
   /* Access stats */
   protected Collection<AccessStatsEntry> accessStats;
 
@@ -373,6 +378,27 @@ public class BwStats implements Serializable {
     return dateCacheStats;
   }
 
+  /**
+   * @return rendered events cache Stats
+   */
+  public CacheStats getRenderedCacheStats() {
+    return renderedCacheStats;
+  }
+
+  /**
+   * @param val approximate bytes used by rendered events cache
+   */
+  public void setRenderedCacheBytes(long val) {
+    renderedCacheBytes = val;
+  }
+
+  /**
+   * @return approximate bytes used by rendered events cache
+   */
+  public long getRenderedCacheBytes() {
+    return renderedCacheBytes;
+  }
+
   /**
    * @param val access Stats
    */
@@ -406,6 +432,10 @@ public class BwStats implements Serializable {
 
     cacheStatsToString(al, dateCacheStats);
 
+    cacheStatsToString(al, renderedCacheStats);
+    al.add(new StatsEntry("Rendered events bytes",
+                          getRenderedCacheBytes()));
+
     if (getAccessStats() != null) {
       al.add(new StatsEntry("Access statistics."));
 
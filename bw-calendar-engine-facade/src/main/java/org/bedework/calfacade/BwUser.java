@@ -85,6 +85,7 @@ public class BwUser extends BwPrincipal {
    */
   public void copyTo(final BwUser val) {
     super.copyTo(val);
+    val.setInstanceOwner(getInstanceOwner());
   }
 
   /* ====================================================================
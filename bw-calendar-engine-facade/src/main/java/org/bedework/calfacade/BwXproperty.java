@@ -108,6 +108,11 @@ public class BwXproperty extends BwDbentity<BwXproperty>
    */
   public final static String bedeworkIcal = "X-BEDEWORK-ICAL";
 
+  /** Holds the canonical icalendar form of an imported event - the
+   * value is the change token followed by ";" and the text
+   */
+  public final static String bedeworkCanonicalIcal = "X-BEDEWORK-CANONICAL-ICAL";
+
   /** Holds a text icalendar property - first (or only) parameter is always
    * "PNAME" and its value is the real property name
    */
@@ -275,6 +280,8 @@ public class BwXproperty extends BwDbentity<BwXproperty>
 
     xskipJsp.add(bedeworkIcal);
 
+    xskipJsp.add(bedeworkCanonicalIcal);
+
     xskipJsp.add(bedeworkIcalProp);
 
     xskipJsp.add(bedeworkDavProp);
@@ -0,0 +1,79 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calfacade;
+
+import org.bedework.util.misc.ToString;
+
+import java.io.Serializable;
+
+/** The number of entities in a collection and an estimate of their
+ * total size. Child collections are not included.
+ */
+public class CollectionSize implements Serializable {
+  private final String path;
+
+  private final long count;
+
+  private final long bytes;
+
+  /**
+   * @param path of collection
+   * @param count number of entities
+   * @param bytes total size
+   */
+  public CollectionSize(final String path,
+                        final long count,
+                        final long bytes) {
+    this.path = path;
+    this.count = count;
+    this.bytes = bytes;
+  }
+
+  /**
+   * @return path of collection
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return number of entities
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return total size of entities
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    final ToString ts = new ToString(this);
+
+    ts.append("path", getPath());
+    ts.append("count", getCount());
+    ts.append("bytes", getBytes());
+
+    return ts.toString();
+  }
+}
@@ -110,6 +110,45 @@ public interface IndexProperties {
   @MBeanInfo("data directory for embedded")
   String getDataDir();
 
+  /** Set the refresh interval for embedded - e.g. "1s"
+   *
+   * @param val
+   */
+  void setRefreshInterval(String val);
+
+  /** Get the refresh interval for embedded
+   *
+   * @return interval - null for the default
+   */
+  @MBeanInfo("index refresh interval for embedded - e.g. \"1s\"")
+  String getRefreshInterval();
+
+  /** Set the bulk thread pool size for embedded
+   *
+   * @param val
+   */
+  void setBulkThreads(int val);
+
+  /** Get the bulk thread pool size for embedded
+   *
+   * @return size - 0 for the default
+   */
+  @MBeanInfo("bulk thread pool size for embedded - 0 for default")
+  int getBulkThreads();
+
+  /** Set the field data cache limit for embedded - e.g. "30%"
+   *
+   * @param val
+   */
+  void setFieldDataLimit(String val);
+
+  /** Get the field data cache limit for embedded
+   *
+   * @return limit - null for the default
+   */
+  @MBeanInfo("field data cache limit for embedded - e.g. \"30%\"")
+  String getFieldDataLimit();
+
   /** Set the indexer config location
    *
    * @param val
@@ -337,6 +337,10 @@ public class CalFacadeException extends Exception {
   public static final String duplicateName =
       "org.bedework.exception.duplicatename";
 
+  /** Event was retrieved with only some of its properties */
+  public static final String partialEvent =
+      "org.bedework.exception.partialevent";
+
   /** Cannot locate instances for ... */
   public static final String cannotLocateInstance =
       "org.bedework.exception.cannotlocateinstance";
@@ -0,0 +1,150 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calfacade.filter;
+
+import org.bedework.caldav.util.filter.AndFilter;
+import org.bedework.caldav.util.filter.FilterBase;
+import org.bedework.caldav.util.filter.OrFilter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A jvm wide cache of parsed filter expressions. The key is built by
+ * the parser from the expression and the context it was resolved in -
+ * the principal and the state of the collections and categories it
+ * refers to. A change to those gives a new key so old entries are
+ * never used and just age out.
+ *
+ * <p>The cached tree is never modified. Callers add terms to the and
+ * and or filters they are given so each retrieval gets new copies of
+ * those. The other filters are shared and must be treated as read
+ * only. Entries also expire so anything we cannot track, e.g. a deleted
+ * collection, is seen eventually.
+ */
+class ParsedFilterCache {
+  /** Maximum number of expressions we hold */
+  static final int maxEntries = 2000;
+
+  /** Millis for which we use a parsed filter */
+  static final long refreshInterval = 5 * 60 * 1000;
+
+  private static long hits;
+  private static long misses;
+
+  private static class Entry {
+    final FilterBase filter;
+    final long time;
+
+    Entry(final FilterBase filter) {
+      this.filter = filter;
+      time = System.currentTimeMillis();
+    }
+  }
+
+  private static final Map<String, Entry> cache =
+          new LinkedHashMap<String, Entry>(100,
+                                           0.75f,
+                                           true) { // access order
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+              return size() > maxEntries;
+            }
+          };
+
+  /**
+   * @param key built by the parser
+   * @return a copy of the filter or null if none
+   */
+  static FilterBase get(final String key) {
+    final Entry ent;
+
+    synchronized (cache) {
+      ent = cache.get(key);
+
+      if ((ent == null) ||
+              ((System.currentTimeMillis() - ent.time) > refreshInterval)) {
+        misses++;
+        return null;
+      }
+
+      hits++;
+    }
+
+    return copy(ent.filter);
+  }
+
+  /**
+   * @param key built by the parser
+   * @param val the parsed filter - the caller may go on to use it
+   */
+  static void put(final String key,
+                  final FilterBase val) {
+    if ((key == null) || (val == null)) {
+      return;
+    }
+
+    final Entry ent = new Entry(copy(val));
+
+    synchronized (cache) {
+      cache.put(key, ent);
+    }
+  }
+
+  /** Empty the cache
+   */
+  static void flush() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * @return number of hits
+   */
+  static long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of misses
+   */
+  static long getMisses() {
+    return misses;
+  }
+
+  /* Copy the and and or filters - share the rest */
+  private static FilterBase copy(final FilterBase f) {
+    final FilterBase res;
+
+    if (f instanceof AndFilter) {
+      res = new AndFilter();
+    } else if (f instanceof OrFilter) {
+      res = new OrFilter();
+    } else {
+      return f;
+    }
+
+    for (final FilterBase flt: f.getChildren()) {
+      res.addChild(copy(flt));
+    }
+
+    return res;
+  }
+}
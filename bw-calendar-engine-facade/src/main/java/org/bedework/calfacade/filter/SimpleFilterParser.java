@@ -78,6 +78,9 @@ public abstract class SimpleFilterParser {
   private SimpleFilterParser subParser;
   private boolean explicitSelection;
 
+  /* False if the result depends on something we don't track */
+  private boolean cacheable;
+
   private static class Token {
   }
 
@@ -270,6 +273,21 @@ public abstract class SimpleFilterParser {
    */
   public abstract SimpleFilterParser getParser() throws CalFacadeException;
 
+  /** Parse results are cached if this returns a non-null value. It
+   * should identify everything an expression is resolved against - the
+   * principal and their access and the current state of the collections
+   * and categories. When any of that changes the value must change.
+   *
+   * <p>Results which refer to a view are never cached as views are held
+   * in the preferences.</p>
+   *
+   * @return a value identifying the context or null for no caching.
+   * @throws CalFacadeException
+   */
+  public String getCacheContext() throws CalFacadeException {
+    return null;
+  }
+
   /** Parse the given expression into a filter. The explicitSelection
    * flag determines whether or not we skip certain collections. For
    * example, we normally skip collections with display off or the
@@ -280,7 +298,8 @@ public abstract class SimpleFilterParser {
    * @param explicitSelection true if we are explicitly selecting a
    *                          path or paths
    * @param source            Where the expression came from - for errors
-   * @return ParseResult
+   * @return ParseResult - the and and or filters in the result may be
+   *         modified but any others may be shared.
    * @throws CalFacadeException
    */
   public ParseResult parse(final String expr,
@@ -289,6 +308,7 @@ public abstract class SimpleFilterParser {
     this.explicitSelection = explicitSelection;
     this.source = source;
     debug = getLogger().isDebugEnabled();
+    cacheable = true;
 
     try {
       if (debug) {
@@ -296,6 +316,26 @@ public abstract class SimpleFilterParser {
                   " from " + source);
       }
 
+      String cacheKey = null;
+
+      if (expr != null) {
+        final String context = getCacheContext();
+
+        if (context != null) {
+          cacheKey = context + "|" + explicitSelection + "|" + expr;
+
+          final FilterBase f = ParsedFilterCache.get(cacheKey);
+
+          if (f != null) {
+            if (debug) {
+              debugMsg("Using cached filter: " + f);
+            }
+
+            return new ParseResult(f);
+          }
+        }
+      }
+
       currentExpr = expr;
       tokenizer = new SfpTokenizer(new StringReader(expr));
 
@@ -327,6 +367,10 @@ public abstract class SimpleFilterParser {
         debugMsg(f.toString());
       }
 
+      if ((cacheKey != null) && cacheable) {
+        ParsedFilterCache.put(cacheKey, f);
+      }
+
       return new ParseResult(f);
     } catch (final CalFacadeException cfe) {
       if (debug) {
@@ -972,6 +1016,8 @@ public abstract class SimpleFilterParser {
 
   private FilterBase viewFilter(final String val) throws CalFacadeException {
     try {
+      cacheable = false;
+
       final BwView view = getView(val);
 
       if (view == null) {
@@ -1128,6 +1174,10 @@ public abstract class SimpleFilterParser {
           throw pr.cfe;
         }
 
+        if (!subParser.cacheable) {
+          cacheable = false;
+        }
+
         if (pr.filter != null) {
           vfilter = and(vfilter, pr.filter);
         }
@@ -28,12 +28,17 @@ import org.bedework.calfacade.RecurringRetrievalMode;
 import org.bedework.calfacade.base.BwShareableDbentity;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.filter.SortTerm;
+import org.bedework.calfacade.ical.BwIcalPropertyInfo.BwIcalPropertyInfoEntry;
 import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 /**
  * @author douglm
@@ -105,6 +110,17 @@ public interface BwIndexer extends Serializable {
                                   int desiredAccess,
                                   boolean returnResult)
             throws CalFacadeException;
+
+    /** Return the encoded acl for the entity merged with that of
+     * its containers. Used when indexing to determine who may read
+     * the entity.
+     *
+     * @param ent the entity
+     * @return encoded merged acl
+     * @throws CalFacadeException
+     */
+    char[] getMergedAccess(BwShareableDbentity ent)
+            throws CalFacadeException;
   }
 
   /**
@@ -125,6 +141,25 @@ public interface BwIndexer extends Serializable {
    */
   String currentChangeToken() throws CalFacadeException;
 
+  /** Collections, categories, contacts and locations each have their
+   * own tracker which only changes when entities of that type change. For any other
+   * type this is the same as currentChangeToken().
+   *
+   * @param docType e.g. docTypeCategory
+   * @return a token based on the update tracker for the type.
+   * @throws CalFacadeException
+   */
+  String currentChangeToken(String docType) throws CalFacadeException;
+
+  /** Start the index client if not already started and run some
+   * representative date range searches against the target index to
+   * load its caches. Called at startup so the first user request does
+   * not pay for it.
+   *
+   * @throws CalFacadeException
+   */
+  void warmUp() throws CalFacadeException;
+
   /** Called to find entries that match the search string. This string may
    * be a simple sequence of keywords or some sort of query the syntax of
    * which is determined by the underlying implementation.
@@ -161,6 +196,38 @@ public interface BwIndexer extends Serializable {
                       AccessChecker accessCheck,
                       RecurringRetrievalMode recurRetrieval) throws CalFacadeException;
 
+  /** As search but the request is sent to the index without waiting
+   * for the response. The search result is completed on the thread
+   * calling get on the future. This allows a number of independent
+   * searches to be outstanding at once.
+   *
+   * <p>Any CalFacadeException is the cause of the ExecutionException
+   * thrown by get.
+   *
+   * @param query        Query string
+   * @param relevance    true for a relevance style query
+   * @param filter       parsed filter
+   * @param sort  list of fields to sort by - may be null
+   * @param defaultFilterContext  - see search
+   * @param start - if non-null limit to this and after
+   * @param end - if non-null limit to before this
+   * @param pageSize - stored in the search result for future calls.
+   * @param accessCheck  - required - lets us check access
+   * @param recurRetrieval How recurring event is returned.
+   * @return  future for the SearchResult
+   * @throws CalFacadeException
+   */
+  Future<SearchResult> searchAsync(String query,
+                                   boolean relevance,
+                                   FilterBase filter,
+                                   List<SortTerm> sort,
+                                   FilterBase defaultFilterContext,
+                                   String start,
+                                   String end,
+                                   int pageSize,
+                                   AccessChecker accessCheck,
+                                   RecurringRetrievalMode recurRetrieval) throws CalFacadeException;
+
   enum Position {
     previous,  // Move to previous batch
     current,   // Return the current set
@@ -193,6 +260,89 @@ public interface BwIndexer extends Serializable {
                                           int offset,
                                           int num,
                                           int desiredAccess) throws CalFacadeException;
+
+  /** As getSearchResult but the request is sent to the index without
+   * waiting for the response. Entities are built, and any secondary
+   * fetch made, on the thread calling get on the future.
+   *
+   * @param  sres     result of previous search
+   * @param offset from first record
+   * @param num number of entries
+   * @param desiredAccess  to the entities
+   * @return future for the list of results
+   * @throws CalFacadeException
+   */
+  Future<List<SearchResultEntry>> getSearchResultAsync(SearchResult sres,
+                                                       int offset,
+                                                       int num,
+                                                       int desiredAccess)
+          throws CalFacadeException;
+
+  /** Called to retrieve all the results after a search of the index.
+   * Results are fetched from the index a page at a time and entities
+   * built as the iterator advances, so large result sets are never
+   * held in a single response.
+   *
+   * <p>Unless expanding, recurring masters are returned after the
+   * other results as their overrides may be in any page.
+   *
+   * <p>If a retrieve list is given only those properties, together
+   * with those needed to identify the entity and check access, are
+   * fetched from the index. The events are flagged as partial.
+   *
+   * <p>The iterator methods throw a RuntimeException wrapping any
+   * CalFacadeException. The iterator should be closed, e.g. with
+   * try-with-resources, so the index releases the search if the
+   * iteration is abandoned.
+   *
+   * @param  sres     result of previous search
+   * @param pageSize number of hits fetched at a time
+   * @param desiredAccess  to the entities
+   * @param retrieveList properties to fetch - null or empty for all
+   * @return iterator over the results
+   * @throws CalFacadeException
+   */
+  SearchResultIterator getSearchResultIterator(SearchResult sres,
+                                               int pageSize,
+                                               int desiredAccess,
+                                               List<BwIcalPropertyInfoEntry> retrieveList)
+          throws CalFacadeException;
+
+  /** Returned by getSearchResultIterator.
+   */
+  interface SearchResultIterator extends Iterator<SearchResultEntry>,
+          AutoCloseable {
+    /** Release the search. Called automatically when the results
+     * are exhausted. */
+    @Override
+    void close();
+  }
+
+  enum CountBy {
+    category,    // Keyed by category uid
+    location,    // Keyed by location uid
+    collection,  // Keyed by collection path
+    day          // Keyed by UTC start date - yyyyMMdd
+  }
+
+  /** Count the entities matching a previous search grouped by the
+   * given value. The counting is done by the index - no entities are
+   * fetched. For an expanded search each instance is counted.
+   *
+   * <p>Only the read access implied by the indexed acls is applied so
+   * counts may include entities the principal is explicitly denied.
+   *
+   * @param  sres     result of previous search
+   * @param by        what we group by
+   * @param maxTerms  maximum number of groups returned - &lt;= 0 for all
+   * @return map of value to count - ordered by count or, for days,
+   *         by date. Never null.
+   * @throws CalFacadeException
+   */
+  Map<String, Long> getCounts(SearchResult sres,
+                              CountBy by,
+                              int maxTerms) throws CalFacadeException;
+
   /** Called to unindex an entity
    *
    * @param   val     an event property
@@ -207,6 +357,14 @@ public interface BwIndexer extends Serializable {
    */
   void unindexEntity(String href) throws CalFacadeException;
 
+  /** Called to unindex a collection. As unindexEntity but also flags
+   * the change to those caching collections.
+   *
+   * @param   href     the collection href
+   * @throws CalFacadeException
+   */
+  void unindexCollection(String href) throws CalFacadeException;
+
   /** Called to index a record
    *
    * @param rec an indexable object
@@ -214,6 +372,16 @@ public interface BwIndexer extends Serializable {
    */
   void indexEntity(Object rec) throws CalFacadeException;
 
+  /** As indexEntity but the request is sent to the index without
+   * waiting for the response. Events may need a number of requests
+   * and are indexed before returning.
+   *
+   * @param rec an indexable object
+   * @return future completed when indexed
+   * @throws CalFacadeException
+   */
+  Future<Void> indexEntityAsync(Object rec) throws CalFacadeException;
+
   /** Set to > 1 to enable batching
    *
    * @param val batch size
@@ -325,6 +493,17 @@ public interface BwIndexer extends Serializable {
   BwCategory fetchCat(String val,
                       PropertyInfoIndex... index) throws CalFacadeException;
 
+  /** As fetchCat but the request is sent without waiting for the
+   * response. A number of fetches may be outstanding at once.
+   *
+   * @param val - expected full value
+   * @param index e.g. UID or CN, VALUE
+   * @return future for the category - null if not found
+   * @throws CalFacadeException
+   */
+  Future<BwCategory> fetchCatAsync(String val,
+                                   PropertyInfoIndex... index) throws CalFacadeException;
+
   /** Fetch all for the current principal.
    *
    * @return possibly empty list
@@ -332,6 +511,15 @@ public interface BwIndexer extends Serializable {
    */
   List<BwCategory> fetchAllCats() throws CalFacadeException;
 
+  /** Fetch the categories with the given uids in a single request.
+   * Uids which are not found are left out of the result.
+   *
+   * @param uids - of the categories
+   * @return possibly empty list
+   * @throws CalFacadeException
+   */
+  List<BwCategory> fetchCats(Collection<String> uids) throws CalFacadeException;
+
   /** Find a contact owned by the current user which has a named
    * field which matches the value.
    *
@@ -343,6 +531,17 @@ public interface BwIndexer extends Serializable {
   BwContact fetchContact(String val,
                          PropertyInfoIndex... index) throws CalFacadeException;
 
+  /** As fetchContact but the request is sent without waiting for the
+   * response. A number of fetches may be outstanding at once.
+   *
+   * @param val - expected full value
+   * @param index e.g. UID or CN, VALUE
+   * @return future for the contact - null if not found
+   * @throws CalFacadeException
+   */
+  Future<BwContact> fetchContactAsync(String val,
+                                      PropertyInfoIndex... index) throws CalFacadeException;
+
   /** Fetch all for the current principal.
    *
    * @return possibly empty list
@@ -350,6 +549,15 @@ public interface BwIndexer extends Serializable {
    */
   List<BwContact> fetchAllContacts() throws CalFacadeException;
 
+  /** Fetch the contacts with the given uids in a single request.
+   * Uids which are not found are left out of the result.
+   *
+   * @param uids - of the contacts
+   * @return possibly empty list
+   * @throws CalFacadeException
+   */
+  List<BwContact> fetchContacts(Collection<String> uids) throws CalFacadeException;
+
   /** Find a location owned by the current user which has a named
    * field which matches the value.
    *
@@ -361,10 +569,30 @@ public interface BwIndexer extends Serializable {
   BwLocation fetchLocation(String val,
                            PropertyInfoIndex... index) throws CalFacadeException;
 
+  /** As fetchLocation but the request is sent without waiting for the
+   * response. A number of fetches may be outstanding at once.
+   *
+   * @param val - expected full value
+   * @param index e.g. UID or CN, VALUE
+   * @return future for the location - null if not found
+   * @throws CalFacadeException
+   */
+  Future<BwLocation> fetchLocationAsync(String val,
+                                        PropertyInfoIndex... index) throws CalFacadeException;
+
   /** Fetch all for the current principal.
    *
    * @return possibly empty list
    * @throws CalFacadeException
    */
   List<BwLocation> fetchAllLocations() throws CalFacadeException;
+
+  /** Fetch the locations with the given uids in a single request.
+   * Uids which are not found are left out of the result.
+   *
+   * @param uids - of the locations
+   * @return possibly empty list
+   * @throws CalFacadeException
+   */
+  List<BwLocation> fetchLocations(Collection<String> uids) throws CalFacadeException;
 }
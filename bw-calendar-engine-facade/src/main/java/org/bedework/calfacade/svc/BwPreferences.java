@@ -936,6 +936,47 @@ public class BwPreferences extends BwOwnedDbentity implements PropertiesEntity {
     return ts.toString();
   }
 
+  @Override
+  public Object clone() {
+    final BwPreferences p = new BwPreferences();
+
+    copyTo(p);
+
+    p.setId(getId());
+    p.setSeq(getSeq());
+
+    if (getViews() != null) {
+      final Collection<BwView> vs = new TreeSet<>();
+
+      for (final BwView v: getViews()) {
+        vs.add((BwView)v.clone());
+      }
+
+      p.setViews(vs);
+    }
+
+    p.setEmail(getEmail());
+    p.setDefaultCalendarPath(getDefaultCalendarPath());
+    p.setSkinName(getSkinName());
+    p.setSkinStyle(getSkinStyle());
+    p.setPreferredView(getPreferredView());
+    p.setPreferredViewPeriod(getPreferredViewPeriod());
+    p.setPageSize(getPageSize());
+    p.setWorkDays(getWorkDays());
+    p.setWorkdayStart(getWorkdayStart());
+    p.setWorkdayEnd(getWorkdayEnd());
+    p.setPreferredEndType(getPreferredEndType());
+    p.setUserMode(getUserMode());
+    p.setHour24(getHour24());
+    p.setScheduleAutoRespond(getScheduleAutoRespond());
+    p.setScheduleAutoCancelAction(getScheduleAutoCancelAction());
+    p.setScheduleDoubleBook(getScheduleDoubleBook());
+    p.setScheduleAutoProcessResponses(getScheduleAutoProcessResponses());
+    p.setProperties(cloneProperties());
+
+    return p;
+  }
+
   /* ====================================================================
    *                   private methods
    * ==================================================================== */
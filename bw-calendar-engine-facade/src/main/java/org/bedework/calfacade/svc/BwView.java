@@ -198,4 +198,22 @@ public class BwView extends BwDbentity<BwView> {
 
     return ts.toString();
   }
+
+  @Override
+  public Object clone() {
+    final BwView v = new BwView();
+
+    v.setId(getId());
+    v.setSeq(getSeq());
+    v.setName(getName());
+
+    if (getCollectionPaths() != null) {
+      v.setCollectionPaths(new ArrayList<>(getCollectionPaths()));
+    }
+
+    v.setConjunction(getConjunction());
+    v.setFilter(getFilter());
+
+    return v;
+  }
 }
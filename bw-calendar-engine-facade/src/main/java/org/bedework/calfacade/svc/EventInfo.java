@@ -149,6 +149,9 @@ public class EventInfo
   /* True if we were only sent the instance. Don't delete other overrides. */
   private boolean instanceOnly;
 
+  /* True if only some properties were retrieved */
+  private boolean partial;
+
   private String prevStag;
 
   private String prevCtoken;
@@ -351,6 +354,24 @@ public class EventInfo
     return instanceOnly;
   }
 
+  /** This field is set when the event was retrieved with only some of
+   * its properties, e.g. for calendar-data partial retrieval. The full
+   * event must be fetched before it is updated.
+   *
+   *  @param  val    boolean true if partial
+   */
+  public void setPartial(final boolean val) {
+    partial = val;
+  }
+
+  /** Only some properties retrieved?
+   *
+   *  @return boolean
+   */
+  public boolean getPartial() {
+    return partial;
+  }
+
   /** Set the event's previous schedule-tag - used to allow if none match
    *
    *  @param val     stag
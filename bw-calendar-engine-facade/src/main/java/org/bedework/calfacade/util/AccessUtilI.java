@@ -148,4 +148,15 @@ public interface AccessUtilI extends PrivilegeDefs, Serializable {
    */
   public CurrentAccess checkAccess(BwShareableDbentity<? extends Object> ent, int desiredAccess,
                         boolean alwaysReturnResult) throws CalFacadeException;
+
+  /** Return the access for the given entity merged with the access of
+   * its containers up to the root. This is the acl evaluated by
+   * checkAccess for entities which are not special cased.
+   *
+   * @param ent
+   * @return encoded merged acl
+   * @throws CalFacadeException
+   */
+  public char[] getMergedAccess(BwShareableDbentity<? extends Object> ent)
+          throws CalFacadeException;
 }
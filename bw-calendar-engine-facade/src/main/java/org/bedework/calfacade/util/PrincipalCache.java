@@ -0,0 +1,213 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calfacade.util;
+
+import org.bedework.calfacade.BwPrincipal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A jvm wide cache of principals - users and groups - keyed by href.
+ * We hold a detached copy of the principal as loaded and hand out a
+ * new copy for each retrieval so no session ever shares an object.
+ *
+ * <p>We also remember hrefs which are not known. Clients probe for
+ * principals a lot and most of these fail. Those entries expire
+ * sooner so a new principal becomes visible in other jvms.
+ *
+ * <p>Entries are replaced with the saved principal when a transaction
+ * saving it commits, and dropped when the principal is deleted or
+ * group membership changed.
+ */
+public class PrincipalCache {
+  /** Default maximum number of hrefs cached */
+  public static final int defaultMaxEntries = 5000;
+
+  /** Default time for which we keep a principal */
+  public static final long defaultRefreshInterval = 5 * 60 * 1000;
+
+  /** Default time for which we remember an unknown href */
+  public static final long defaultNotFoundInterval = 60 * 1000;
+
+  private static int maxEntries = defaultMaxEntries;
+
+  private static long refreshInterval = defaultRefreshInterval;
+
+  private static long notFoundInterval = defaultNotFoundInterval;
+
+  private static long hits;
+  private static long misses;
+
+  private static final Object lock = new Object();
+
+  /** A cached lookup
+   */
+  public static class Entry {
+    private final BwPrincipal pr;
+    private final long time;
+
+    Entry(final BwPrincipal pr) {
+      this.pr = pr;
+      time = System.currentTimeMillis();
+    }
+
+    /**
+     * @return false for an unknown href
+     */
+    public boolean getFound() {
+      return pr != null;
+    }
+
+    /**
+     * @return a new copy of the principal - null for an unknown href
+     */
+    public BwPrincipal getPrincipal() {
+      if (pr == null) {
+        return null;
+      }
+
+      return (BwPrincipal)pr.clone();
+    }
+
+    boolean expired(final long now) {
+      if (pr == null) {
+        return (now - time) > notFoundInterval;
+      }
+
+      return (now - time) > refreshInterval;
+    }
+  }
+
+  private static final LinkedHashMap<String, Entry> cache =
+          new LinkedHashMap<String, Entry>(1000,
+                                           0.75f,
+                                           true) { // access order
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+              return size() > maxEntries;
+            }
+          };
+
+  /**
+   * @param href of principal
+   * @return null if not cached, otherwise the entry
+   */
+  public static Entry get(final String href) {
+    if (href == null) {
+      return null;
+    }
+
+    synchronized (lock) {
+      final Entry ent = cache.get(href);
+
+      if ((ent == null) || ent.expired(System.currentTimeMillis())) {
+        misses++;
+        return null;
+      }
+
+      hits++;
+      return ent;
+    }
+  }
+
+  /**
+   * @param href of principal
+   * @param val the principal as loaded - null for unknown href
+   */
+  public static void put(final String href,
+                         final BwPrincipal val) {
+    if (href == null) {
+      return;
+    }
+
+    BwPrincipal pr = null;
+
+    if (val != null) {
+      pr = (BwPrincipal)val.clone();
+    }
+
+    synchronized (lock) {
+      cache.put(href, new Entry(pr));
+    }
+  }
+
+  /** Drop the entry for the given href.
+   *
+   * @param href of principal
+   */
+  public static void invalidate(final String href) {
+    if (href == null) {
+      return;
+    }
+
+    synchronized (lock) {
+      cache.remove(href);
+    }
+  }
+
+  /** Empty the cache
+   */
+  public static void flush() {
+    synchronized (lock) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * @param val maximum number of hrefs cached
+   */
+  public static void setMaxEntries(final int val) {
+    synchronized (lock) {
+      maxEntries = val;
+
+      if (cache.size() > val) {
+        cache.clear();
+      }
+    }
+  }
+
+  /**
+   * @param val millis for which we keep a principal
+   */
+  public static void setRefreshInterval(final long val) {
+    refreshInterval = val;
+  }
+
+  /**
+   * @param val millis for which we remember an unknown href
+   */
+  public static void setNotFoundInterval(final long val) {
+    notFoundInterval = val;
+  }
+
+  /**
+   * @return number of hits
+   */
+  public static long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of misses
+   */
+  public static long getMisses() {
+    return misses;
+  }
+}
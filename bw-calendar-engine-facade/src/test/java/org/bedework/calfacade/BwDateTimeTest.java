@@ -0,0 +1,240 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calfacade;
+
+import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Dur;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/** Check the date arithmetic in BwDateTime against the ical4j and
+ * java.util.Calendar based code it replaced.
+ *
+ * <p>These use the factory methods which take the UTC value so no
+ * timezone service is needed.
+ */
+public class BwDateTimeTest {
+  private static TimeZone savedDefault;
+
+  private static final String[] utcVals = {
+          "19700101T000000Z",
+          "19691231T235959Z",
+          "19000228T120000Z",
+          "19000301T000000Z",
+          "20000229T000000Z",
+          "20000301T000000Z",
+          "20231231T235959Z",
+          "20240101T000000Z",
+          "20240228T235959Z",
+          "20240229T120000Z",
+          "20240301T000000Z",
+          "20240310T065959Z", // Around US dst change
+          "20241103T060000Z",
+          "20991231T235959Z",
+          "21000228T000000Z",
+          "21000301T000000Z",
+  };
+
+  private static final String[] dateVals = {
+          "19691231",
+          "19700101",
+          "19000228",
+          "19990131",
+          "19991231",
+          "20000228",
+          "20000229",
+          "20230228",
+          "20231231",
+          "20240131",
+          "20240228",
+          "20240229",
+          "20240430",
+          "20241231",
+          "21000228",
+  };
+
+  private static final String[] durs = {
+          "PT0S",
+          "PT1S",
+          "PT59M59S",
+          "PT1H",
+          "PT24H",
+          "P1D",
+          "P1DT2H30M",
+          "P2W",
+          "P30D",
+          "P366D",
+  };
+
+  /* The old code added durations in the jvm default timezone. Pin it to
+   * UTC so the old results are those for a UTC value.
+   */
+  @BeforeClass
+  public static void setDefaultTimezone() {
+    savedDefault = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+  }
+
+  @AfterClass
+  public static void restoreDefaultTimezone() {
+    TimeZone.setDefault(savedDefault);
+  }
+
+  @Test
+  public void testUtcMillis() throws Throwable {
+    for (final String val: utcVals) {
+      assertEquals(val,
+                   new DateTime(val).getTime(),
+                   BwDateTime.parseUtcMillis(val));
+    }
+  }
+
+  @Test
+  public void testFormatUtc() throws Throwable {
+    for (final String val: utcVals) {
+      final long millis = new DateTime(val).getTime();
+      final DateTime dt = new DateTime(millis);
+      dt.setUtc(true);
+
+      assertEquals(dt.toString(), BwDateTime.formatUtc(millis));
+    }
+  }
+
+  @Test
+  public void testBadValues() {
+    assertEquals(Long.MIN_VALUE, BwDateTime.parseUtcMillis(null));
+    assertEquals(Long.MIN_VALUE, BwDateTime.parseUtcMillis("20240229"));
+    assertEquals(Long.MIN_VALUE,
+                 BwDateTime.parseUtcMillis("20240229T120000"));
+    assertEquals(Long.MIN_VALUE,
+                 BwDateTime.parseUtcMillis("2024022xT120000Z"));
+    assertEquals(Long.MIN_VALUE, BwDateTime.parseDays("20241301", 0));
+  }
+
+  @Test
+  public void testNextDay() throws Throwable {
+    final Calendar cal =
+            Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+
+    for (final String val: dateVals) {
+      /* As the old getNextDay */
+      cal.setTime(new Date(val));
+      cal.add(Calendar.DATE, 1);
+
+      final String expected = new Date(cal.getTime()).toString();
+
+      assertEquals(val,
+                   expected,
+                   BwDateTime.formatDate(BwDateTime.parseDays(val, 0) + 1));
+    }
+  }
+
+  @Test
+  public void testAddDuration() throws Throwable {
+    for (final String val: utcVals) {
+      for (final String dur: durs) {
+        /* As the old addDuration */
+        final DateTime end =
+                new DateTime(new Dur(dur).getTime(new DateTime(val)));
+        end.setUtc(true);
+
+        final BwDateTime res = BwDateTime.fromUTC(false, val).
+                addDuration(BwDuration.makeDuration(dur));
+
+        assertEquals(val + " + " + dur, end.toString(), res.getDtval());
+        assertEquals(val + " + " + dur, end.toString(), res.getDate());
+      }
+    }
+  }
+
+  @Test
+  public void testCompareUtc() throws Throwable {
+    for (final String v1: utcVals) {
+      for (final String v2: utcVals) {
+        checkCompare(BwDateTime.fromUTC(false, v1),
+                     BwDateTime.fromUTC(false, v2));
+      }
+    }
+  }
+
+  @Test
+  public void testCompareDates() throws Throwable {
+    for (final String v1: dateVals) {
+      for (final String v2: dateVals) {
+        checkCompare(BwDateTime.fromUTC(true, v1),
+                     BwDateTime.fromUTC(true, v2));
+      }
+
+      for (final String v2: utcVals) {
+        checkCompare(BwDateTime.fromUTC(true, v1),
+                     BwDateTime.fromUTC(false, v2));
+      }
+    }
+  }
+
+  @Test
+  public void testCompareFloatingAndTzid() throws Throwable {
+    final BwDateTime floating =
+            BwDateTime.makeBwDateTime(false, "20240101T090000",
+                                      "20240101T090000Z", null, true);
+    final BwDateTime ny =
+            BwDateTime.makeBwDateTime(false, "20231231T230000",
+                                      "20240101T040000Z",
+                                      "America/New_York", false);
+    final BwDateTime tokyo =
+            BwDateTime.makeBwDateTime(false, "20240101T100000",
+                                      "20240101T010000Z",
+                                      "Asia/Tokyo", false);
+    final BwDateTime nyDate =
+            BwDateTime.makeBwDateTime(true, "20240101",
+                                      "20240101T050000Z",
+                                      "America/New_York", false);
+
+    final BwDateTime[] vals = {floating, ny, tokyo, nyDate};
+
+    for (final BwDateTime v1: vals) {
+      for (final BwDateTime v2: vals) {
+        checkCompare(v1, v2);
+      }
+
+      for (final String v2: utcVals) {
+        checkCompare(v1, BwDateTime.fromUTC(false, v2));
+      }
+    }
+  }
+
+  /* The old compare was on the UTC strings */
+  private void checkCompare(final BwDateTime dt1,
+                            final BwDateTime dt2) {
+    final int expected = Integer.signum(dt1.getDate().compareTo(dt2.getDate()));
+
+    assertEquals(dt1.getDate() + " : " + dt2.getDate(),
+                 expected,
+                 Integer.signum(dt1.compareTo(dt2)));
+    assertEquals(expected < 0, dt1.before(dt2));
+    assertEquals(expected > 0, dt1.after(dt2));
+  }
+}
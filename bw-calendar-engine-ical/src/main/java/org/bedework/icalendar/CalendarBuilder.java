@@ -127,6 +127,30 @@ public class CalendarBuilder {
 
     private List datesMissingTimezones;
 
+  /* Size of datesMissingTimezones when the current top level component
+   * was started.
+   */
+  private int missingAtStart;
+
+  /** Allows top level components to be processed as each is completed
+   * rather than after the entire calendar has been built.
+   */
+  public interface ComponentHandler {
+    /** Called as each top level component is completed. Components with
+     * dates referring to timezones we have not yet seen are not passed
+     * to the handler and are added to the calendar as usual.
+     *
+     * @param cal the calendar being built - contains the calendar
+     *            properties and any components not handled
+     * @param comp the completed component
+     * @return true if the component was handled and should not be added
+     *         to the calendar
+     */
+    boolean component(Calendar cal, Component comp);
+  }
+
+  private ComponentHandler componentHandler;
+
     /**
      * The calendar instance created by the builder.
      */
@@ -168,6 +192,13 @@ public class CalendarBuilder {
                 new ParameterFactoryRegistry(), tzRegistry);
     }
 
+  /**
+   * @param val handler called as each top level component is completed - null for none
+   */
+  public void setComponentHandler(final ComponentHandler val) {
+    componentHandler = val;
+  }
+
   public Component getComponent() {
     if (components.size() == 0) {
       return null;
@@ -247,6 +278,7 @@ public class CalendarBuilder {
         components.clear();
         property = null;
         datesMissingTimezones = new ArrayList();
+        missingAtStart = 0;
 
         parser.parse(uin, contentHandler);
 
@@ -310,11 +342,18 @@ public class CalendarBuilder {
               }
             }
           } else {
-            calendar.getComponents().add(component);
             if ((component instanceof VTimeZone) && (tzRegistry != null)) {
               // register the timezone for use with iCalendar objects..
               tzRegistry.register(new TimeZone((VTimeZone) component));
             }
+
+            if ((componentHandler != null) &&
+                (datesMissingTimezones.size() == missingAtStart) &&
+                componentHandler.component(calendar, component)) {
+              return;
+            }
+
+            calendar.getComponents().add(component);
           }
         }
 
@@ -395,6 +434,10 @@ public class CalendarBuilder {
          */
         @Override
         public void startComponent(final String name) {
+          if (getComponent() == null) {
+            missingAtStart = datesMissingTimezones.size();
+          }
+
           CalendarBuilder.this.startComponent(componentFactory.createComponent(name));
         }
 
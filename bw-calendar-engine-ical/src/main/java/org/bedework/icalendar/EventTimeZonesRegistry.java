@@ -21,7 +21,6 @@ package org.bedework.icalendar;
 import org.bedework.calfacade.BwEvent;
 import org.bedework.calfacade.BwXproperty;
 import org.bedework.util.misc.Util;
-import org.bedework.util.timezones.Timezones;
 
 import net.fortuna.ical4j.model.TimeZone;
 import net.fortuna.ical4j.model.TimeZoneRegistry;
@@ -76,7 +75,7 @@ public class EventTimeZonesRegistry implements TimeZoneRegistry {
   @Override
   public TimeZone getTimeZone(final String id) {
     try {
-      TimeZone tz = Timezones.getTz(id);
+      TimeZone tz = TzCache.getTz(id);
       if (tz != null) {
         return  tz;
       }
@@ -20,8 +20,10 @@ package org.bedework.icalendar;
 
 import org.bedework.calfacade.BwCalendar;
 import org.bedework.calfacade.BwEvent;
+import org.bedework.calfacade.BwEventProxy;
 import org.bedework.calfacade.BwPrincipal;
 import org.bedework.calfacade.BwVersion;
+import org.bedework.calfacade.BwXproperty;
 import org.bedework.calfacade.base.StartEndComponent;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.svc.EventInfo;
@@ -34,6 +36,7 @@ import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 import org.bedework.util.calendar.ScheduleMethods;
 import org.bedework.util.calendar.WsXMLTranslator;
 import org.bedework.util.calendar.XmlCalendarBuilder;
+import org.bedework.util.misc.Util;
 import org.bedework.util.timezones.Timezones;
 import org.bedework.util.xml.XmlEmit;
 import org.bedework.util.xml.XmlEmit.NameSpace;
@@ -54,6 +57,7 @@ import ietf.params.xml.ns.icalendar_2.VjournalType;
 import ietf.params.xml.ns.icalendar_2.VtodoType;
 import net.fortuna.ical4j.data.CalendarOutputter;
 import net.fortuna.ical4j.data.CalendarParserImpl;
+import net.fortuna.ical4j.data.FoldingWriter;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.data.UnfoldingReader;
 import net.fortuna.ical4j.model.Calendar;
@@ -79,6 +83,7 @@ import net.fortuna.ical4j.model.property.ProdId;
 import net.fortuna.ical4j.model.property.RRule;
 import net.fortuna.ical4j.model.property.TzId;
 import net.fortuna.ical4j.model.property.Version;
+import net.fortuna.ical4j.util.Strings;
 import org.apache.log4j.Logger;
 
 import java.io.Reader;
@@ -88,8 +93,12 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 
 import javax.xml.bind.JAXBElement;
@@ -123,6 +132,12 @@ public class IcalTranslator implements Serializable {
     /** Support simple contacts only.
      */
     public boolean simpleContact = true;
+
+    /** Keep the canonical icalendar form of imported events. Reads of
+     * events unchanged since the import will return that form rather
+     * than regenerating it.
+     */
+    public boolean storeCanonical;
   }
 
   public static final String prodId = "//Bedework.org//BedeWork V" +
@@ -143,6 +158,13 @@ public class IcalTranslator implements Serializable {
     debug = getLog().isDebugEnabled();
   }
 
+  /**
+   * @return the parameters for this translator
+   */
+  public Pars getPars() {
+    return pars;
+  }
+
   /* ====================================================================
    *                     Translation methods
    * ==================================================================== */
@@ -608,8 +630,56 @@ public class IcalTranslator implements Serializable {
                             final int methodType,
                             final Writer wtr) throws CalFacadeException {
     try {
-      Calendar cal = toIcal(vals, methodType);
-      writeCalendar(cal, wtr);
+      /* The calendar only gets the properties and timezones. The
+         rendered form of each event is appended from the rendered
+         cache where possible.
+       */
+      final Calendar cal = newIcal(methodType);
+      final StringBuilder tzs = new StringBuilder();
+      final StringBuilder comps = new StringBuilder();
+
+      if (vals != null) {
+        final TreeSet<String> added = new TreeSet<>();
+
+        for (final Object o: vals) {
+          if (!(o instanceof EventInfo)) {
+            // XXX implement
+            warn("Unimplemented toIcal for " + o.getClass().getName());
+            continue;
+          }
+
+          final EventInfo ei = (EventInfo)o;
+          final BwEvent ev = ei.getEvent();
+          final EventTimeZonesRegistry tzreg =
+                  new EventTimeZonesRegistry(this, ev);
+
+          if (!cb.getTimezonesByReference()) {
+            /* Add referenced timezones to the calendar */
+            addIcalTimezones(tzs, ev, added, tzreg);
+          }
+
+          comps.append(getIcalComponents(ei, methodType, tzreg));
+        }
+      }
+
+      /* This is what CalendarOutputter(false, 74), as used by
+         writeCalendar(Calendar, Writer), does. It never validated the
+         calendar so we lose nothing by writing the text ourselves.
+       */
+      final FoldingWriter fwtr = new FoldingWriter(wtr, 74);
+
+      fwtr.write(Calendar.BEGIN);
+      fwtr.write(':');
+      fwtr.write(Calendar.VCALENDAR);
+      fwtr.write(Strings.LINE_SEPARATOR);
+      fwtr.write(cal.getProperties().toString());
+      fwtr.write(tzs.toString());
+      fwtr.write(comps.toString());
+      fwtr.write(Calendar.END);
+      fwtr.write(':');
+      fwtr.write(Calendar.VCALENDAR);
+      fwtr.write(Strings.LINE_SEPARATOR);
+      fwtr.flush();
     } catch (CalFacadeException cfe) {
       throw cfe;
     } catch (Throwable t) {
@@ -806,6 +876,87 @@ public class IcalTranslator implements Serializable {
     }
   }
 
+  /** Receives the entities produced by a streamed parse
+   */
+  public interface EventInfoHandler {
+    /** Called with each batch of converted entities. Overrides are
+     * attached to their master so only masters appear in the batch.
+     *
+     * @param eis    batch of converted entities
+     * @throws CalFacadeException
+     */
+    void handle(Collection<EventInfo> eis) throws CalFacadeException;
+  }
+
+  /** Default number of masters handed to an EventInfoHandler at once */
+  public static final int defaultStreamBatchSize = 100;
+
+  /** Convert the Icalendar reader component by component. Unlike the
+   * other fromIcal methods the ical4j Calendar is never built in full.
+   * Each VEVENT or VTODO is converted as it is parsed and the resulting
+   * objects are handed to the handler in batches, so large imports can
+   * be persisted as they are read.
+   *
+   * <p>Overrides are attached by uid to their master if it is in the
+   * current batch, or held until the master appears. Overrides arriving
+   * after their master was handed off are converted at the end against
+   * the stored master, so the handler should persist each batch before
+   * returning.
+   *
+   * <p>Components we cannot stream, e.g. those referring to a timezone
+   * defined later in the data, are converted after the parse and
+   * delivered in the final batch.
+   *
+   * @param col      collection the entities will live in - possibly null
+   * @param rdr      icalendar data
+   * @param diff     True if we should assume we are updating existing events.
+   * @param mergeAttendees True if we should only update our own attendee.
+   * @param batchSize number of masters in each batch
+   * @param handler  receives each batch
+   * @return Icalendar with the calendar properties and timezones only
+   * @throws CalFacadeException
+   */
+  public Icalendar fromIcal(final BwCalendar col,
+                            final Reader rdr,
+                            final boolean diff,
+                            final boolean mergeAttendees,
+                            final int batchSize,
+                            final EventInfoHandler handler) throws CalFacadeException {
+    final Icalendar ic = new Icalendar();
+    final Streamer streamer = new Streamer(col, ic, diff, mergeAttendees,
+                                           batchSize, handler);
+
+    try {
+      setSystemProperties();
+
+      final CalendarBuilder bldr =
+              new CalendarBuilder(new CalendarParserImpl(), ic);
+
+      bldr.setComponentHandler(streamer);
+
+      streamer.finish(bldr.build(new UnfoldingReader(rdr, true)));
+
+      return ic;
+    } catch (final CalFacadeException cfe) {
+      throw cfe;
+    } catch (final ParserException pe) {
+      if (streamer.failure != null) {
+        throw streamer.failure;
+      }
+
+      if (debug) {
+        error(pe);
+      }
+      throw new IcalMalformedException(pe.getMessage());
+    } catch (final Throwable t) {
+      if (streamer.failure != null) {
+        throw streamer.failure;
+      }
+
+      throw new CalFacadeException(t);
+    }
+  }
+
   /** Add an override as part of an update
    * @param ei
    * @param comp
@@ -842,25 +993,15 @@ public class IcalTranslator implements Serializable {
         return ic;
       }
 
-      PropertyList pl = cal.getProperties();
-      Property prop = pl.getProperty(Property.PRODID);
-      if (prop != null) {
-        ic.setProdid(prop.getValue());
-      }
-
-      prop = pl.getProperty(Property.VERSION);
-      if (prop != null) {
-        ic.setVersion(prop.getValue());
-      }
+      setCalendarProperties(ic, cal);
 
-      ic.setMethod(getMethod(cal));
+      Collection<CalendarComponent> clist = orderedComponents(cal.getComponents());
+      Canonical canonical = null;
 
-      prop = pl.getProperty(Property.CALSCALE);
-      if (prop != null) {
-        ic.setCalscale(prop.getValue());
+      if (pars.storeCanonical) {
+        canonical = new Canonical();
       }
 
-      Collection<CalendarComponent> clist = orderedComponents(cal.getComponents());
       for (CalendarComponent comp: clist) {
         if (comp instanceof VFreeBusy) {
           EventInfo ei = BwEventUtil.toEvent(cb, col, ic, comp, diff, mergeAttendees);
@@ -880,9 +1021,18 @@ public class IcalTranslator implements Serializable {
           if (ei != null) {
             ic.addComponent(ei);
           }
+
+          /* Overrides return null - their text still belongs to the master */
+          if (canonical != null) {
+            canonical.add(comp, ei);
+          }
         }
       }
 
+      if (canonical != null) {
+        canonical.setCanonical();
+      }
+
       return ic;
     } catch (CalFacadeException cfe) {
       throw cfe;
@@ -891,6 +1041,261 @@ public class IcalTranslator implements Serializable {
     }
   }
 
+  private static void setCalendarProperties(final Icalendar ic,
+                                            final Calendar cal) {
+    PropertyList pl = cal.getProperties();
+    Property prop = pl.getProperty(Property.PRODID);
+    if (prop != null) {
+      ic.setProdid(prop.getValue());
+    }
+
+    prop = pl.getProperty(Property.VERSION);
+    if (prop != null) {
+      ic.setVersion(prop.getValue());
+    }
+
+    ic.setMethod(getMethod(cal));
+
+    prop = pl.getProperty(Property.CALSCALE);
+    if (prop != null) {
+      ic.setCalscale(prop.getValue());
+    }
+  }
+
+  /* Converts components as the builder completes them and hands the
+   * results to the handler in batches.
+   */
+  private class Streamer implements CalendarBuilder.ComponentHandler {
+    private final BwCalendar col;
+    private final Icalendar ic;
+    private final boolean diff;
+    private final boolean mergeAttendees;
+    private final int batchSize;
+    private final EventInfoHandler handler;
+
+    private boolean started;
+
+    /* The current batch. Masters stay here until handed off so
+     * overrides can be attached by uid.
+     */
+    private Icalendar batch;
+    private final Set<String> batchUids = new HashSet<>();
+    private Canonical canonical;
+
+    /* Overrides waiting for their master */
+    private final Map<String, List<CalendarComponent>> waiting =
+            new HashMap<>();
+
+    /* Overrides for masters already handed off */
+    private final List<CalendarComponent> late = new ArrayList<>();
+
+    /* Uids of masters already handed off */
+    private final Set<String> done = new HashSet<>();
+
+    /* Set if the handler failed - the parser will wrap our exception */
+    CalFacadeException failure;
+
+    Streamer(final BwCalendar col,
+             final Icalendar ic,
+             final boolean diff,
+             final boolean mergeAttendees,
+             final int batchSize,
+             final EventInfoHandler handler) {
+      this.col = col;
+      this.ic = ic;
+      this.diff = diff;
+      this.mergeAttendees = mergeAttendees;
+      this.batchSize = batchSize;
+      this.handler = handler;
+    }
+
+    @Override
+    public boolean component(final Calendar cal,
+                             final Component comp) {
+      try {
+        return doComponent(cal, comp);
+      } catch (final CalFacadeException cfe) {
+        failure = cfe;
+      } catch (final Throwable t) {
+        failure = new CalFacadeException(t);
+      }
+
+      throw new RuntimeException(failure);
+    }
+
+    /* Called after the parse with whatever we did not handle */
+    void finish(final Calendar cal) throws CalFacadeException {
+      if (cal == null) {
+        return;
+      }
+
+      start(cal);
+
+      /* Overrides with no master in the data */
+      for (final List<CalendarComponent> ovs: waiting.values()) {
+        for (final CalendarComponent comp: ovs) {
+          convert(comp);
+        }
+      }
+
+      waiting.clear();
+
+      flush();
+
+      /* These need the stored master */
+      for (final CalendarComponent comp: late) {
+        final EventInfo ei = BwEventUtil.toEvent(cb, col, batch, comp,
+                                                 true, mergeAttendees);
+
+        if (ei != null) {
+          batch.addComponent(ei);
+        }
+      }
+
+      late.clear();
+
+      flush();
+
+      /* Whatever the builder kept, e.g. components using a timezone
+       * defined later in the data.
+       */
+      makeIc(col, batch, cal, diff, mergeAttendees);
+
+      flush();
+    }
+
+    private boolean doComponent(final Calendar cal,
+                                final Component comp) throws CalFacadeException {
+      start(cal);
+
+      if (comp instanceof VTimeZone) {
+        final TimeZoneInfo tzi = doTimeZone((VTimeZone)comp);
+
+        ic.addTimeZone(tzi);
+        batch.addTimeZone(tzi);
+
+        return true;
+      }
+
+      if (!(comp instanceof VEvent) && !(comp instanceof VToDo)) {
+        // Converted after the parse
+        return false;
+      }
+
+      final CalendarComponent ccomp = (CalendarComponent)comp;
+      final Property uidProp = IcalUtil.getProperty(ccomp, Property.UID);
+
+      if (uidProp == null) {
+        return false;
+      }
+
+      final String uid = uidProp.getValue();
+
+      if (IcalUtil.getProperty(ccomp, Property.RECURRENCE_ID) != null) {
+        if (batchUids.contains(uid)) {
+          convert(ccomp);
+        } else if (done.contains(uid)) {
+          late.add(ccomp);
+        } else {
+          List<CalendarComponent> ovs = waiting.get(uid);
+
+          if (ovs == null) {
+            ovs = new ArrayList<>();
+            waiting.put(uid, ovs);
+          }
+
+          ovs.add(ccomp);
+        }
+
+        return true;
+      }
+
+      /* Only break between masters so following overrides are in the
+       * same batch.
+       */
+      if (batchUids.size() >= batchSize) {
+        flush();
+      }
+
+      convert(ccomp);
+      batchUids.add(uid);
+
+      final List<CalendarComponent> ovs = waiting.remove(uid);
+
+      if (ovs != null) {
+        for (final CalendarComponent ov: ovs) {
+          convert(ov);
+        }
+      }
+
+      return true;
+    }
+
+    private void start(final Calendar cal) {
+      if (started) {
+        return;
+      }
+
+      setCalendarProperties(ic, cal);
+      newBatch();
+      started = true;
+    }
+
+    private void convert(final CalendarComponent comp) throws CalFacadeException {
+      final EventInfo ei = BwEventUtil.toEvent(cb, col, batch, comp, diff,
+                                               mergeAttendees);
+
+      if (ei != null) {
+        batch.addComponent(ei);
+      }
+
+      if (canonical != null) {
+        canonical.add(comp, ei);
+      }
+    }
+
+    private void flush() throws CalFacadeException {
+      if (canonical != null) {
+        canonical.setCanonical();
+      }
+
+      final List<EventInfo> eis = new ArrayList<>();
+
+      for (final Object o: batch.getComponents()) {
+        if (o instanceof EventInfo) {
+          eis.add((EventInfo)o);
+        }
+      }
+
+      if (!eis.isEmpty()) {
+        handler.handle(eis);
+      }
+
+      done.addAll(batchUids);
+      newBatch();
+    }
+
+    private void newBatch() {
+      batch = new Icalendar();
+      batch.setProdid(ic.getProdid());
+      batch.setVersion(ic.getVersion());
+      batch.setMethod(ic.getMethod());
+      batch.setCalscale(ic.getCalscale());
+
+      for (final TimeZoneInfo tzi: ic.getTimeZones()) {
+        batch.addTimeZone(tzi);
+      }
+
+      batchUids.clear();
+
+      if (pars.storeCanonical) {
+        canonical = new Canonical();
+      } else {
+        canonical = null;
+      }
+    }
+  }
+
   /** Get the method for the calendar
    *
    * @param val
@@ -905,6 +1310,118 @@ public class IcalTranslator implements Serializable {
     return prop.getValue();
   }
 
+  /* Collects the text of the components for each uid so we can save
+   * the canonical form of imported events.
+   */
+  private static class Canonical {
+    private final Map<String, StringBuilder> texts = new HashMap<>();
+
+    /* Uids we won't save */
+    private final Set<String> skipped = new TreeSet<>();
+
+    private final Map<String, EventInfo> masters = new HashMap<>();
+
+    void add(final CalendarComponent comp,
+             final EventInfo ei) throws CalFacadeException {
+      final Property uidProp = IcalUtil.getProperty(comp, Property.UID);
+
+      if (uidProp == null) {
+        return;
+      }
+
+      final String uid = uidProp.getValue();
+
+      if (skipped.contains(uid)) {
+        return;
+      }
+
+      if (!(comp instanceof VEvent) && !(comp instanceof VToDo)) {
+        skip(uid);
+        return;
+      }
+
+      /* Alarms are per user so these always get regenerated */
+      final ComponentList alarms;
+      if (comp instanceof VEvent) {
+        alarms = ((VEvent)comp).getAlarms();
+      } else {
+        alarms = ((VToDo)comp).getAlarms();
+      }
+
+      if ((alarms != null) && !alarms.isEmpty()) {
+        skip(uid);
+        return;
+      }
+
+      if (IcalUtil.getProperty(comp, Property.RECURRENCE_ID) == null) {
+        if (ei == null) {
+          skip(uid);
+          return;
+        }
+
+        final BwEvent ev = ei.getEvent();
+
+        /* The master - timezone ids must be the ones we will emit */
+        if (!tzidMatches(comp, Property.DTSTART,
+                         ev.getDtstart().getTzid()) ||
+                !tzidMatches(comp, Property.DTEND,
+                             ev.getDtend().getTzid()) ||
+                !tzidMatches(comp, Property.DUE,
+                             ev.getDtend().getTzid())) {
+          skip(uid);
+          return;
+        }
+
+        masters.put(uid, ei);
+      }
+
+      StringBuilder sb = texts.get(uid);
+
+      if (sb == null) {
+        sb = new StringBuilder();
+        texts.put(uid, sb);
+      }
+
+      sb.append(comp.toString());
+    }
+
+    void setCanonical() throws CalFacadeException {
+      for (final String uid: masters.keySet()) {
+        final StringBuilder sb = texts.get(uid);
+
+        if (sb == null) {
+          continue;
+        }
+
+        masters.get(uid).getEvent().setCanonicalIcal(sb.toString());
+      }
+    }
+
+    private void skip(final String uid) {
+      skipped.add(uid);
+      texts.remove(uid);
+      masters.remove(uid);
+    }
+
+    private boolean tzidMatches(final CalendarComponent comp,
+                                final String pname,
+                                final String tzid) {
+      final Property p = IcalUtil.getProperty(comp, pname);
+
+      if (p == null) {
+        return true;
+      }
+
+      final Parameter par = p.getParameter(Parameter.TZID);
+
+      if (par == null) {
+        return true;
+      }
+
+      return par.getValue().equals(tzid);
+    }
+  }
+
   /** Temp - update ical4j * /
   private static class CalBuilder extends CalendarBuilder {
     public CalBuilder(final CalendarParser parser,
@@ -1218,6 +1735,92 @@ public class IcalTranslator implements Serializable {
     }
   }
 
+  /* Return the unfolded text of the components for the event and any
+   * overrides - from the rendered cache if possible.
+   */
+  private String getIcalComponents(final EventInfo val,
+                                   final int methodType,
+                                   final EventTimeZonesRegistry tzreg) throws CalFacadeException {
+    String currentPrincipal = null;
+    final BwPrincipal principal = cb.getPrincipal();
+
+    if (principal != null) {
+      currentPrincipal = principal.getPrincipalRef();
+    }
+
+    final RenderedCache.Key key =
+            RenderedCache.makeKey(val, "text/calendar", methodType,
+                                  currentPrincipal);
+
+    String rendered = RenderedCache.get(key);
+
+    if (rendered != null) {
+      return rendered;
+    }
+
+    rendered = getCanonical(val);
+
+    if (rendered != null) {
+      RenderedCache.put(key, rendered);
+
+      return rendered;
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    final BwEvent ev = val.getEvent();
+
+    if (!ev.getSuppressed()) {
+      if (ev.getEntityType() == IcalDefs.entityTypeFreeAndBusy) {
+        sb.append(VFreeUtil.toVFreeBusy(ev).toString());
+      } else {
+        sb.append(VEventUtil.toIcalComponent(val, false, tzreg,
+                                             currentPrincipal).toString());
+      }
+    }
+
+    if (val.getNumOverrides() > 0) {
+      for (final EventInfo oei: val.getOverrides()) {
+        sb.append(VEventUtil.toIcalComponent(oei, true, tzreg,
+                                             currentPrincipal).toString());
+      }
+    }
+
+    rendered = sb.toString();
+    RenderedCache.put(key, rendered);
+
+    return rendered;
+  }
+
+  /* Return the stored canonical form of the event if it is unchanged
+   * since import and there are no per-user properties to add.
+   */
+  private String getCanonical(final EventInfo val) throws CalFacadeException {
+    final BwEvent ev = val.getEvent();
+
+    if ((ev instanceof BwEventProxy) || ev.getSuppressed() ||
+            hasPeruser(val)) {
+      return null;
+    }
+
+    if (val.getNumOverrides() > 0) {
+      for (final EventInfo oei: val.getOverrides()) {
+        if (hasPeruser(oei)) {
+          return null;
+        }
+      }
+    }
+
+    return ev.getCanonicalIcal();
+  }
+
+  private boolean hasPeruser(final EventInfo val) {
+    final BwEvent ev = val.getEvent();
+
+    return (val.getNumAlarms() > 0) ||
+            !Util.isEmpty(ev.getAlarms()) ||
+            !Util.isEmpty(ev.getXproperties(BwXproperty.peruserPropTransp));
+  }
+
   /* Order all the components so that they are in the following order:
    *
    * XXX should use a TreeSet with a wrapper round the object and sort them including
@@ -1291,7 +1894,7 @@ public class IcalTranslator implements Serializable {
     //}
 
     try {
-      TimeZone tz = Timezones.getTz(id);
+      TimeZone tz = TzCache.getTz(id);
       String tzSpec = null;
 
       if (tz == null) {
@@ -1360,6 +1963,52 @@ public class IcalTranslator implements Serializable {
     }
   }
 
+  /* As above but appends the text of the VTIMEZONE. System timezones
+   * come from the shared cache so are only rendered once.
+   */
+  private void addIcalTimezones(final StringBuilder sb, final BwEvent ev,
+                                final TreeSet<String> added,
+                                final TimeZoneRegistry tzreg) throws CalFacadeException {
+    if (ev.getEntityType() == IcalDefs.entityTypeFreeAndBusy) {
+      return;
+    }
+
+    if (!ev.getForceUTC()) {
+      addIcalTimezone(sb, ev.getDtstart().getTzid(), added, tzreg);
+
+      if (ev.getEndType() == StartEndComponent.endTypeDate) {
+        addIcalTimezone(sb, ev.getDtend().getTzid(), added, tzreg);
+      }
+    }
+  }
+
+  private void addIcalTimezone(final StringBuilder sb, final String tzid,
+                               final TreeSet<String> added,
+                               final TimeZoneRegistry tzreg) throws CalFacadeException {
+    if ((tzid == null) || added.contains(tzid)) {
+      return;
+    }
+
+    added.add(tzid);
+
+    String vtz = TzCache.getVtimezone(tzid);
+
+    if (vtz == null) {
+      // Try the event
+      final TimeZone tz = tzreg.getTimeZone(tzid);
+
+      if ((tz != null) && (tz.getVTimeZone() != null)) {
+        vtz = tz.getVTimeZone().toString();
+      }
+    }
+
+    if (vtz != null) {
+      sb.append(vtz);
+    } else if (debug) {
+      debugMsg("Didn't find timezone with id " + tzid);
+    }
+  }
+
   private void addIcalTimezone(final Calendar cal, final String tzid,
                                final TreeSet<String> added,
                                final TimeZoneRegistry tzreg) throws CalFacadeException {
@@ -25,7 +25,6 @@ import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.util.calendar.IcalDefs;
 import org.bedework.util.calendar.IcalDefs.IcalComponentType;
 import org.bedework.util.calendar.ScheduleMethods;
-import org.bedework.util.timezones.Timezones;
 
 import net.fortuna.ical4j.model.TimeZone;
 import net.fortuna.ical4j.model.TimeZoneRegistry;
@@ -476,7 +475,7 @@ public class Icalendar implements TimeZoneRegistry, ScheduleMethods, Serializabl
   @Override
   public void register(final TimeZone timezone) {
     try {
-      TimeZone tz = Timezones.getTz(timezone.getID());
+      TimeZone tz = TzCache.getTz(timezone.getID());
       if (tz != null) {
         // Already three
         return;
@@ -513,7 +512,7 @@ public class Icalendar implements TimeZoneRegistry, ScheduleMethods, Serializabl
   @Override
   public TimeZone getTimeZone(final String id) {
     try {
-      TimeZone tz = Timezones.getTz(id);
+      TimeZone tz = TzCache.getTz(id);
       if (tz != null) {
         return  tz;
       }
@@ -148,26 +148,12 @@ public class JcalHandler implements Serializable {
       jgen.writeStartArray(); // for components
 
       for (final EventInfo ei: vals) {
-        BwEvent ev = ei.getEvent();
-
-        final Component comp;
-        if (ev.getEntityType() == IcalDefs.entityTypeFreeAndBusy) {
-          comp = VFreeUtil.toVFreeBusy(ev);
-        } else {
-          comp = VEventUtil.toIcalComponent(ei, false, tzreg,
-                                            currentPrincipal);
-        }
-
-        outComp(jgen, comp);
+        final String rendered = getJcalComponents(ei, methodType,
+                                                  currentPrincipal,
+                                                  tzreg);
 
-        if (ei.getNumOverrides() > 0) {
-          for (final EventInfo oei: ei.getOverrides()) {
-            ev = oei.getEvent();
-            outComp(jgen, VEventUtil.toIcalComponent(oei,
-                                                     true,
-                                                     tzreg,
-                                                     currentPrincipal));
-          }
+        if (rendered.length() > 0) {
+          jgen.writeRawValue(rendered);
         }
       }
 
@@ -183,6 +169,68 @@ public class JcalHandler implements Serializable {
     }
   }
 
+  /* Return the json for the components of the event and any overrides
+   * as a comma separated list - from the rendered cache if possible.
+   */
+  private static String getJcalComponents(final EventInfo ei,
+                                          final int methodType,
+                                          final String currentPrincipal,
+                                          final EventTimeZonesRegistry tzreg) throws CalFacadeException {
+    final RenderedCache.Key key =
+            RenderedCache.makeKey(ei, "application/calendar+json",
+                                  methodType, currentPrincipal);
+
+    String rendered = RenderedCache.get(key);
+
+    if (rendered != null) {
+      return rendered;
+    }
+
+    try {
+      final StringWriter sw = new StringWriter();
+      final JsonGenerator jgen = jsonFactory.createJsonGenerator(sw);
+
+      jgen.writeStartArray();
+
+      BwEvent ev = ei.getEvent();
+
+      final Component comp;
+      if (ev.getEntityType() == IcalDefs.entityTypeFreeAndBusy) {
+        comp = VFreeUtil.toVFreeBusy(ev);
+      } else {
+        comp = VEventUtil.toIcalComponent(ei, false, tzreg,
+                                          currentPrincipal);
+      }
+
+      outComp(jgen, comp);
+
+      if (ei.getNumOverrides() > 0) {
+        for (final EventInfo oei: ei.getOverrides()) {
+          ev = oei.getEvent();
+          outComp(jgen, VEventUtil.toIcalComponent(oei,
+                                                   true,
+                                                   tzreg,
+                                                   currentPrincipal));
+        }
+      }
+
+      jgen.writeEndArray();
+      jgen.flush();
+
+      /* Strip the enclosing array */
+      final String s = sw.toString().trim();
+      rendered = s.substring(1, s.length() - 1).trim();
+    } catch (final CalFacadeException cfe) {
+      throw cfe;
+    } catch (final Throwable t) {
+      throw new CalFacadeException(t);
+    }
+
+    RenderedCache.put(key, rendered);
+
+    return rendered;
+  }
+
   private static void outComp(final JsonGenerator jgen,
                               final Component comp) throws CalFacadeException {
     try {
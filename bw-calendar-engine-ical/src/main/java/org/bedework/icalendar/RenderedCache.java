@@ -0,0 +1,427 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.icalendar;
+
+import org.bedework.calfacade.BwCategory;
+import org.bedework.calfacade.BwContact;
+import org.bedework.calfacade.BwEvent;
+import org.bedework.calfacade.BwLocation;
+import org.bedework.calfacade.BwString;
+import org.bedework.calfacade.svc.EventInfo;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** A jvm wide cache of the rendered form of events. Entries are keyed
+ * by the href and change token (etag) of the event so a changed event
+ * will never match a stale entry. The content type, scheduling method
+ * and current principal are also part of the key as they affect the
+ * output, e.g. per-user transparency and alarms.
+ *
+ * <p>Categories, contacts and the location are resolved separately
+ * from the event and changing them does not change the event's change
+ * token. The text rendered from them is also part of the key.
+ *
+ * <p>The cache is bounded by an estimate of the memory used by the
+ * cached values and discards least recently used entries when full.
+ * Entries for an href are dropped when we see an update or delete
+ * system event for that href.
+ */
+public class RenderedCache {
+  /** Default maximum size - approximate bytes */
+  public static final long defaultMaxBytes = 32 * 1024 * 1024;
+
+  /* Rough per entry overhead for the key and map entry */
+  private static final int entryOverhead = 128;
+
+  private static long maxBytes = defaultMaxBytes;
+
+  private static long bytes;
+
+  private static long hits;
+  private static long misses;
+  private static long flushes;
+
+  private static final Object lock = new Object();
+
+  private static final LinkedHashMap<Key, String> cache =
+          new LinkedHashMap<>(1000,
+                              0.75f,
+                              true); // access order
+
+  private static final Map<String, Set<Key>> hrefKeys = new HashMap<>();
+
+  /** Key for a rendered entity.
+   */
+  public static class Key {
+    private final String href;
+    private final String etag;
+    private final String contentType;
+    private final int methodType;
+    private final String principalHref;
+    private final String entities;
+
+    Key(final String href,
+        final String etag,
+        final String contentType,
+        final int methodType,
+        final String principalHref,
+        final String entities) {
+      this.href = href;
+      this.etag = etag;
+      this.contentType = contentType;
+      this.methodType = methodType;
+      this.principalHref = principalHref;
+      this.entities = entities;
+    }
+
+    int size() {
+      return 2 * (href.length() + etag.length() + contentType.length() +
+                          principalHref.length() + entities.length());
+    }
+
+    @Override
+    public int hashCode() {
+      int h = href.hashCode() * 31 + etag.hashCode();
+      h = h * 31 + contentType.hashCode();
+      h = h * 31 + methodType;
+      h = h * 31 + entities.hashCode();
+
+      return h * 31 + principalHref.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key that = (Key)o;
+
+      return (methodType == that.methodType) &&
+              href.equals(that.href) &&
+              etag.equals(that.etag) &&
+              contentType.equals(that.contentType) &&
+              principalHref.equals(that.principalHref) &&
+              entities.equals(that.entities);
+    }
+  }
+
+  /** Create a key for the event or return null if it cannot be cached,
+   * e.g. it's not yet saved.
+   *
+   * <p>Expanded instances share the href and change token of the master
+   * and forced UTC output depends on the request rather than the event,
+   * so neither is cached. Nor are events retrieved with only some of
+   * their properties as they share the key of the full event.
+   *
+   * @param ei the event
+   * @param contentType of rendered form
+   * @param methodType scheduling method
+   * @param principalHref current principal - may be null
+   * @return key or null for not cacheable
+   */
+  public static Key makeKey(final EventInfo ei,
+                            final String contentType,
+                            final int methodType,
+                            final String principalHref) {
+    if ((ei == null) || ei.getNewEvent() || ei.getPartial()) {
+      return null;
+    }
+
+    final BwEvent ev = ei.getEvent();
+
+    if ((ev == null) || (ev.getColPath() == null) ||
+            (ev.getName() == null) || (ev.getLastmod() == null)) {
+      return null;
+    }
+
+    if ((ev.getRecurrenceId() != null) || ev.getForceUTC()) {
+      return null;
+    }
+
+    final String etag = ev.getCtoken();
+
+    if (etag == null) {
+      return null;
+    }
+
+    String phref = principalHref;
+    if (phref == null) {
+      phref = "";
+    }
+
+    final StringBuilder sb = new StringBuilder();
+
+    appendEntities(sb, ev);
+
+    if (ei.getNumOverrides() > 0) {
+      for (final EventInfo oei: ei.getOverrides()) {
+        appendEntities(sb, oei.getEvent());
+      }
+    }
+
+    return new Key(ev.getHref(), etag, contentType, methodType, phref,
+                   sb.toString());
+  }
+
+  /**
+   * @param key from makeKey - may be null
+   * @return cached value or null
+   */
+  public static String get(final Key key) {
+    if (key == null) {
+      return null;
+    }
+
+    synchronized (lock) {
+      final String val = cache.get(key);
+
+      if (val == null) {
+        misses++;
+      } else {
+        hits++;
+      }
+
+      return val;
+    }
+  }
+
+  /**
+   * @param key from makeKey - may be null
+   * @param val the rendered value
+   */
+  public static void put(final Key key,
+                         final String val) {
+    if ((key == null) || (val == null)) {
+      return;
+    }
+
+    final long sz = entrySize(key, val);
+
+    if (sz > (maxBytes / 4)) {
+      // Too big to be worth it
+      return;
+    }
+
+    synchronized (lock) {
+      final String old = cache.put(key, val);
+      if (old != null) {
+        bytes -= entrySize(key, old);
+      } else {
+        Set<Key> keys = hrefKeys.get(key.href);
+
+        if (keys == null) {
+          keys = new HashSet<>();
+          hrefKeys.put(key.href, keys);
+        }
+
+        keys.add(key);
+      }
+
+      bytes += sz;
+
+      final Iterator<Map.Entry<Key, String>> it = cache.entrySet().iterator();
+
+      while ((bytes > maxBytes) && it.hasNext()) {
+        final Map.Entry<Key, String> ent = it.next();
+
+        bytes -= entrySize(ent.getKey(), ent.getValue());
+        removeHrefKey(ent.getKey());
+        it.remove();
+      }
+    }
+  }
+
+  /** Drop all entries for the given href.
+   *
+   * @param href of entity
+   */
+  public static void invalidate(final String href) {
+    if (href == null) {
+      return;
+    }
+
+    synchronized (lock) {
+      final Set<Key> keys = hrefKeys.remove(href);
+
+      if (keys == null) {
+        return;
+      }
+
+      for (final Key key: keys) {
+        final String val = cache.remove(key);
+
+        if (val != null) {
+          bytes -= entrySize(key, val);
+        }
+      }
+    }
+  }
+
+  /** Empty the cache
+   */
+  public static void flush() {
+    synchronized (lock) {
+      cache.clear();
+      hrefKeys.clear();
+      bytes = 0;
+      flushes++;
+    }
+  }
+
+  /**
+   * @param val approximate maximum bytes used by cached values
+   */
+  public static void setMaxBytes(final long val) {
+    synchronized (lock) {
+      maxBytes = val;
+    }
+
+    if (val < bytes) {
+      flush();
+    }
+  }
+
+  /**
+   * @return approximate maximum bytes used by cached values
+   */
+  public static long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return approximate bytes used by cached values
+   */
+  public static long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return number of entries
+   */
+  public static long getCached() {
+    synchronized (lock) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * @return number of hits
+   */
+  public static long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of misses
+   */
+  public static long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return number of flushes
+   */
+  public static long getFlushes() {
+    return flushes;
+  }
+
+  private static void removeHrefKey(final Key key) {
+    final Set<Key> keys = hrefKeys.get(key.href);
+
+    if (keys == null) {
+      return;
+    }
+
+    keys.remove(key);
+
+    if (keys.isEmpty()) {
+      hrefKeys.remove(key.href);
+    }
+  }
+
+  /* Append the values rendered from the categories, contacts and
+     location of the event.
+   */
+  private static void appendEntities(final StringBuilder sb,
+                                     final BwEvent ev) {
+    if (ev == null) {
+      return;
+    }
+
+    if (ev.getNumCategories() > 0) {
+      for (final BwCategory cat: ev.getCategories()) {
+        sb.append("C");
+        append(sb, cat.getUid());
+        append(sb, cat.getWord());
+      }
+    }
+
+    if (ev.getNumContacts() > 0) {
+      for (final BwContact c: ev.getContacts()) {
+        sb.append("P");
+        append(sb, c.getUid());
+        append(sb, c.getCn());
+        append(sb, c.getLink());
+      }
+    }
+
+    final BwLocation loc = ev.getLocation();
+
+    if (loc != null) {
+      sb.append("L");
+      append(sb, loc.getUid());
+      append(sb, loc.getAddress());
+    }
+  }
+
+  private static void append(final StringBuilder sb,
+                             final BwString val) {
+    if (val == null) {
+      append(sb, (String)null);
+      return;
+    }
+
+    append(sb, val.getLang());
+    append(sb, val.getValue());
+  }
+
+  /* Length prefixed so different values cannot run together */
+  private static void append(final StringBuilder sb,
+                             final String val) {
+    if (val == null) {
+      sb.append("-;");
+      return;
+    }
+
+    sb.append(val.length());
+    sb.append(':');
+    sb.append(val);
+  }
+
+  private static long entrySize(final Key key,
+                                final String val) {
+    return entryOverhead + key.size() + (2 * val.length());
+  }
+}
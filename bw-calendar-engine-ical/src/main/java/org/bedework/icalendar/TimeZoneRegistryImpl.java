@@ -25,8 +25,7 @@ import net.fortuna.ical4j.model.TimeZoneRegistry;
 
 /**
  * The implementation of <code>TimeZoneRegistry</code> for the bedework
- * calendar. This class uses the thread local svci instance to load
- * vtimezone definitions from the database.
+ * calendar. Lookups go through the shared TzCache.
  *
  * @author Mike Douglass  (based on the original by Ben Fortuna)
  */
@@ -62,6 +61,7 @@ public class TimeZoneRegistryImpl implements TimeZoneRegistry {
   public void register(final TimeZone timezone) {
     try {
       Timezones.registerTz(timezone.getID(), timezone);
+      TzCache.invalidate(timezone.getID());
     } catch (Throwable t) {
       throw new RuntimeException(t);
     }
@@ -82,11 +82,7 @@ public class TimeZoneRegistryImpl implements TimeZoneRegistry {
    * @see net.fortuna.ical4j.model.TimeZoneRegistry#getTimeZone(java.lang.String)
    */
   public TimeZone getTimeZone(final String id) {
-    try {
-      return Timezones.getTz(id);
-    } catch (Throwable t) {
-      throw new RuntimeException(t);
-    }
+    return TzCache.getTz(id);
   }
 }
 
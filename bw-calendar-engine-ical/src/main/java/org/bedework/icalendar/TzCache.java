@@ -0,0 +1,244 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.icalendar;
+
+import org.bedework.util.timezones.Timezones;
+
+import net.fortuna.ical4j.model.TimeZone;
+import net.fortuna.ical4j.model.component.VTimeZone;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A jvm wide cache of system timezones and the text of their
+ * VTIMEZONE component. Readers see an immutable snapshot so lookups
+ * need no locking. Misses are loaded from the timezone service and a
+ * new snapshot published.
+ *
+ * <p>The snapshot carries a version - normally the dtstamp of the
+ * timezone data. Setting a different version discards the cached
+ * values.
+ */
+public class TzCache {
+  private static class Entry {
+    final TimeZone tz;
+
+    /* Text of the VTIMEZONE - null if none */
+    final String vtz;
+
+    Entry(final TimeZone tz) {
+      this.tz = tz;
+
+      final VTimeZone v = tz.getVTimeZone();
+
+      if (v == null) {
+        vtz = null;
+      } else {
+        vtz = v.toString();
+      }
+    }
+  }
+
+  private static class Snapshot {
+    final String version;
+    final Map<String, Entry> entries;
+
+    Snapshot(final String version,
+             final Map<String, Entry> entries) {
+      this.version = version;
+      this.entries = entries;
+    }
+  }
+
+  private static volatile Snapshot snapshot =
+          new Snapshot(null, Collections.<String, Entry>emptyMap());
+
+  /* Only writers lock */
+  private static final Object lock = new Object();
+
+  /* Statistics only - not exact */
+  private static long hits;
+  private static long misses;
+
+  /** Get a system timezone.
+   *
+   * @param tzid the id
+   * @return TimeZone or null for unknown id
+   */
+  public static TimeZone getTz(final String tzid) {
+    final Entry ent = getEntry(tzid);
+
+    if (ent == null) {
+      return null;
+    }
+
+    return ent.tz;
+  }
+
+  /** Get the text of the VTIMEZONE component for a system timezone.
+   *
+   * @param tzid the id
+   * @return text or null for unknown id
+   */
+  public static String getVtimezone(final String tzid) {
+    final Entry ent = getEntry(tzid);
+
+    if (ent == null) {
+      return null;
+    }
+
+    return ent.vtz;
+  }
+
+  /** Load the given timezones, e.g. at startup.
+   *
+   * @param tzids ids to load
+   */
+  public static void preload(final Collection<String> tzids) {
+    if (tzids == null) {
+      return;
+    }
+
+    for (final String tzid: tzids) {
+      getEntry(tzid);
+    }
+  }
+
+  /** Discard the cached values if the version differs.
+   *
+   * @param val version - e.g. dtstamp of timezone data
+   */
+  public static void setVersion(final String val) {
+    synchronized (lock) {
+      final String version = snapshot.version;
+
+      if ((version != null) && version.equals(val)) {
+        return;
+      }
+
+      snapshot = new Snapshot(val,
+                              Collections.<String, Entry>emptyMap());
+    }
+  }
+
+  /**
+   * @return current version - may be null
+   */
+  public static String getVersion() {
+    return snapshot.version;
+  }
+
+  /** Discard a single value, e.g. when a timezone is registered.
+   *
+   * @param tzid the id
+   */
+  public static void invalidate(final String tzid) {
+    synchronized (lock) {
+      final Snapshot s = snapshot;
+
+      if (!s.entries.containsKey(tzid)) {
+        return;
+      }
+
+      final Map<String, Entry> m = new HashMap<>(s.entries);
+
+      m.remove(tzid);
+      snapshot = new Snapshot(s.version, Collections.unmodifiableMap(m));
+    }
+  }
+
+  /** Discard all cached values.
+   */
+  public static void flush() {
+    synchronized (lock) {
+      snapshot = new Snapshot(snapshot.version,
+                              Collections.<String, Entry>emptyMap());
+    }
+  }
+
+  /**
+   * @return number of cached timezones
+   */
+  public static int getCached() {
+    return snapshot.entries.size();
+  }
+
+  /**
+   * @return number of hits
+   */
+  public static long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of misses
+   */
+  public static long getMisses() {
+    return misses;
+  }
+
+  private static Entry getEntry(final String tzid) {
+    if (tzid == null) {
+      return null;
+    }
+
+    final Snapshot s = snapshot;
+    Entry ent = s.entries.get(tzid);
+
+    if (ent != null) {
+      hits++;
+      return ent;
+    }
+
+    misses++;
+
+    final TimeZone tz;
+
+    try {
+      tz = Timezones.getTz(tzid);
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+
+    if (tz == null) {
+      // Unknown ids are not cached - they may be registered later
+      return null;
+    }
+
+    ent = new Entry(tz);
+
+    synchronized (lock) {
+      if (snapshot != s) {
+        /* The cache changed while we loaded - possibly new data or an
+           entry flushed. Don't risk caching a stale value. */
+        return ent;
+      }
+
+      final Map<String, Entry> m = new HashMap<>(s.entries);
+
+      m.put(tzid, ent);
+      snapshot = new Snapshot(s.version,
+                              Collections.unmodifiableMap(m));
+    }
+
+    return ent;
+  }
+}
@@ -94,6 +94,8 @@ import org.bedework.calsvci.TimeZonesStoreI;
 import org.bedework.calsvci.UsersI;
 import org.bedework.calsvci.ViewsI;
 import org.bedework.icalendar.IcalCallback;
+import org.bedework.icalendar.RenderedCache;
+import org.bedework.icalendar.TzCache;
 import org.bedework.sysevents.events.SysEvent;
 import org.bedework.sysevents.events.SysEventBase;
 import org.bedework.util.jmx.MBeanUtil;
@@ -109,6 +111,7 @@ import org.hibernate.exception.ConstraintViolationException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -285,6 +288,9 @@ public class CalSvc extends CalSvcI {
         Timezones.initTimezones(tzserverUri);
 
         Timezones.setSystemDefaultTzid(sp.getTzid());
+
+        /* Load the common ones into the shared cache */
+        TzCache.preload(Collections.singletonList(sp.getTzid()));
       }
 
       /* Some checks on parameter validity
@@ -432,6 +438,14 @@ public class CalSvc extends CalSvcI {
       cs.setCached(timezones.getDatesCached());
     }
 
+    final CacheStats rcs = stats.getRenderedCacheStats();
+
+    rcs.setHits(RenderedCache.getHits());
+    rcs.setMisses(RenderedCache.getMisses());
+    rcs.setCached(RenderedCache.getCached());
+    rcs.setFlushes(RenderedCache.getFlushes());
+    stats.setRenderedCacheBytes(RenderedCache.getBytes());
+
     stats.setAccessStats(Access.getStatistics());
 
     return stats;
@@ -604,12 +618,29 @@ public class CalSvc extends CalSvcI {
 
   @Override
   public void endTransaction() throws CalFacadeException {
-    getCal().endTransaction();
+    boolean committed = false;
+
+    try {
+      final boolean rolledback = getCal().isRolledback();
+
+      getCal().endTransaction();
+      committed = !rolledback;
+    } finally {
+      if (prefsHandler != null) {
+        ((Preferences)prefsHandler).endTransaction(committed);
+      }
+    }
   }
 
   @Override
   public void rollbackTransaction() throws CalFacadeException {
-    getCal().rollbackTransaction();
+    try {
+      getCal().rollbackTransaction();
+    } finally {
+      if (prefsHandler != null) {
+        ((Preferences)prefsHandler).endTransaction(false);
+      }
+    }
   }
 
   @Override
@@ -699,6 +730,39 @@ public class CalSvc extends CalSvcI {
     public SimpleFilterParser getParser() throws CalFacadeException {
       return new SvcSimpleFilterParser();
     }
+
+    /* Expressions are resolved with the access of the current principal
+     * against the collections and categories in the public index and
+     * the principal's own. The change tokens for those change when
+     * any are updated.
+     */
+    @Override
+    public String getCacheContext() throws CalFacadeException {
+      final StringBuilder sb = new StringBuilder(
+              getPrincipal().getPrincipalRef());
+
+      sb.append("|");
+      sb.append(getSuperUser());
+      sb.append("|");
+      sb.append(getPars().getPublicAdmin());
+
+      appendChangeTokens(sb, getIndexer(true));
+
+      if (!getPars().isGuest()) {
+        appendChangeTokens(sb, getIndexer(false));
+      }
+
+      return sb.toString();
+    }
+
+    private void appendChangeTokens(final StringBuilder sb,
+                                    final BwIndexer idx)
+            throws CalFacadeException {
+      sb.append("|");
+      sb.append(idx.currentChangeToken(BwIndexer.docTypeCollection));
+      sb.append("|");
+      sb.append(idx.currentChangeToken(BwIndexer.docTypeCategory));
+    }
   }
 
   @Override
@@ -28,6 +28,7 @@ import org.bedework.calfacade.svc.BwPreferences;
 import org.bedework.calfacade.BwPrincipal;
 import org.bedework.calfacade.BwResource;
 import org.bedework.calfacade.CalFacadeDefs;
+import org.bedework.calfacade.CollectionSize;
 import org.bedework.calfacade.base.BwShareableDbentity;
 import org.bedework.calfacade.exc.CalFacadeAccessException;
 import org.bedework.calfacade.exc.CalFacadeException;
@@ -465,6 +466,11 @@ class Calendars extends CalSvcDb implements CalendarsI {
     return getCal().getSyncToken(path);
   }
 
+  @Override
+  public CollectionSize getCollectionSize(final String path) throws CalFacadeException {
+    return getCal().getCollectionSize(path);
+  }
+
   /* ====================================================================
    *                   package private methods
    * ==================================================================== */
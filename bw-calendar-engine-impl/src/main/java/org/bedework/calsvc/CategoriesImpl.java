@@ -21,10 +21,12 @@ package org.bedework.calsvc;
 import org.bedework.calfacade.BwCategory;
 import org.bedework.calfacade.BwString;
 import org.bedework.calfacade.exc.CalFacadeException;
+import org.bedework.calfacade.indexing.BwIndexer;
 import org.bedework.calsvci.Categories;
 import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 
 import java.util.Collection;
+import java.util.concurrent.Future;
 
 /** Class which handles manipulation of Categories.
  *
@@ -60,6 +62,23 @@ public class CategoriesImpl
     return getIndexer().fetchCat(uid, PropertyInfoIndex.UID);
   }
 
+  @Override
+  Future<BwCategory> fetchIndexedByUidAsync(final String uid)
+          throws CalFacadeException {
+    return getIndexer().fetchCatAsync(uid, PropertyInfoIndex.UID);
+  }
+
+  @Override
+  Collection<BwCategory> fetchIndexedByUids(final Collection<String> uids)
+          throws CalFacadeException {
+    return getIndexer().fetchCats(uids);
+  }
+
+  @Override
+  String getDocType() {
+    return BwIndexer.docTypeCategory;
+  }
+
   @Override
   BwCategory findPersistent(final BwCategory val,
                             final String ownerHref) throws CalFacadeException {
@@ -21,10 +21,12 @@ package org.bedework.calsvc;
 import org.bedework.calfacade.BwContact;
 import org.bedework.calfacade.BwString;
 import org.bedework.calfacade.exc.CalFacadeException;
+import org.bedework.calfacade.indexing.BwIndexer;
 import org.bedework.calsvci.Contacts;
 import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 
 import java.util.Collection;
+import java.util.concurrent.Future;
 
 /** Class which handles manipulation of Contacts.
  *
@@ -60,6 +62,23 @@ public class ContactsImpl
     return getIndexer().fetchContact(uid, PropertyInfoIndex.UID);
   }
 
+  @Override
+  Future<BwContact> fetchIndexedByUidAsync(final String uid)
+          throws CalFacadeException {
+    return getIndexer().fetchContactAsync(uid, PropertyInfoIndex.UID);
+  }
+
+  @Override
+  Collection<BwContact> fetchIndexedByUids(final Collection<String> uids)
+          throws CalFacadeException {
+    return getIndexer().fetchContacts(uids);
+  }
+
+  @Override
+  String getDocType() {
+    return BwIndexer.docTypeContact;
+  }
+
   @Override
   BwContact findPersistent(final BwContact val,
                            final String ownerHref) throws CalFacadeException {
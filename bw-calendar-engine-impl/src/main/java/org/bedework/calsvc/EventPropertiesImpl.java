@@ -35,7 +35,13 @@ import org.bedework.access.PrivilegeDefs;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /** Class which handles manipulation of BwEventProperty subclasses which are
  * treated in the same manner, these being Category, Location and contact.
@@ -81,6 +87,16 @@ public abstract class EventPropertiesImpl<T extends BwEventProperty>
 
   abstract T fetchIndexedByUid(String uid) throws CalFacadeException;
 
+  /* as above but don't wait for the response */
+  abstract Future<T> fetchIndexedByUidAsync(String uid) throws CalFacadeException;
+
+  /* the index document type - used for the change token */
+  abstract String getDocType();
+
+  /* fetch a number from indexer in one request */
+  abstract Collection<T> fetchIndexedByUids(Collection<String> uids)
+          throws CalFacadeException;
+
   /** Find a persistent entry like the one given or return null.
    *
    * @param val the non-persistent form
@@ -173,16 +189,82 @@ public abstract class EventPropertiesImpl<T extends BwEventProperty>
       return ents;
     }
 
+    checkChache();
+
+    final List<String> notCached = new ArrayList<>();
+
     for (final String uid: uids) {
-      final T ent = get(uid);
+      final T ent = cachedByUid.get(uid);
+
       if (ent != null) {
-        ents.add(get(uid));
+        ents.add(ent);
+      } else {
+        notCached.add(uid);
+      }
+    }
+
+    if (notCached.isEmpty()) {
+      return ents;
+    }
+
+    final Collection<T> fetched = fetchIndexedByUids(notCached);
+    final Set<String> found = new TreeSet<>();
+
+    for (final T ent: fetched) {
+      if (!found.add(ent.getUid())) {
+        continue;
+      }
+
+      putCachedByUid(ent.getUid(), ent);
+      ents.add(ent);
+    }
+
+    if (fetched.size() == found.size()) {
+      // No duplicates - anything missing doesn't exist
+      return ents;
+    }
+
+    /* Some uids had more than one match and may have crowded others out.
+       Send all the single fetches before waiting for any of them.
+     */
+    final Map<String, Future<T>> pending = new HashMap<>();
+
+    for (final String uid: notCached) {
+      if (found.contains(uid)) {
+        continue;
+      }
+
+      pending.put(uid, fetchIndexedByUidAsync(uid));
+    }
+
+    for (final Map.Entry<String, Future<T>> me: pending.entrySet()) {
+      final T ent = getResult(me.getValue());
+      if (ent != null) {
+        putCachedByUid(me.getKey(), ent);
+        ents.add(ent);
       }
     }
 
     return ents;
   }
 
+  private T getResult(final Future<T> f) throws CalFacadeException {
+    try {
+      return f.get();
+    } catch (final ExecutionException ee) {
+      final Throwable t = ee.getCause();
+
+      if (t instanceof CalFacadeException) {
+        throw (CalFacadeException)t;
+      }
+
+      throw new CalFacadeException(t);
+    } catch (final InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new CalFacadeException(ie);
+    }
+  }
+
   @Override
   public T getPersistent(final String uid) throws CalFacadeException {
     return coreHdlr.get(uid);
@@ -397,12 +479,14 @@ public abstract class EventPropertiesImpl<T extends BwEventProperty>
     return idx;
   }
 
-  /**
+  /** Only changes to entities of our type count. Event changes
+   * don't affect the cached entities.
+   *
    * @return true if indexed data changed
    * @throws CalFacadeException
    */
   protected boolean indexChanged() throws CalFacadeException {
-    final String token = getIndexer().currentChangeToken();
+    final String token = getIndexer().currentChangeToken(getDocType());
 
     final boolean changed = lastChangeToken == null ||
         !lastChangeToken.equals(token);
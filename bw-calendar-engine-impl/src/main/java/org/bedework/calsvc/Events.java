@@ -35,6 +35,7 @@ import org.bedework.calfacade.BwDateTime;
 import org.bedework.calfacade.BwDuration;
 import org.bedework.calfacade.BwEvent;
 import org.bedework.calfacade.BwEventAnnotation;
+import org.bedework.calfacade.BwEventProperty;
 import org.bedework.calfacade.BwEventProxy;
 import org.bedework.calfacade.BwLocation;
 import org.bedework.calfacade.BwOrganizer;
@@ -55,7 +56,6 @@ import org.bedework.calfacade.svc.EventInfo.UpdateResult;
 import org.bedework.calfacade.util.ChangeTable;
 import org.bedework.calfacade.util.ChangeTableEntry;
 import org.bedework.calsvc.scheduling.SchedulingIntf;
-import org.bedework.calsvci.Categories;
 import org.bedework.calsvci.EventProperties;
 import org.bedework.calsvci.EventProperties.EnsureEntityExistsResult;
 import org.bedework.calsvci.EventsI;
@@ -80,10 +80,12 @@ import net.fortuna.ical4j.model.parameter.CuType;
 import net.fortuna.ical4j.model.property.DtStart;
 import net.fortuna.ical4j.model.property.Voter;
 
+import java.io.Reader;
 import java.io.StringReader;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -451,6 +453,7 @@ class Events extends CalSvcDb implements EventsI {
       }
 
       event.setDtstamps(getCurrentTimestamp());
+      event.stampCanonicalIcal();
       if (schedulingObject) {
         event.updateStag(getCurrentTimestamp());
       }
@@ -557,9 +560,17 @@ class Events extends CalSvcDb implements EventsI {
   public UpdateResult update(final EventInfo ei,
                              final boolean noInvites,
                              final String fromAttUri) throws CalFacadeException {
+    if (ei.getPartial()) {
+      // Saving it would drop the properties we did not retrieve
+      throw new CalFacadeException(CalFacadeException.partialEvent);
+    }
+
     try {
       final BwEvent event = ei.getEvent();
       event.setDtstamps(getCurrentTimestamp());
+      if (!(event instanceof BwEventProxy)) {
+        event.stampCanonicalIcal();
+      }
 
       final UpdateResult updResult = ei.getUpdResult();
 
@@ -1181,23 +1192,74 @@ class Events extends CalSvcDb implements EventsI {
     return true;
   }
 
+  @Override
+  public int importIcal(final BwCalendar col,
+                        final Reader rdr) throws CalFacadeException {
+    final IcalTranslator trans =
+            new IcalTranslator(getSvc().getIcalCallback());
+    final int[] count = {0};
+
+    /* The handler must store each batch before returning - overrides
+       arriving after their master are diffed against the stored copy.
+     */
+    trans.fromIcal(col, rdr,
+                   true,  // diff against existing events
+                   false, // don't merge attendees
+                   IcalTranslator.defaultStreamBatchSize,
+                   new IcalTranslator.EventInfoHandler() {
+                     @Override
+                     public void handle(final Collection<EventInfo> eis)
+                             throws CalFacadeException {
+                       for (final EventInfo ei: eis) {
+                         if (ei.getNewEvent()) {
+                           add(ei, true, false, false, true);
+                         } else {
+                           update(ei, true);
+                         }
+                         count[0]++;
+                       }
+                     }
+                   });
+
+    return count[0];
+  }
+
   @Override
   public void implantEntities(final Collection<EventInfo> events) throws CalFacadeException {
     if (Util.isEmpty(events)) {
       return;
     }
 
-    Categories cats = getSvc().getCategoriesHandler();
-    EventProperties<BwLocation> locs = getSvc().getLocationsHandler();
+    /* Collect all the uids so each type is resolved in one go. Events
+       referring to the same entity share the object. Contacts are
+       restored in full from the index so are not resolved here.
+     */
+    final Set<String> catUids = new TreeSet<>();
+    final Set<String> locUids = new TreeSet<>();
 
-    for (EventInfo ei: events) {
-      BwEvent ev = ei.getEvent();
+    for (final EventInfo ei: events) {
+      final BwEvent ev = ei.getEvent();
+
+      if (!Util.isEmpty(ev.getCategoryUids())) {
+        catUids.addAll(ev.getCategoryUids());
+      }
+
+      if (ev.getLocationUid() != null) {
+        locUids.add(ev.getLocationUid());
+      }
+    }
+
+    final Map<String, BwCategory> cats =
+            byUid(getSvc().getCategoriesHandler(), catUids);
+    final Map<String, BwLocation> locs =
+            byUid(getSvc().getLocationsHandler(), locUids);
 
-      Set<String> catUids = ev.getCategoryUids();
+    for (final EventInfo ei: events) {
+      final BwEvent ev = ei.getEvent();
 
-      if (catUids != null) {
-        for (String uid: catUids) {
-          BwCategory cat = cats.get(uid);
+      if (!Util.isEmpty(ev.getCategoryUids())) {
+        for (final String uid: ev.getCategoryUids()) {
+          final BwCategory cat = cats.get(uid);
 
           if (cat != null) {
             ev.addCategory(cat);
@@ -1242,26 +1304,26 @@ class Events extends CalSvcDb implements EventsI {
       return;
     }
 
-    Categories cats = getSvc().getCategoriesHandler();
-    EventProperties<BwLocation> locs = getSvc().getLocationsHandler();
+    final List<EventInfo> events = new ArrayList<>(1);
+    events.add(event);
 
-    BwEvent ev = event.getEvent();
-
-    Set<String> catUids = ev.getCategoryUids();
+    implantEntities(events);
+  }
 
-    if (catUids != null) {
-      for (String uid: catUids) {
-        BwCategory cat = cats.get(uid);
+  private <T extends BwEventProperty> Map<String, T> byUid(
+          final EventProperties<T> hdlr,
+          final Collection<String> uids) throws CalFacadeException {
+    final Map<String, T> res = new HashMap<>();
 
-        if (cat != null) {
-          ev.addCategory(cat);
-        }
-      }
+    if (uids.isEmpty()) {
+      return res;
     }
 
-    if (ev.getLocationUid() != null) {
-      ev.setLocation(locs.get(ev.getLocationUid()));
+    for (final T ent: hdlr.get(uids)) {
+      res.put(ent.getUid(), ent);
     }
+
+    return res;
   }
 
   private void buildCalendarSet(final Collection<BwCalendar> cals,
@@ -1593,6 +1655,15 @@ class Events extends CalSvcDb implements EventsI {
 
   private EventInfo postProcess(final CoreEventInfo cei)
           throws CalFacadeException {
+    final EventInfo ei = makeEventInfo(cei);
+
+    implantEntities(ei);
+
+    return ei;
+  }
+
+  private EventInfo makeEventInfo(final CoreEventInfo cei)
+          throws CalFacadeException {
     if (cei == null) {
       return null;
     }
@@ -1630,8 +1701,6 @@ class Events extends CalSvcDb implements EventsI {
 
     ei.setCurrentAccess(cei.getCurrentAccess());
 
-    implantEntities(ei);
-
     return ei;
   }
 
@@ -1640,7 +1709,7 @@ class Events extends CalSvcDb implements EventsI {
     TreeSet<EventInfo> eis = new TreeSet<EventInfo>();
 
     for (CoreEventInfo cei: ceis) {
-      eis.add(postProcess(cei));
+      eis.add(makeEventInfo(cei));
     }
 
     implantEntities(eis);
@@ -21,10 +21,12 @@ package org.bedework.calsvc;
 import org.bedework.calfacade.BwLocation;
 import org.bedework.calfacade.BwString;
 import org.bedework.calfacade.exc.CalFacadeException;
+import org.bedework.calfacade.indexing.BwIndexer;
 import org.bedework.calsvci.Locations;
 import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 
 import java.util.Collection;
+import java.util.concurrent.Future;
 
 /** Class which handles manipulation of Locations.
  *
@@ -60,6 +62,23 @@ public class LocationsImpl
     return getIndexer().fetchLocation(uid, PropertyInfoIndex.UID);
   }
 
+  @Override
+  Future<BwLocation> fetchIndexedByUidAsync(final String uid)
+          throws CalFacadeException {
+    return getIndexer().fetchLocationAsync(uid, PropertyInfoIndex.UID);
+  }
+
+  @Override
+  Collection<BwLocation> fetchIndexedByUids(final Collection<String> uids)
+          throws CalFacadeException {
+    return getIndexer().fetchLocations(uids);
+  }
+
+  @Override
+  String getDocType() {
+    return BwIndexer.docTypeLocation;
+  }
+
   @Override
   BwLocation findPersistent(final BwLocation val,
                             final String ownerHref) throws CalFacadeException {
@@ -0,0 +1,139 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calsvc;
+
+import org.bedework.caldav.util.notifications.BaseNotificationType;
+import org.bedework.caldav.util.notifications.NotificationType;
+import org.bedework.caldav.util.notifications.admin.AdminNotificationType;
+import org.bedework.caldav.util.notifications.suggest.SuggestBaseNotificationType;
+import org.bedework.calfacade.BwResource;
+import org.bedework.util.misc.Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A jvm wide index of the values we match notifications on which are
+ * only available by parsing the stored XML. The type and encoding are
+ * held in the resource itself.
+ *
+ * <p>Entries are keyed by the resource path and validated against the
+ * etag so an updated notification never matches a stale entry. We only
+ * need to fetch and parse a notification the first time we see it or
+ * when it is a match.
+ */
+class NotificationIndex {
+  /** Maximum number of notifications we hold values for */
+  static final int maxEntries = 10000;
+
+  /** What we know about a stored notification
+   */
+  static class Entry {
+    final String etag;
+
+    /* href of the entity the notification refers to - may be null */
+    final String href;
+
+    Entry(final String etag,
+          final String href) {
+      this.etag = etag;
+      this.href = href;
+    }
+  }
+
+  private static final Map<String, Entry> index =
+          new LinkedHashMap<String, Entry>(1000,
+                                           0.75f,
+                                           true) { // access order
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+              return size() > maxEntries;
+            }
+          };
+
+  /**
+   * @param rsrc the stored notification
+   * @return entry or null if not known or changed
+   */
+  static Entry get(final BwResource rsrc) {
+    final Entry ent;
+
+    synchronized (index) {
+      ent = index.get(key(rsrc));
+    }
+
+    if ((ent == null) || !ent.etag.equals(rsrc.getEtagValue())) {
+      return null;
+    }
+
+    return ent;
+  }
+
+  /**
+   * @param rsrc the stored notification
+   * @param note the parsed notification
+   * @return the new entry
+   */
+  static Entry put(final BwResource rsrc,
+                   final NotificationType note) {
+    final Entry ent = new Entry(rsrc.getEtagValue(),
+                                getHref(note));
+
+    synchronized (index) {
+      index.put(key(rsrc), ent);
+    }
+
+    return ent;
+  }
+
+  /**
+   * @param path of the resource
+   */
+  static void remove(final String path) {
+    synchronized (index) {
+      index.remove(path);
+    }
+  }
+
+  /**
+   * @param note the notification
+   * @return href of the entity it refers to or null
+   */
+  static String getHref(final NotificationType note) {
+    if (note == null) {
+      return null;
+    }
+
+    final BaseNotificationType bnt = note.getNotification();
+
+    if (bnt instanceof AdminNotificationType) {
+      return ((AdminNotificationType)bnt).getHref();
+    }
+
+    if (bnt instanceof SuggestBaseNotificationType) {
+      return ((SuggestBaseNotificationType)bnt).getHref();
+    }
+
+    return null;
+  }
+
+  private static String key(final BwResource rsrc) {
+    return Util.buildPath(false, rsrc.getColPath(), "/", rsrc.getName());
+  }
+}
@@ -263,6 +263,7 @@ class Notifications extends CalSvcDb implements NotificationsI {
             .buildPath(false, ncol.getPath(), "/", val.getName());
 
     getSvc().getResourcesHandler().delete(path);
+    NotificationIndex.remove(path);
   }
 
   @Override
@@ -288,6 +289,7 @@ class Notifications extends CalSvcDb implements NotificationsI {
             .buildPath(false, ncol.getPath(), "/", val.getName());
 
     getSvc().getResourcesHandler().delete(path);
+    NotificationIndex.remove(path);
   }
 
   @Override
@@ -325,39 +327,29 @@ class Notifications extends CalSvcDb implements NotificationsI {
   @Override
   public List<NotificationType> getMatching(final QName type)
           throws CalFacadeException {
-    final List<NotificationType> res = new ArrayList<>();
-
-    final BwCalendar ncol =
-            getCols().getSpecial(BwCalendar.calTypeNotifications,
-                                 true);
-
-    if (ncol == null) {
-      return res;
-    }
-
-    final Collection<BwResource> rsrc =
-            getSvc().getResourcesHandler().getAll(ncol.getPath());
+    return getMatching(type, null, null);
+  }
 
-    if (Util.isEmpty(rsrc)) {
-      return res;
+  @Override
+  public List<NotificationType> getMatchingHref(final QName type,
+                                                final String href)
+          throws CalFacadeException {
+    if (href == null) {
+      return new ArrayList<>();
     }
 
-    for (final BwResource r : rsrc) {
-      if (type != null) {
-        final NotificationInfo ni = NotificationType
-                .fromContentType(r.getContentType());
-        if ((ni == null) || !type.equals(ni.type)) {
-          continue;
-        }
-      }
+    return getMatching(type, href, null);
+  }
 
-      final NotificationType nt = makeNotification(r);
-      if (nt != null) {
-        res.add(nt);
-      }
+  @Override
+  public List<NotificationType> getMatchingEncoding(final QName type,
+                                                    final String encoding)
+          throws CalFacadeException {
+    if (encoding == null) {
+      return new ArrayList<>();
     }
 
-    return res;
+    return getMatching(type, null, encoding);
   }
 
   @Override
@@ -425,10 +417,89 @@ class Notifications extends CalSvcDb implements NotificationsI {
     }
   }
 
+  /* Select on the resource values and the notification index and only
+   * fetch and parse the candidates. Those we haven't seen before are
+   * parsed to index them.
+   */
+  private List<NotificationType> getMatching(final QName type,
+                                             final String href,
+                                             final String encoding)
+          throws CalFacadeException {
+    final List<NotificationType> res = new ArrayList<>();
+
+    final BwCalendar ncol =
+            getCols().getSpecial(BwCalendar.calTypeNotifications,
+                                 true);
+
+    if (ncol == null) {
+      return res;
+    }
+
+    final Collection<BwResource> rsrc =
+            getSvc().getResourcesHandler().getAll(ncol.getPath());
+
+    if (Util.isEmpty(rsrc)) {
+      return res;
+    }
+
+    final List<BwResource> candidates = new ArrayList<>();
+
+    for (final BwResource r : rsrc) {
+      if (type != null) {
+        final NotificationInfo ni = NotificationType
+                .fromContentType(r.getContentType());
+        if ((ni == null) || !type.equals(ni.type)) {
+          continue;
+        }
+      }
+
+      if ((encoding != null) && !encoding.equals(r.getEncoding())) {
+        continue;
+      }
+
+      if (href != null) {
+        final NotificationIndex.Entry ent = NotificationIndex.get(r);
+
+        if ((ent != null) && !href.equals(ent.href)) {
+          continue;
+        }
+      }
+
+      candidates.add(r);
+    }
+
+    if (candidates.isEmpty()) {
+      return res;
+    }
+
+    getSvc().getResourcesHandler().getContents(candidates);
+
+    for (final BwResource r: candidates) {
+      final NotificationType nt = parseNotification(r);
+      if (nt == null) {
+        continue;
+      }
+
+      final NotificationIndex.Entry ent = NotificationIndex.put(r, nt);
+
+      if ((href != null) && !href.equals(ent.href)) {
+        continue;
+      }
+
+      res.add(nt);
+    }
+
+    return res;
+  }
+
   private NotificationType makeNotification(final BwResource rsrc)
           throws CalFacadeException {
     getSvc().getResourcesHandler().getContent(rsrc);
 
+    return parseNotification(rsrc);
+  }
+
+  private NotificationType parseNotification(final BwResource rsrc) {
     final BwResourceContent bwrc = rsrc.getContent();
 
     if (bwrc == null) {
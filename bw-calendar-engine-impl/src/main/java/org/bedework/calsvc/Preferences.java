@@ -36,6 +36,9 @@ import org.bedework.calfacade.svc.prefs.LocationPref;
 import org.bedework.calsvci.PreferencesI;
 import org.bedework.util.misc.Util;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /** This acts as an interface to the database for user preferences.
  *
  * @author Mike Douglass       douglm - bedework.edu
@@ -43,6 +46,11 @@ import org.bedework.util.misc.Util;
 class Preferences extends CalSvcDb implements PreferencesI {
   private BwPreferences prefs;
 
+  /* Preferences saved in this transaction keyed by owner - null value
+   * for deleted. The snapshots are updated once it ends.
+   */
+  private final Map<String, BwPreferences> changed = new HashMap<>();
+
   /**
    * @param svci
    */
@@ -57,6 +65,7 @@ class Preferences extends CalSvcDb implements PreferencesI {
   public void open() {
     super.open();
     prefs = null;
+    changed.clear();
   }
 
   /** Call at svci close
@@ -105,12 +114,29 @@ class Preferences extends CalSvcDb implements PreferencesI {
                                    getPrincipal().getAccount());
     }
 
+    PreferencesCache.put(prefs);
+
     return prefs;
   }
 
   @Override
   public BwPreferences get(final BwPrincipal principal) throws CalFacadeException {
-    return fetch(principal);
+    final BwPreferences snap =
+            PreferencesCache.get(principal.getPrincipalRef());
+
+    if (snap != null) {
+      return snap;
+    }
+
+    final BwPreferences p = fetch(principal);
+
+    if (p == null) {
+      return null;
+    }
+
+    PreferencesCache.put(p);
+
+    return (BwPreferences)p.clone();
   }
 
   /** Update a preferences object
@@ -121,6 +147,7 @@ class Preferences extends CalSvcDb implements PreferencesI {
   @Override
   public void update(final BwPreferences val) throws CalFacadeException {
     getCal().saveOrUpdate(val);
+    changed.put(val.getOwnerHref(), val);
   }
 
   /** delete a preferences object
@@ -131,6 +158,25 @@ class Preferences extends CalSvcDb implements PreferencesI {
   @Override
   public void delete(final BwPreferences val) throws CalFacadeException {
     getCal().delete(val);
+    changed.put(val.getOwnerHref(), null);
+  }
+
+  /** Called when the transaction ends. Committed preferences replace
+   * the snapshot so one loaded earlier by another session cannot be
+   * put back. Otherwise the snapshot is dropped.
+   *
+   * @param committed true if the transaction committed
+   */
+  void endTransaction(final boolean committed) {
+    for (final Map.Entry<String, BwPreferences> me: changed.entrySet()) {
+      if (committed && (me.getValue() != null)) {
+        PreferencesCache.put(me.getValue());
+      } else {
+        PreferencesCache.remove(me.getKey());
+      }
+    }
+
+    changed.clear();
   }
 
   /* (non-Javadoc)
@@ -0,0 +1,138 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calsvc;
+
+import org.bedework.calfacade.svc.BwPreferences;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A jvm wide cache of preference snapshots keyed by the owner href.
+ * A snapshot is a detached copy of the preferences as loaded and is
+ * never modified. Each retrieval gets a new copy.
+ *
+ * <p>Changes are made to the preferences fetched from the db in the
+ * updating session. When that commits the snapshot is replaced by the
+ * saved preferences with their new seq. A snapshot is only replaced by
+ * one with the same or a later seq so a slow session cannot put back
+ * an old version. Entries also expire so changes made in another jvm become
+ * visible.
+ */
+class PreferencesCache {
+  /** Maximum number of principals we hold preferences for */
+  static final int maxEntries = 2000;
+
+  /** Millis for which we use a snapshot */
+  static final long refreshInterval = 5 * 60 * 1000;
+
+  private static long hits;
+  private static long misses;
+
+  private static class Entry {
+    final BwPreferences prefs;
+    final long time;
+
+    Entry(final BwPreferences prefs) {
+      this.prefs = prefs;
+      time = System.currentTimeMillis();
+    }
+  }
+
+  private static final Map<String, Entry> cache =
+          new LinkedHashMap<String, Entry>(100,
+                                           0.75f,
+                                           true) { // access order
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+              return size() > maxEntries;
+            }
+          };
+
+  /**
+   * @param href of owner
+   * @return a copy of the snapshot or null if none
+   */
+  static BwPreferences get(final String href) {
+    final Entry ent;
+
+    synchronized (cache) {
+      ent = cache.get(href);
+
+      if ((ent == null) ||
+              ((System.currentTimeMillis() - ent.time) > refreshInterval)) {
+        misses++;
+        return null;
+      }
+
+      hits++;
+    }
+
+    return (BwPreferences)ent.prefs.clone();
+  }
+
+  /** Store a snapshot of the preferences as loaded.
+   *
+   * @param val preferences
+   */
+  static void put(final BwPreferences val) {
+    if ((val == null) || (val.getOwnerHref() == null) || val.unsaved()) {
+      return;
+    }
+
+    final Entry ent = new Entry((BwPreferences)val.clone());
+
+    synchronized (cache) {
+      final Entry prev = cache.get(val.getOwnerHref());
+
+      if ((prev != null) && (prev.prefs.getSeq() > val.getSeq())) {
+        return;
+      }
+
+      cache.put(val.getOwnerHref(), ent);
+    }
+  }
+
+  /**
+   * @param href of owner
+   */
+  static void remove(final String href) {
+    if (href == null) {
+      return;
+    }
+
+    synchronized (cache) {
+      cache.remove(href);
+    }
+  }
+
+  /**
+   * @return number of hits
+   */
+  static long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of misses
+   */
+  static long getMisses() {
+    return misses;
+  }
+}
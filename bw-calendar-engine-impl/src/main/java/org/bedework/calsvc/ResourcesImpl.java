@@ -26,6 +26,7 @@ import org.bedework.calsvci.ResourcesI;
 
 import org.bedework.access.PrivilegeDefs;
 
+import java.util.Collection;
 import java.util.List;
 
 /** This acts as an interface to the database for resources.
@@ -112,6 +113,11 @@ class ResourcesImpl extends CalSvcDb implements ResourcesI {
     getCal().getResourceContent(val);
   }
 
+  @Override
+  public void getContents(final Collection<BwResource> vals) throws CalFacadeException {
+    getCal().getResourceContents(vals);
+  }
+
   @Override
   public List<BwResource> getAll(final String path) throws CalFacadeException {
     return getCal().getAllResources(path, false, null);
@@ -45,6 +45,7 @@ import org.bedework.calfacade.svc.BwAdminGroup;
 import org.bedework.calfacade.svc.BwCalSuite;
 import org.bedework.calfacade.svc.BwView;
 import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.calfacade.util.PrincipalCache;
 import org.bedework.calsvci.RestoreIntf;
 import org.bedework.util.xml.tagdefs.AppleServerTags;
 
@@ -138,6 +139,8 @@ class RestoreImpl extends CalSvcDb implements RestoreIntf {
 
       o.markUnsaved();
       getCal().saveOrUpdate(o);
+
+      PrincipalCache.invalidate(o.getPrincipalRef());
     } catch (final Throwable t) {
       handleException(t, "Exception restoring user " + o);
     } finally {
@@ -153,6 +156,8 @@ class RestoreImpl extends CalSvcDb implements RestoreIntf {
       o.markUnsaved();
       getCal().saveOrUpdate(o);
 
+      PrincipalCache.invalidate(o.getPrincipalRef());
+
       if (debug) {
         log.debug("Saved admin group " + o);
       }
@@ -31,6 +31,7 @@ import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calfacade.util.BwDateTimeUtil;
 import org.bedework.calsvci.TimeZonesStoreI;
+import org.bedework.icalendar.TzCache;
 
 import net.fortuna.ical4j.model.DateTime;
 import net.fortuna.ical4j.model.property.LastModified;
@@ -161,6 +162,9 @@ public class TimeZonesStoreImpl implements TimeZonesStoreI {
     }
 
     if (redo || (iinfo.ids == null)) {
+      /* Timezone data may have changed - drop the shared cache */
+      TzCache.flush();
+
       String lastmod = null;
 
       if (redo) {
@@ -26,6 +26,7 @@ import org.bedework.calfacade.BwUser;
 import org.bedework.calfacade.DirectoryInfo;
 import org.bedework.calfacade.exc.CalFacadeException;
 import org.bedework.calfacade.svc.BwView;
+import org.bedework.calfacade.util.PrincipalCache;
 import org.bedework.calsvci.CalSvcI;
 import org.bedework.calsvci.UsersI;
 import org.bedework.sysevents.NotificationException;
@@ -38,9 +39,7 @@ import org.bedework.access.WhoDefs;
 
 import java.sql.Timestamp;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /** This acts as an interface to the database for user objects.
  *
@@ -86,14 +85,6 @@ class Users extends CalSvcDb implements UsersI {
     return getUser(account);
   }
 
-  /* Make this session specific for the moment. We could make it static possibly
-   * Also flush every few minutes
-   */
-  private final Map<String, BwPrincipal> principalMap = new HashMap<>();
-
-  private long lastFlush = System.currentTimeMillis();
-  private static final long flushInt = 1000 * 30 * 5; // 5 minutes
-
   private static String principalRoot;
   private static String userPrincipalRoot;
   private static String groupPrincipalRoot;
@@ -117,30 +108,12 @@ class Users extends CalSvcDb implements UsersI {
     groupPrincipalRootLen = groupPrincipalRoot.length();
   }
 
-  private BwPrincipal mappedPrincipal(final String val) {
-    final long now = System.currentTimeMillis();
-
-    if ((now - lastFlush) > flushInt) {
-      principalMap.clear();
-      lastFlush = now;
-      return null;
-    }
-
-    return principalMap.get(val);
-  }
-
   @Override
   public BwPrincipal getPrincipal(final String val) throws CalFacadeException {
     if (val == null) {
       return null;
     }
 
-    BwPrincipal p = mappedPrincipal(val);
-
-    if (p != null) {
-      return p;
-    }
-
     setRoots(getSvc());
 
     if (!val.startsWith(principalRoot)) {
@@ -152,12 +125,17 @@ class Users extends CalSvcDb implements UsersI {
     }
 
     if (val.startsWith(groupPrincipalRoot)) {
-      BwGroup g = getSvc().getDirectories().findGroup(val.substring(groupPrincipalRootLen));
+      /* Users are cached by the core. */
+      final PrincipalCache.Entry ent = PrincipalCache.get(val);
 
-      if (g != null) {
-        principalMap.put(val, g);
+      if (ent != null) {
+        return ent.getPrincipal();
       }
 
+      final BwGroup g = getSvc().getDirectories().findGroup(val.substring(groupPrincipalRootLen));
+
+      PrincipalCache.put(val, g);
+
       return g;
     }
 
@@ -237,6 +215,8 @@ class Users extends CalSvcDb implements UsersI {
   @Override
   public void update(final BwPrincipal principal) throws CalFacadeException {
     getCal().saveOrUpdate(principal);
+
+    PrincipalCache.invalidate(principal.getPrincipalRef());
   }
 
   @Override
@@ -251,7 +231,7 @@ class Users extends CalSvcDb implements UsersI {
     }
 
     /* Set default calendar to null so we don't get blocked. */
-    final BwPreferences prefs = getSvc().getPrefsHandler().get(pr);
+    final BwPreferences prefs = getSvc().getPreferences(pr.getPrincipalRef());
 
     if (prefs != null) {
       prefs.setDefaultCalendarPath(null);
@@ -280,7 +260,21 @@ class Users extends CalSvcDb implements UsersI {
 
     val.setLogon(now);
     val.setLastAccess(now);
-    getCal().saveOrUpdate(val);
+
+    /* val may be a cached copy with an out of date seq. Reload it and
+       save the timestamps on the current version. The cache is
+       refreshed when we commit.
+     */
+    PrincipalCache.invalidate(val.getPrincipalRef());
+    final BwPrincipal pr = getCal().getPrincipal(val.getPrincipalRef());
+
+    if (pr == null) {
+      getCal().saveOrUpdate(val);
+    } else {
+      pr.setLogon(now);
+      pr.setLastAccess(now);
+      getCal().saveOrUpdate(pr);
+    }
 
     /* Ensure we have a polls collection. */
     getSvc().getCal().getSpecialCalendar(val, BwCalendar.calTypePoll,
@@ -189,7 +189,7 @@ class Views extends CalSvcDb implements ViewsI {
   @Override
   public boolean removeCollection(final String name,
                                   final String path) throws CalFacadeException {
-    BwPreferences prefs = getSvc().getPrefsHandler().get(getPrincipal());
+    BwPreferences prefs = getSvc().getPrefsHandler().get();
     checkOwnerOrSuper(prefs);
 
     BwView view = find(name);
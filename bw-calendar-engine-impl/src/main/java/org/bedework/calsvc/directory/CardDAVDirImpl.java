@@ -31,10 +31,8 @@ import org.bedework.access.WhoDefs;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Properties;
 import java.util.TreeSet;
 
-import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
@@ -336,39 +334,8 @@ public class CardDAVDirImpl extends AbstractDirImpl {
 
   private InitialLdapContext createLdapInitContext(final LdapConfigProperties props)
           throws CalFacadeException {
-    Properties env = new Properties();
-
-    // Map all options into the JNDI InitialLdapContext env
-
-    env.setProperty(Context.INITIAL_CONTEXT_FACTORY,
-                    props.getInitialContextFactory());
-
-    env.setProperty(Context.SECURITY_AUTHENTICATION,
-                    props.getSecurityAuthentication());
-
-    env.setProperty(Context.SECURITY_PROTOCOL,
-                    props.getSecurityProtocol());
-
-    env.setProperty(Context.PROVIDER_URL, props.getProviderUrl());
-
-    String protocol = env.getProperty(Context.SECURITY_PROTOCOL);
-    String providerURL = env.getProperty(Context.PROVIDER_URL);
-
-    if (providerURL == null) {
-      providerURL = "ldap://localhost:" +
-      ((protocol != null) && protocol.equals("ssl") ? "389" : "636");
-      env.setProperty(Context.PROVIDER_URL, providerURL);
-    }
-
-    if (props.getAuthDn() != null) {
-      env.setProperty(Context.SECURITY_PRINCIPAL, props.getAuthDn());
-      env.put(Context.SECURITY_CREDENTIALS, props.getAuthPw());
-    }
-
-    InitialLdapContext ctx = null;
-
     try {
-      ctx = new InitialLdapContext(env, null);
+      final InitialLdapContext ctx = LdapContexts.getContext(props);
       if (debug) {
         trace("Logged into LDAP server, " + ctx);
       }
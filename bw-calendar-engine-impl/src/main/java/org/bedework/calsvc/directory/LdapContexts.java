@@ -0,0 +1,102 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calsvc.directory;
+
+import org.bedework.calfacade.configs.LdapConfigProperties;
+
+import java.util.Properties;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ldap.InitialLdapContext;
+
+/** Provides ldap contexts for the directory implementations.
+ *
+ * <p>We ask the jdk ldap provider to pool connections. Closing a context
+ * returns its connection to the pool rather than dropping it so each
+ * search no longer pays for a connect and bind. The pool is shared by
+ * all contexts with the same url and credentials. Its size is set by the
+ * com.sun.jndi.ldap.connect.pool.* system properties - note that ssl
+ * connections are only pooled if the protocol property includes ssl.
+ *
+ * <p>We also set connect and read timeouts so a slow directory fails
+ * the request rather than holding it indefinitely.
+ */
+class LdapContexts {
+  private static final String poolProperty =
+          "com.sun.jndi.ldap.connect.pool";
+
+  private static final String connectTimeoutProperty =
+          "com.sun.jndi.ldap.connect.timeout";
+
+  private static final String readTimeoutProperty =
+          "com.sun.jndi.ldap.read.timeout";
+
+  /** Millis to wait for a connection */
+  static final String connectTimeout = "5000";
+
+  /** Millis to wait for a response */
+  static final String readTimeout = "30000";
+
+  private LdapContexts() {
+  }
+
+  /**
+   * @param props ldap configuration
+   * @return a context - close it when done
+   * @throws NamingException
+   */
+  static InitialLdapContext getContext(final LdapConfigProperties props)
+          throws NamingException {
+    final Properties env = new Properties();
+
+    // Map all options into the JNDI InitialLdapContext env
+
+    env.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                    props.getInitialContextFactory());
+
+    env.setProperty(Context.SECURITY_AUTHENTICATION,
+                    props.getSecurityAuthentication());
+
+    env.setProperty(Context.SECURITY_PROTOCOL,
+                    props.getSecurityProtocol());
+
+    env.setProperty(Context.PROVIDER_URL, props.getProviderUrl());
+
+    final String protocol = env.getProperty(Context.SECURITY_PROTOCOL);
+    String providerURL = env.getProperty(Context.PROVIDER_URL);
+
+    if (providerURL == null) {
+      providerURL = "ldap://localhost:" +
+      (((protocol != null) && protocol.equals("ssl")) ? "389" : "636");
+      env.setProperty(Context.PROVIDER_URL, providerURL);
+    }
+
+    if (props.getAuthDn() != null) {
+      env.setProperty(Context.SECURITY_PRINCIPAL, props.getAuthDn());
+      env.put(Context.SECURITY_CREDENTIALS, props.getAuthPw());
+    }
+
+    env.setProperty(poolProperty, "true");
+    env.setProperty(connectTimeoutProperty, connectTimeout);
+    env.setProperty(readTimeoutProperty, readTimeout);
+
+    return new InitialLdapContext(env, null);
+  }
+}
@@ -30,10 +30,14 @@ import org.bedework.access.WhoDefs;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Properties;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
@@ -48,6 +52,64 @@ import javax.naming.ldap.InitialLdapContext;
  * @version 1.0
  */
 public class UserGroupsLdapImpl extends AbstractDirImpl {
+  /* The transitive group membership of a principal takes a directory
+   * search for each level of nesting. Membership changes rarely so we
+   * keep the closure for all sessions in the jvm.
+   *
+   * An entry is used for closureTtl millis. Once it is older than
+   * closureRefreshAhead we still use it but fetch a new one in the
+   * background so busy principals rarely wait on the directory.
+   */
+  private static final long defaultClosureTtl = 10 * 60 * 1000;
+
+  private static final long defaultClosureRefreshAhead = 8 * 60 * 1000;
+
+  private static volatile long closureTtl = defaultClosureTtl;
+
+  private static volatile long closureRefreshAhead =
+          defaultClosureRefreshAhead;
+
+  private static final int maxClosures = 5000;
+
+  private static final AtomicLong closureHits = new AtomicLong();
+  private static final AtomicLong closureMisses = new AtomicLong();
+
+  private static class GroupClosure {
+    final Collection<BwGroup> groups;
+    final long loaded;
+
+    boolean refreshing;
+
+    GroupClosure(final Collection<BwGroup> groups) {
+      this.groups = groups;
+      loaded = System.currentTimeMillis();
+    }
+
+    /* Callers may modify the groups */
+    Collection<BwGroup> copy() {
+      final Collection<BwGroup> res = new TreeSet<>();
+
+      for (final BwGroup grp: groups) {
+        res.add((BwGroup)grp.clone());
+      }
+
+      return res;
+    }
+  }
+
+  private static final Map<String, GroupClosure> closures =
+          new LinkedHashMap<String, GroupClosure>(100,
+                                                  0.75f,
+                                                  true) { // access order
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, GroupClosure> eldest) {
+              return size() > maxClosures;
+            }
+          };
+
+  private static ExecutorService refresher;
+
   /* ===================================================================
    *  The following should not change the state of the current users
    *  group.
@@ -93,6 +155,74 @@ public class UserGroupsLdapImpl extends AbstractDirImpl {
 
   @Override
   public Collection<BwGroup> getAllGroups(final BwPrincipal val) throws CalFacadeException {
+    final String key = closureKey(val);
+    final GroupClosure gc;
+
+    synchronized (closures) {
+      gc = closures.get(key);
+    }
+
+    final long now = System.currentTimeMillis();
+
+    if ((gc != null) && ((now - gc.loaded) < closureTtl)) {
+      closureHits.incrementAndGet();
+
+      if ((now - gc.loaded) > closureRefreshAhead) {
+        refreshClosure(key, gc, val);
+      }
+
+      return gc.copy();
+    }
+
+    closureMisses.incrementAndGet();
+
+    final Collection<BwGroup> allGroups = findAllGroups(val);
+
+    putClosure(key, allGroups);
+
+    return new GroupClosure(allGroups).copy();
+  }
+
+  /**
+   * @return number of group closures served from the cache
+   */
+  public static long getClosureHits() {
+    return closureHits.get();
+  }
+
+  /**
+   * @return number of group closures fetched from the directory
+   */
+  public static long getClosureMisses() {
+    return closureMisses.get();
+  }
+
+  /** Change the closure lifetimes - intended for tests.
+   *
+   * @param ttl millis for which a closure is used
+   * @param refreshAhead age in millis after which it is refreshed
+   */
+  static void setClosureTimes(final long ttl,
+                              final long refreshAhead) {
+    closureTtl = ttl;
+    closureRefreshAhead = refreshAhead;
+  }
+
+  /** Restore the default closure lifetimes
+   */
+  static void resetClosureTimes() {
+    setClosureTimes(defaultClosureTtl, defaultClosureRefreshAhead);
+  }
+
+  /** Empty the group closure cache
+   */
+  public static void flushClosures() {
+    synchronized (closures) {
+      closures.clear();
+    }
+  }
+
+  private Collection<BwGroup> findAllGroups(final BwPrincipal val) throws CalFacadeException {
     Collection<BwGroup> groups = getGroups(getProps(), val);
     Collection<BwGroup> allGroups = new TreeSet<BwGroup>(groups);
 
@@ -321,41 +451,68 @@ public class UserGroupsLdapImpl extends AbstractDirImpl {
     throw new CalFacadeUnimplementedException();
   }
 
-  private InitialLdapContext createLdapInitContext(final LdapConfigProperties props)
-          throws CalFacadeException {
-    Properties env = new Properties();
-
-    // Map all options into the JNDI InitialLdapContext env
+  private String closureKey(final BwPrincipal val) {
+    return ((LdapConfigProperties)getProps()).getProviderUrl() + "|" +
+            val.getPrincipalRef();
+  }
 
-    env.setProperty(Context.INITIAL_CONTEXT_FACTORY,
-                    props.getInitialContextFactory());
+  private static void putClosure(final String key,
+                                 final Collection<BwGroup> groups) {
+    final GroupClosure gc = new GroupClosure(groups);
 
-    env.setProperty(Context.SECURITY_AUTHENTICATION,
-                    props.getSecurityAuthentication());
+    synchronized (closures) {
+      closures.put(key, gc);
+    }
+  }
 
-    env.setProperty(Context.SECURITY_PROTOCOL,
-                    props.getSecurityProtocol());
+  /* Fetch a new closure on the refresher thread. Only one refresh per
+   * entry - if it fails the entry expires as normal.
+   */
+  private void refreshClosure(final String key,
+                              final GroupClosure gc,
+                              final BwPrincipal val) {
+    synchronized (gc) {
+      if (gc.refreshing) {
+        return;
+      }
 
-    env.setProperty(Context.PROVIDER_URL, props.getProviderUrl());
+      gc.refreshing = true;
+    }
 
-    String protocol = env.getProperty(Context.SECURITY_PROTOCOL);
-    String providerURL = env.getProperty(Context.PROVIDER_URL);
+    final BwPrincipal pr = (BwPrincipal)val.clone();
 
-    if (providerURL == null) {
-      providerURL = "ldap://localhost:" +
-      (((protocol != null) && protocol.equals("ssl")) ? "389" : "636");
-      env.setProperty(Context.PROVIDER_URL, providerURL);
-    }
+    getRefresher().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          putClosure(key, findAllGroups(pr));
+        } catch (final Throwable t) {
+          warn("Unable to refresh groups for " + pr.getPrincipalRef() +
+                       ": " + t.getMessage());
+        }
+      }
+    });
+  }
 
-    if (props.getAuthDn() != null) {
-      env.setProperty(Context.SECURITY_PRINCIPAL, props.getAuthDn());
-      env.put(Context.SECURITY_CREDENTIALS, props.getAuthPw());
+  private static synchronized ExecutorService getRefresher() {
+    if (refresher == null) {
+      refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r, "bw-ldap-group-refresh");
+          t.setDaemon(true);
+          return t;
+        }
+      });
     }
 
-    InitialLdapContext ctx = null;
+    return refresher;
+  }
 
+  private InitialLdapContext createLdapInitContext(final LdapConfigProperties props)
+          throws CalFacadeException {
     try {
-      ctx = new InitialLdapContext(env, null);
+      final InitialLdapContext ctx = LdapContexts.getContext(props);
       if (debug) {
         trace("Logged into LDAP server, " + ctx);
       }
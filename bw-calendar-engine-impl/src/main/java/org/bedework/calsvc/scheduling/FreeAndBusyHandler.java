@@ -37,6 +37,8 @@ import org.bedework.calfacade.ScheduleResult.ScheduleRecipientResult;
 import org.bedework.calfacade.base.StartEndComponent;
 import org.bedework.calfacade.exc.CalFacadeAccessException;
 import org.bedework.calfacade.exc.CalFacadeException;
+import org.bedework.calfacade.ical.BwIcalPropertyInfo;
+import org.bedework.calfacade.ical.BwIcalPropertyInfo.BwIcalPropertyInfoEntry;
 import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calfacade.util.EventPeriods;
 import org.bedework.calfacade.util.Granulator;
@@ -45,6 +47,7 @@ import org.bedework.calfacade.util.Granulator.GetPeriodsPars;
 import org.bedework.calsvc.CalSvc;
 import org.bedework.calsvci.CalendarsI;
 import org.bedework.util.calendar.IcalDefs;
+import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
 
 import org.bedework.access.PrivilegeDefs;
 
@@ -55,6 +58,7 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
 
 /** Rather than have a single class steering calls to a number of smaller classes
@@ -74,6 +78,21 @@ public abstract class FreeAndBusyHandler extends OutBoxHandler {
   private static final int fbtbu = BwFreeBusyComponent.typeBusyUnavailable;
   private static final int fbtbt = BwFreeBusyComponent.typeBusyTentative;
 
+  /* Properties we need to build free busy - with those always
+     retrieved, e.g. start and end. xprops hold per-user transparency.
+   */
+  private static final List<BwIcalPropertyInfoEntry> fbRetrieveList =
+          new ArrayList<>();
+
+  static {
+    fbRetrieveList.add(BwIcalPropertyInfo.getPinfo(PropertyInfoIndex.TRANSP));
+    fbRetrieveList.add(BwIcalPropertyInfo.getPinfo(PropertyInfoIndex.STATUS));
+    fbRetrieveList.add(BwIcalPropertyInfo.getPinfo(PropertyInfoIndex.ATTENDEE));
+    fbRetrieveList.add(BwIcalPropertyInfo.getPinfo(
+            PropertyInfoIndex.ATTENDEE_SCHEDULING_OBJECT));
+    fbRetrieveList.add(BwIcalPropertyInfo.getPinfo(PropertyInfoIndex.XPROP));
+  }
+
   private static int[][] typeTable = {
     {fbtb, fbtb, fbtb, fbtb}, // typeto == typeBusy
     {fbtb, fbtf, fbtbu, fbtbt}, // typeto == typeFree
@@ -194,7 +213,7 @@ public abstract class FreeAndBusyHandler extends OutBoxHandler {
       cs.add(c);
 
       Collection<EventInfo> evs = getEvents(cs, filter, start, end,
-                                            null, // retrieveList
+                                            fbRetrieveList,
                                             rrm, true);
 
       // Filter out transparent events
@@ -0,0 +1,327 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.calsvc.directory;
+
+import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.configs.DirConfigProperties;
+import org.bedework.calfacade.configs.LdapConfigProperties;
+import org.bedework.calsvc.jmx.LdapConfigPropertiesImpl;
+
+import org.bedework.access.WhoDefs;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSimpleBindRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.InitialLdapContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Check the ldap connection pooling and the group closure cache
+ * against an in-memory directory.
+ *
+ * <p>alice is a member of staff which is a member of everyone.
+ */
+public class UserGroupsLdapImplTest {
+  private static final String base = "dc=example,dc=com";
+  private static final String groupsDn = "ou=groups," + base;
+  private static final String peopleDn = "ou=people," + base;
+
+  private static final String authDn = "cn=admin";
+  private static final String authPw = "secret";
+
+  /* Longest we wait for a background refresh */
+  private static final long refreshWait = 10 * 1000;
+
+  private static InMemoryDirectoryServer ds;
+
+  private static final AtomicLong binds = new AtomicLong();
+
+  private static LdapConfigProperties props;
+
+  private TestGroups groups;
+
+  /* Serve the ldap config and principal hrefs without a full
+   * configuration.
+   */
+  private static class TestGroups extends UserGroupsLdapImpl {
+    @Override
+    protected DirConfigProperties getProps() {
+      return props;
+    }
+
+    @Override
+    public String makePrincipalUri(final String id,
+                                   final int whoType) {
+      if (whoType == WhoDefs.whoTypeGroup) {
+        return "/principals/groups/" + id;
+      }
+
+      return "/principals/users/" + id;
+    }
+  }
+
+  @BeforeClass
+  public static void startServer() throws Throwable {
+    final InMemoryDirectoryServerConfig config =
+            new InMemoryDirectoryServerConfig(base);
+
+    config.addAdditionalBindCredentials(authDn, authPw);
+    config.setListenerConfigs(
+            InMemoryListenerConfig.createLDAPConfig("test", 0));
+    config.setSchema(null);
+
+    config.addInMemoryOperationInterceptor(
+            new InMemoryOperationInterceptor() {
+              @Override
+              public void processSimpleBindRequest(
+                      final InMemoryInterceptedSimpleBindRequest request) {
+                binds.incrementAndGet();
+              }
+            });
+
+    ds = new InMemoryDirectoryServer(config);
+    ds.startListening();
+
+    ds.add("dn: " + base,
+           "objectClass: domain",
+           "dc: example");
+    ds.add("dn: " + peopleDn,
+           "objectClass: organizationalUnit",
+           "ou: people");
+    ds.add("dn: " + groupsDn,
+           "objectClass: organizationalUnit",
+           "ou: groups");
+    ds.add("dn: uid=alice," + peopleDn,
+           "objectClass: inetOrgPerson",
+           "uid: alice",
+           "cn: alice",
+           "sn: alice");
+    ds.add("dn: cn=staff," + groupsDn,
+           "objectClass: groupOfNames",
+           "cn: staff",
+           "member: uid=alice," + peopleDn);
+    ds.add("dn: cn=everyone," + groupsDn,
+           "objectClass: groupOfNames",
+           "cn: everyone",
+           "member: cn=staff," + groupsDn);
+
+    final LdapConfigPropertiesImpl p = new LdapConfigPropertiesImpl();
+
+    p.setProviderUrl("ldap://localhost:" + ds.getListenPort());
+    p.setAuthDn(authDn);
+    p.setAuthPw(authPw);
+    p.setGroupContextDn(groupsDn);
+    p.setGroupIdAttr("cn");
+    p.setGroupMemberAttr("member");
+    p.setUserDnPrefix("uid=");
+    p.setUserDnSuffix("," + peopleDn);
+    p.setGroupDnPrefix("cn=");
+    p.setGroupDnSuffix("," + groupsDn);
+
+    props = p;
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    if (ds != null) {
+      ds.shutDown(true);
+    }
+  }
+
+  @Before
+  public void setUp() throws Throwable {
+    UserGroupsLdapImpl.flushClosures();
+    UserGroupsLdapImpl.resetClosureTimes();
+
+    groups = new TestGroups();
+
+    if (ds.getEntry("cn=readers," + groupsDn) != null) {
+      ds.delete("cn=readers," + groupsDn);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    UserGroupsLdapImpl.flushClosures();
+    UserGroupsLdapImpl.resetClosureTimes();
+  }
+
+  /** Closed contexts hand their connection back to the pool so only
+   * the first one binds.
+   *
+   * @throws Throwable on error
+   */
+  @Test
+  public void testContextsArePooled() throws Throwable {
+    search();
+
+    final long bound = binds.get();
+
+    assertTrue("Expected a bind", bound > 0);
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals("staff", search());
+    }
+
+    assertEquals("Pooled contexts should not bind again",
+                 bound, binds.get());
+  }
+
+  /** A closure is served from the cache until it expires.
+   *
+   * @throws Throwable on error
+   */
+  @Test
+  public void testClosureTtl() throws Throwable {
+    UserGroupsLdapImpl.setClosureTimes(500, 500);
+
+    final long misses = UserGroupsLdapImpl.getClosureMisses();
+    final long hits = UserGroupsLdapImpl.getClosureHits();
+
+    assertEquals(names("everyone", "staff"), names(groups.getAllGroups(alice())));
+
+    // alice, staff and everyone
+    assertEquals(misses + 3, UserGroupsLdapImpl.getClosureMisses());
+
+    addReaders();
+
+    assertEquals(names("everyone", "staff"), names(groups.getAllGroups(alice())));
+    assertEquals(hits + 1, UserGroupsLdapImpl.getClosureHits());
+    assertEquals(misses + 3, UserGroupsLdapImpl.getClosureMisses());
+
+    Thread.sleep(600);
+
+    assertEquals(names("everyone", "readers", "staff"),
+                 names(groups.getAllGroups(alice())));
+    assertTrue(UserGroupsLdapImpl.getClosureMisses() > misses + 3);
+  }
+
+  /** An old closure is still returned but a new one is fetched in the
+   * background.
+   *
+   * @throws Throwable on error
+   */
+  @Test
+  public void testClosureRefreshAhead() throws Throwable {
+    UserGroupsLdapImpl.setClosureTimes(60 * 1000, 200);
+
+    assertEquals(names("everyone", "staff"), names(groups.getAllGroups(alice())));
+
+    addReaders();
+
+    Thread.sleep(300);
+
+    final long hits = UserGroupsLdapImpl.getClosureHits();
+
+    // Due for a refresh - we still get the cached value
+    assertEquals(names("everyone", "staff"), names(groups.getAllGroups(alice())));
+    assertTrue(UserGroupsLdapImpl.getClosureHits() > hits);
+
+    final long end = System.currentTimeMillis() + refreshWait;
+    Collection<String> found;
+
+    do {
+      Thread.sleep(50);
+      found = names(groups.getAllGroups(alice()));
+    } while (!found.contains("readers") &&
+            (System.currentTimeMillis() < end));
+
+    assertEquals(names("everyone", "readers", "staff"), found);
+  }
+
+  private static String search() throws Throwable {
+    final InitialLdapContext ctx = LdapContexts.getContext(props);
+
+    try {
+      final BasicAttributes matchAttrs = new BasicAttributes(true);
+
+      matchAttrs.put("member", "uid=alice," + peopleDn);
+
+      final NamingEnumeration<SearchResult> response =
+              ctx.search(groupsDn, matchAttrs, new String[]{"cn"});
+
+      try {
+        String cn = null;
+
+        while (response.hasMore()) {
+          cn = response.next().getAttributes().get("cn").get().toString();
+        }
+
+        return cn;
+      } finally {
+        response.close();
+      }
+    } finally {
+      ctx.close();
+    }
+  }
+
+  private static void addReaders() throws Throwable {
+    ds.add("dn: cn=readers," + groupsDn,
+           "objectClass: groupOfNames",
+           "cn: readers",
+           "member: uid=alice," + peopleDn);
+  }
+
+  private static BwPrincipal alice() {
+    final BwPrincipal p = BwPrincipal.makeUserPrincipal();
+
+    p.setAccount("alice");
+    p.setPrincipalRef("/principals/users/alice");
+
+    return p;
+  }
+
+  private static Collection<String> names(final String... vals) {
+    final Collection<String> res = new TreeSet<>();
+
+    for (final String val: vals) {
+      res.add(val);
+    }
+
+    return res;
+  }
+
+  private static Collection<String> names(final Collection<BwGroup> vals) {
+    final Collection<String> res = new TreeSet<>();
+
+    for (final BwGroup grp: vals) {
+      res.add(grp.getAccount());
+    }
+
+    return res;
+  }
+}
@@ -105,6 +105,14 @@ public class BwIndexApp extends JmsSysEventListener {
     return getCrawler().getIndexInfo();
   }
 
+  /** Start the index client and warm up the public index.
+   *
+   * @throws Throwable
+   */
+  public void warmUp() throws Throwable {
+    getCrawler().warmUp();
+  }
+
   /**
    * @return list of purged indexes.
    */
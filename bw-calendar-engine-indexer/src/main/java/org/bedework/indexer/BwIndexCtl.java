@@ -63,6 +63,17 @@ public class BwIndexCtl extends ConfBase<IndexPropertiesImpl>
       }
 
       info(listIndexes(is));
+
+      /* Warm up so the first request doesn't pay for it */
+
+      try {
+        getIndexApp().warmUp();
+
+        ready = true;
+      } catch (Throwable t) {
+        error(" * Exception warming up index:");
+        error(t);
+      }
     }
 
     @Override
@@ -96,6 +107,9 @@ public class BwIndexCtl extends ConfBase<IndexPropertiesImpl>
 
   private ProcessorThread processor;
 
+  /* Set once the client is started and the index warmed up */
+  private volatile boolean ready;
+
   private class CrawlThread extends Thread {
     boolean showedTrace;
 
@@ -205,6 +219,36 @@ public class BwIndexCtl extends ConfBase<IndexPropertiesImpl>
     return getConfig().getDataDir();
   }
 
+  @Override
+  public void setRefreshInterval(final String val) {
+    getConfig().setRefreshInterval(val);
+  }
+
+  @Override
+  public String getRefreshInterval() {
+    return getConfig().getRefreshInterval();
+  }
+
+  @Override
+  public void setBulkThreads(final int val) {
+    getConfig().setBulkThreads(val);
+  }
+
+  @Override
+  public int getBulkThreads() {
+    return getConfig().getBulkThreads();
+  }
+
+  @Override
+  public void setFieldDataLimit(final String val) {
+    getConfig().setFieldDataLimit(val);
+  }
+
+  @Override
+  public String getFieldDataLimit() {
+    return getConfig().getFieldDataLimit();
+  }
+
   @Override
   public void setIndexerConfig(final String val) {
     getConfig().setIndexerConfig(val);
@@ -415,6 +459,11 @@ public class BwIndexCtl extends ConfBase<IndexPropertiesImpl>
     return (processor != null) && processor.isAlive();
   }
 
+  @Override
+  public boolean isReady() {
+    return ready && isStarted();
+  }
+
   /* (non-Javadoc)
    * @see org.bedework.indexer.BwIndexCtlMBean#start()
    */
@@ -443,6 +492,7 @@ public class BwIndexCtl extends ConfBase<IndexPropertiesImpl>
     ProcessorThread.stopProcess(processor);
 
     processor = null;
+    ready = false;
   }
 
   @Override
@@ -179,6 +179,19 @@ public class Crawl extends CalSys {
     }
   }
 
+  /** Start the index client and warm up the public index.
+   *
+   * @throws CalFacadeException
+   */
+  public void warmUp() throws CalFacadeException {
+    try (BwSvc bw = getAdminBw()) {
+      final BwIndexer idx = bw.getSvci().getIndexer(adminAccount,
+                                                    props.getPublicIndexName());
+
+      idx.warmUp();
+    }
+  }
+
   /** Purge non-current indexes maintained by server.
    *
    * @return names of indexes removed.
@@ -49,6 +49,12 @@ public class IndexPropertiesImpl
 
   private String dataDir;
 
+  private String refreshInterval;
+
+  private int bulkThreads;
+
+  private String fieldDataLimit;
+
   private String indexerConfig;
 
   private String publicIndexName;
@@ -129,6 +135,36 @@ public class IndexPropertiesImpl
     return dataDir;
   }
 
+  @Override
+  public void setRefreshInterval(final String val) {
+    refreshInterval = val;
+  }
+
+  @Override
+  public String getRefreshInterval() {
+    return refreshInterval;
+  }
+
+  @Override
+  public void setBulkThreads(final int val) {
+    bulkThreads = val;
+  }
+
+  @Override
+  public int getBulkThreads() {
+    return bulkThreads;
+  }
+
+  @Override
+  public void setFieldDataLimit(final String val) {
+    fieldDataLimit = val;
+  }
+
+  @Override
+  public String getFieldDataLimit() {
+    return fieldDataLimit;
+  }
+
   @Override
   public void setIndexerConfig(final String val) {
     indexerConfig = val;
@@ -270,6 +306,11 @@ public class IndexPropertiesImpl
     ts.append("publicIndexName", getPublicIndexName());
     ts.append("userIndexName", getUserIndexName());
 
+    ts.newLine();
+    ts.append("refreshInterval", getRefreshInterval());
+    ts.append("bulkThreads", getBulkThreads());
+    ts.append("fieldDataLimit", getFieldDataLimit());
+
     ts.newLine();
     ts.append("account", getAccount());
     ts.append("maxEntityThreads", getMaxEntityThreads());
@@ -295,6 +336,10 @@ public class IndexPropertiesImpl
     clone.setPublicIndexName(getPublicIndexName());
     clone.setUserIndexName(getUserIndexName());
 
+    clone.setRefreshInterval(getRefreshInterval());
+    clone.setBulkThreads(getBulkThreads());
+    clone.setFieldDataLimit(getFieldDataLimit());
+
     clone.setAccount(getAccount());
     clone.setMaxEntityThreads(getMaxEntityThreads());
     clone.setMaxPrincipalThreads(getMaxPrincipalThreads());
@@ -31,6 +31,7 @@ import org.bedework.sysevents.events.CollectionUpdateEvent;
 import org.bedework.sysevents.events.EntityDeletedEvent;
 import org.bedework.sysevents.events.EntityUpdateEvent;
 import org.bedework.sysevents.events.SysEvent;
+import org.bedework.sysevents.events.SysEventBase.SysCode;
 
 import org.apache.log4j.Logger;
 
@@ -40,6 +41,9 @@ import org.apache.log4j.Logger;
  * We assume that we do not need to figure out side effects of a change. For
  * example, if a collection is moved we will also get events for each affected
  * entity so we don't need to figure out what children are affected.
+ * The exception is a change to the acl of a collection. The indexed
+ * readers of everything below it are derived from that acl so we
+ * reindex the whole tree.
  * <p>
  * This may not hold true for recurring events. We possibly need to figure out
  * how to remove all instances and overrides. This might require a search
@@ -90,6 +94,10 @@ public class MessageProcessor extends CalSys {
         if (msg instanceof CollectionUpdateEvent) {
           collectionsUpdated++;
           doCollectionChange((CollectionUpdateEvent)msg);
+
+          if (msg.getSysCode() == SysCode.COLLECTION_ACCESS_CHANGED) {
+            reindexChildren(((CollectionUpdateEvent)msg).getHref());
+          }
           return;
         }
 
@@ -163,7 +171,7 @@ public class MessageProcessor extends CalSys {
     try (BwSvc bw = getBw()) {
       getIndexer(bw.getSvci(),
                  cde.getPublick(), cde.getOwnerHref()).
-              unindexEntity(cde.getHref());
+              unindexCollection(cde.getHref());
     }
   }
 
@@ -181,6 +189,49 @@ public class MessageProcessor extends CalSys {
     }
   }
 
+  /* Reindex the entities and collections below the given path so
+     their readers reflect the new acl.
+   */
+  private void reindexChildren(final String path) throws CalFacadeException {
+    Refs refs = null;
+
+    for (;;) {
+      refs = getChildCollections(path, refs);
+
+      if (refs == null) {
+        break;
+      }
+
+      for (final String cpath: refs.refs) {
+        try (BwSvc bw = getBw()) {
+          add(bw.getSvci(), getCollection(bw.getSvci(), cpath));
+        }
+
+        reindexChildren(cpath);
+      }
+    }
+
+    refs = null;
+
+    for (;;) {
+      refs = getChildEntities(path, refs);
+
+      if (refs == null) {
+        break;
+      }
+
+      for (final String name: refs.refs) {
+        try (BwSvc bw = getBw()) {
+          final EventInfo val = getEvent(bw.getSvci(), path, name);
+
+          if (val != null) {
+            add(val);
+          }
+        }
+      }
+    }
+  }
+
   private void doEntityDelete(final EntityDeletedEvent ede)
        throws CalFacadeException {
     /* Treat the delete of a recurrence instance as an update */
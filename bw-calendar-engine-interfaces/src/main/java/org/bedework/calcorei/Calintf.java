@@ -663,6 +663,15 @@ public interface Calintf
    */
   void getResourceContent(BwResource val) throws CalFacadeException;
 
+  /** Get the content for each of the given resources with a single
+   * query for each collection. Resources with no content are left
+   * without.
+   *
+   * @param  vals resources
+   * @throws CalFacadeException
+   */
+  void getResourceContents(Collection<BwResource> vals) throws CalFacadeException;
+
   /** Get resources to which this user has access - content is not fetched.
    *
    * @param  path           String path to containing collection
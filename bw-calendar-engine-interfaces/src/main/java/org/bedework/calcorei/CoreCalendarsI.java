@@ -20,6 +20,7 @@ package org.bedework.calcorei;
 
 import org.bedework.calfacade.BwCalendar;
 import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.CollectionSize;
 import org.bedework.calfacade.CollectionSynchInfo;
 import org.bedework.calfacade.exc.CalFacadeException;
 
@@ -276,6 +277,16 @@ public interface CoreCalendarsI extends Serializable {
    */
   public String getSyncToken(String path) throws CalFacadeException;
 
+  /** Return the number of entities in the collection and their total
+   * size. Child collections are not included. The values are running
+   * counts maintained as entities are added, updated and deleted.
+   *
+   * @param path of collection
+   * @return sizes or null for no access
+   * @throws CalFacadeException
+   */
+  public CollectionSize getCollectionSize(String path) throws CalFacadeException;
+
   /* ====================================================================
    *                  Admin support
    * ==================================================================== */
@@ -61,6 +61,15 @@ public interface CoreEventPropertiesI <T extends BwEventProperty> extends Serial
    */
   T get(String uid) throws CalFacadeException;
 
+  /** Return the entities with the given uids to which the user has
+   * access. Uids which do not exist are skipped.
+   *
+   * @param uids       Collection of String uid
+   * @return Collection of objects - never null
+   * @throws CalFacadeException
+   */
+  Collection<T> get(Collection<String> uids) throws CalFacadeException;
+
   /** Return one or more entities matching the given BwString to which the
    * user has access.
    *
@@ -325,6 +325,15 @@ public interface HibSession extends Serializable {
    */
   public void save(Object obj) throws CalFacadeException;
 
+  /** Save a number of new objects, e.g. the instances of a recurring
+   * event. The inserts are sent in jdbc batches when they are flushed
+   * if batching is configured.
+   *
+   * @param objs to save
+   * @throws CalFacadeException
+   */
+  public void saveAll(Collection<?> objs) throws CalFacadeException;
+
   /** Delete an object
    *
    * @param obj